@@ -0,0 +1,53 @@
+package com.nivleking.springboot.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the DEBUG and TRACE output of the configured loggers (and their children) for one request in
+ * {@code sampleRate}, chosen by the {@code X-B3-TraceId} MDC value so a sampled request keeps its full
+ * trail. Events without a trace id are sampled one in {@code sampleRate}. Other levels are not affected.
+ * Configured in {@code logback.xml}.
+ */
+public class DebugSamplingTurboFilter extends TurboFilter {
+    private final List<String> loggers = new ArrayList<>();
+    private int sampleRate = 1;
+    private final AtomicLong untraced = new AtomicLong();
+
+    public void addLogger(String logger) {
+        loggers.add(logger);
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || sampleRate == 1 || level.levelInt > Level.DEBUG_INT
+                || level.levelInt < logger.getEffectiveLevel().levelInt || !isSampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String traceId = MDC.get("X-B3-TraceId");
+        long key = traceId == null || traceId.isEmpty() ? untraced.incrementAndGet() : traceId.hashCode();
+        return Math.floorMod(key, (long) sampleRate) == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean isSampled(String loggerName) {
+        for (String prefix : loggers) {
+            if (loggerName.equals(prefix) || (loggerName.startsWith(prefix) && loggerName.charAt(prefix.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
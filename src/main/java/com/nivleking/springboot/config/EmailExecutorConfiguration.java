@@ -0,0 +1,33 @@
+package com.nivleking.springboot.config;
+
+import com.nivleking.springboot.utils.MdcTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Asynchronous single email delivery runs on {@link com.nivleking.springboot.service.EmailDispatchScheduler}.
+ */
+@Configuration
+public class EmailExecutorConfiguration {
+    @Value("${com.nivleking.springboot.email.campaign.max-concurrent:2}")
+    private int campaignMaxConcurrent;
+
+    @Value("${com.nivleking.springboot.email.campaign.queue-capacity:10}")
+    private int campaignQueueCapacity;
+
+    /**
+     * Runs bulk campaigns, one thread per campaign. Campaigns are long running, so only a few run at once.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor campaignExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("email-campaign-");
+        executor.setCorePoolSize(campaignMaxConcurrent);
+        executor.setMaxPoolSize(campaignMaxConcurrent);
+        executor.setQueueCapacity(campaignQueueCapacity);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+}
@@ -0,0 +1,37 @@
+package com.nivleking.springboot.config;
+
+import com.nivleking.springboot.service.PipelineMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+    @Value("${com.nivleking.springboot.metrics.pipeline.max-templates:100}")
+    private int maxTemplates;
+
+    @Value("${com.nivleking.springboot.metrics.pipeline.max-email-types:50}")
+    private int maxEmailTypes;
+
+    /**
+     * Template names come from the requests, so past the limit timers for new template names are not registered
+     */
+    @Bean
+    public MeterFilter pipelineTemplateTagLimit() {
+        return MeterFilter.maximumAllowableTags(PipelineMetrics.EMAIL_TIMER, "template", maxTemplates, MeterFilter.deny());
+    }
+
+    /**
+     * Email types come from the requests as well, cap them on the timers and the suppressed counter
+     */
+    @Bean
+    public MeterFilter pipelineEmailTypeTagLimit() {
+        return MeterFilter.maximumAllowableTags(PipelineMetrics.EMAIL_TIMER, "email_type", maxEmailTypes, MeterFilter.deny());
+    }
+
+    @Bean
+    public MeterFilter suppressedEmailTypeTagLimit() {
+        return MeterFilter.maximumAllowableTags(PipelineMetrics.SUPPRESSED_COUNTER, "email_type", maxEmailTypes, MeterFilter.deny());
+    }
+}
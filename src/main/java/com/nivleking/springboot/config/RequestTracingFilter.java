@@ -1,5 +1,7 @@
 package com.nivleking.springboot.config;
 
+import com.nivleking.springboot.utils.TraceContext;
+import com.nivleking.springboot.utils.Tracing;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -8,8 +10,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.UUID;
 
+/**
+ * Runs each request in a span that continues the caller's trace from the {@code traceparent} or B3
+ * headers, or starts a new trace. The span's ids are returned in both formats.
+ */
 @Component
 public class RequestTracingFilter extends OncePerRequestFilter {
 
@@ -17,27 +22,21 @@ public class RequestTracingFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
+        Tracing.Span span = Tracing.startSpan(request.getMethod() + " " + request.getRequestURI(),
+                TraceContext.fromHeaders(request::getHeader));
         try {
-            String traceId = request.getHeader("X-B3-TraceId");
-            if (traceId == null || traceId.isEmpty()) {
-                traceId = UUID.randomUUID().toString();
-            }
-
-            String spanId = request.getHeader("X-B3-SpanId");
-            if (spanId == null || spanId.isEmpty()) {
-                spanId = UUID.randomUUID().toString();
-            }
-
-            MDC.put("X-B3-TraceId", traceId);
-            MDC.put("X-B3-SpanId", spanId);
-
-            response.addHeader("X-B3-TraceId", traceId);
-            response.addHeader("X-B3-SpanId", spanId);
+            TraceContext context = span.getContext();
+            response.addHeader(TraceContext.TRACEPARENT, context.toTraceparent());
+            response.addHeader(TraceContext.B3_TRACE_ID, context.getTraceId());
+            response.addHeader(TraceContext.B3_SPAN_ID, context.getSpanId());
 
             filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.error(e);
+            throw e;
         } finally {
-            MDC.remove("X-B3-TraceId");
-            MDC.remove("X-B3-SpanId");
+            span.end();
+            MDC.remove("input");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.nivleking.springboot.config;
+
+import com.nivleking.springboot.service.SmtpDeliveryGuard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/smtp}: SMTP concurrency limit and circuit breaker state of this node.
+ * A POST closes the circuit without waiting for the open period to pass.
+ */
+@Component
+@Endpoint(id = "smtp")
+public class SmtpEndpoint {
+    @Autowired
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @ReadOperation
+    public Map<String, Object> state() {
+        return smtpDeliveryGuard.snapshot();
+    }
+
+    @WriteOperation
+    public Map<String, Object> reset() {
+        smtpDeliveryGuard.reset();
+        return smtpDeliveryGuard.snapshot();
+    }
+}
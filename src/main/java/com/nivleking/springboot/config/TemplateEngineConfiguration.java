@@ -0,0 +1,92 @@
+package com.nivleking.springboot.config;
+
+import com.nivleking.springboot.utils.TemplateParamsContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.StandardCache;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+/**
+ * Shared Thymeleaf engines for inline (string) templates used by email and PDF rendering.
+ * Parsed templates are cached by template content, bounded by size and TTL.
+ * <p>
+ * Defining a {@link SpringTemplateEngine} makes Boot's {@code ThymeleafAutoConfiguration} skip its own
+ * {@code templateEngine}, so there is no engine for {@code classpath:/templates}; every template here
+ * comes from the database as a string.
+ */
+@Configuration
+@Slf4j
+public class TemplateEngineConfiguration {
+    @Value("${com.nivleking.springboot.template.cache.max-size:200}")
+    private int templateCacheMaxSize;
+
+    @Value("${com.nivleking.springboot.template.cache.ttl-millis:3600000}")
+    private long templateCacheTtlMillis;
+
+    @Value("${com.nivleking.springboot.template.expression-cache.max-size:500}")
+    private int expressionCacheMaxSize;
+
+    @Bean
+    public SpringTemplateEngine htmlTemplateEngine() {
+        return createStringTemplateEngine(TemplateMode.HTML);
+    }
+
+    @Bean
+    public MeterBinder htmlTemplateCacheMetrics(SpringTemplateEngine htmlTemplateEngine) {
+        return registry -> {
+            ICache<?, ?> cache = htmlTemplateEngine.getCacheManager().getTemplateCache();
+            if (!(cache instanceof StandardCache)) {
+                return;
+            }
+
+            StandardCache<?, ?> templateCache = (StandardCache<?, ?>) cache;
+            FunctionCounter.builder("cache.gets", templateCache, StandardCache::getHitCount)
+                    .tag("cache", "template.html").tag("result", "hit").register(registry);
+            FunctionCounter.builder("cache.gets", templateCache, StandardCache::getMissCount)
+                    .tag("cache", "template.html").tag("result", "miss").register(registry);
+            FunctionCounter.builder("cache.puts", templateCache, StandardCache::getPutCount)
+                    .tag("cache", "template.html").register(registry);
+            Gauge.builder("cache.size", templateCache, StandardCache::size)
+                    .tag("cache", "template.html").register(registry);
+        };
+    }
+
+    /**
+     * Drop parsed templates on {@code /actuator/refresh} so template edits are picked up immediately.
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void clearTemplateCaches() {
+        log.info("[TEMPLATE ENGINE] Clearing parsed template cache");
+        htmlTemplateEngine().clearTemplateCache();
+    }
+
+    private SpringTemplateEngine createStringTemplateEngine(TemplateMode templateMode) {
+        StringTemplateResolver templateResolver = new StringTemplateResolver();
+        templateResolver.setTemplateMode(templateMode);
+        templateResolver.setCacheable(true);
+        templateResolver.setCacheTTLMs(templateCacheTtlMillis);
+
+        StandardCacheManager cacheManager = new StandardCacheManager();
+        cacheManager.setTemplateCacheMaxSize(templateCacheMaxSize);
+        cacheManager.setTemplateCacheEnableCounters(true);
+        cacheManager.setExpressionCacheMaxSize(expressionCacheMaxSize);
+
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setCacheManager(cacheManager);
+        templateEngine.setEnableSpringELCompiler(true);
+        templateEngine.setEngineContextFactory(new TemplateParamsContext.EngineContextFactory());
+        return templateEngine;
+    }
+}
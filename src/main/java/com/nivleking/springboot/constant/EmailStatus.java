@@ -4,5 +4,6 @@ public class EmailStatus {
     public static final String SUCCESS = "SUCCESS";
     public static final String FAILED = "FAILED";
     public static final String PENDING = "PENDING";
+    public static final String PROCESSING = "PROCESSING";
     public static final String TIMEOUT = "TIMEOUT";
 }
@@ -2,12 +2,30 @@ package com.nivleking.springboot.constant;
 
 public class ResponseMessages {
     public static final String ENG_SUCCESS_CODE = "success";
+    public static final String ENG_ACCEPTED_CODE = "accepted";
     public static final String ENG_FAILED_CODE = "failed";
     public static final String ENG_FAIL_SEND_EMAIL = "Fail to Send Email";
     public static final String ENG_FAIL_GENERATE_PDF = "Fail to generate PDF";
+    public static final String ENG_EMAIL_QUEUE_FULL = "Email queue is full, please retry later";
+    public static final String ENG_EMAIL_NOT_FOUND = "Email not found";
+    public static final String ENG_CAMPAIGN_NOT_FOUND = "Campaign not found";
+    public static final String ENG_CAMPAIGN_ALREADY_EXISTS = "Campaign already exists";
+    public static final String ENG_FAIL_START_CAMPAIGN = "Fail to start campaign";
+    public static final String ENG_ATTACHMENT_TOO_LARGE = "Attachments exceed the maximum allowed size";
+    public static final String ENG_FAIL_STORE_ATTACHMENT = "Fail to store attachment";
+    public static final String ENG_SMTP_UNAVAILABLE = "Email server is temporarily unavailable, please retry later";
 
     public static final String ID_SUCCESS_CODE = "sukses";
+    public static final String ID_ACCEPTED_CODE = "diterima";
     public static final String ID_FAILED_CODE = "gagal";
     public static final String ID_FAIL_SEND_EMAIL = "Gagal mengirimkan email";
     public static final String ID_FAIL_GENERATE_PDF = "Gagal membuat PDF";
+    public static final String ID_EMAIL_QUEUE_FULL = "Antrian email penuh, silakan coba lagi nanti";
+    public static final String ID_EMAIL_NOT_FOUND = "Email tidak ditemukan";
+    public static final String ID_CAMPAIGN_NOT_FOUND = "Kampanye tidak ditemukan";
+    public static final String ID_CAMPAIGN_ALREADY_EXISTS = "Kampanye sudah ada";
+    public static final String ID_FAIL_START_CAMPAIGN = "Gagal memulai kampanye";
+    public static final String ID_ATTACHMENT_TOO_LARGE = "Lampiran melebihi batas ukuran maksimum yang diperbolehkan";
+    public static final String ID_FAIL_STORE_ATTACHMENT = "Gagal menyimpan lampiran";
+    public static final String ID_SMTP_UNAVAILABLE = "Server email sedang tidak tersedia, silakan coba lagi nanti";
 }
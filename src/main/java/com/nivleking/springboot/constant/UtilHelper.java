@@ -1,7 +1,6 @@
 package com.nivleking.springboot.constant;
 
-import java.util.UUID;
-
+import com.nivleking.springboot.utils.TraceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
@@ -9,19 +8,22 @@ import org.springframework.stereotype.Component;
 @Component
 @Slf4j
 public class UtilHelper {
+    /**
+     * Put trace and span ids into the MDC when no span is set up, e.g. outside of {@code RequestTracingFilter}
+     */
     public static void ensureTraceAndSpanIds() {
-        String traceId = MDC.get("X-B3-TraceId");
+        TraceContext context = TraceContext.newTrace();
+
+        String traceId = MDC.get(TraceContext.B3_TRACE_ID);
         if (traceId == null || traceId.isEmpty()) {
-            traceId = UUID.randomUUID().toString();
-            MDC.put("X-B3-TraceId", traceId);
-            log.debug("Generated new trace ID: {}", traceId);
+            MDC.put(TraceContext.B3_TRACE_ID, context.getTraceId());
+            log.debug("Generated new trace ID: {}", context.getTraceId());
         }
 
-        String spanId = MDC.get("X-B3-SpanId");
+        String spanId = MDC.get(TraceContext.B3_SPAN_ID);
         if (spanId == null || spanId.isEmpty()) {
-            spanId = UUID.randomUUID().toString();
-            MDC.put("X-B3-SpanId", spanId);
-            log.debug("Generated new span ID: {}", spanId);
+            MDC.put(TraceContext.B3_SPAN_ID, context.getSpanId());
+            log.debug("Generated new span ID: {}", context.getSpanId());
         }
     }
 }
@@ -1,24 +1,39 @@
 package com.nivleking.springboot.controller;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nivleking.springboot.constant.ResponseMessages;
 import com.nivleking.springboot.constant.UtilHelper;
 import com.nivleking.springboot.dto.ApiResponse;
 import com.nivleking.springboot.dto.ApiResponseV2;
+import com.nivleking.springboot.dto.AttachmentDTO;
+import com.nivleking.springboot.dto.CampaignProgressDTO;
+import com.nivleking.springboot.dto.CampaignRequestDTO;
 import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.dto.EmailStatusDTO;
+import com.nivleking.springboot.dto.EmailSubmissionResult;
+import com.nivleking.springboot.exception.AttachmentTooLargeException;
+import com.nivleking.springboot.exception.CampaignAlreadyExistsException;
+import com.nivleking.springboot.exception.SmtpUnavailableException;
+import com.nivleking.springboot.service.AttachmentStore;
+import com.nivleking.springboot.service.CampaignService;
 import com.nivleking.springboot.service.EmailService;
+import com.nivleking.springboot.utils.CappedJsonWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -28,19 +43,48 @@ public class EmailController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private CampaignService campaignService;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Value("${com.nivleking.springboot.logging.input-max-chars:2048}")
+    private int inputMaxChars;
+
     @PostMapping("send-email")
     public ResponseEntity<ApiResponseV2<String>> sendEmail(
             @RequestParam(name = "files", required = false) MultipartFile[] files,
-            @RequestParam(name = "dto") EmailDTO dto
-    ) throws JsonProcessingException {
+            @RequestParam(name = "dto") EmailDTO dto,
+            @RequestParam(name = "async", required = false, defaultValue = "false") boolean async
+    ) {
         UtilHelper.ensureTraceAndSpanIds();
-        MDC.put("input", objectMapper.writeValueAsString(dto));
+        MDC.put("input", CappedJsonWriter.write(objectMapper, dto, inputMaxChars));
         String traceId = MDC.get("X-B3-TraceId");
         try {
-            log.info("Processing email request to: {}", dto.getReceiver());
+            log.info("Processing email request to: {} (async={})", dto.getReceiver(), async);
+            if (async) {
+                EmailSubmissionResult submission = emailService.submitEmail(dto, files);
+                if (!submission.isAccepted()) {
+                    return ResponseEntity.ok(ApiResponseV2.success(
+                        submission.getMessage(),
+                        ResponseMessages.ENG_SUCCESS_CODE,
+                        ResponseMessages.ID_SUCCESS_CODE,
+                        traceId
+                    ));
+                }
+
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponseV2.accepted(
+                    submission.getEmailId(),
+                    ResponseMessages.ENG_ACCEPTED_CODE,
+                    ResponseMessages.ID_ACCEPTED_CODE,
+                    traceId
+                ));
+            }
+
             String result = emailService.sendEmail(dto, files);
 
             return ResponseEntity.ok(ApiResponseV2.success(
@@ -49,6 +93,39 @@ public class EmailController {
                 ResponseMessages.ID_SUCCESS_CODE,
                 traceId
             ));
+        } catch (AttachmentTooLargeException e) {
+            log.warn("Email attachments rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(ApiResponseV2.error(
+                        "413",
+                        ResponseMessages.ENG_ATTACHMENT_TOO_LARGE,
+                        ResponseMessages.ID_ATTACHMENT_TOO_LARGE,
+                        traceId,
+                        e.getMessage()
+                    )
+                );
+        } catch (TaskRejectedException e) {
+            log.warn("Email delivery queue is full: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponseV2.error(
+                        "503",
+                        ResponseMessages.ENG_EMAIL_QUEUE_FULL,
+                        ResponseMessages.ID_EMAIL_QUEUE_FULL,
+                        traceId,
+                        e.getMessage()
+                    )
+                );
+        } catch (SmtpUnavailableException e) {
+            log.warn("SMTP relay is unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponseV2.error(
+                        "503",
+                        ResponseMessages.ENG_SMTP_UNAVAILABLE,
+                        ResponseMessages.ID_SMTP_UNAVAILABLE,
+                        traceId,
+                        e.getMessage()
+                    )
+                );
         } catch (Exception e) {
             log.error("Email sending failed: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -62,4 +139,148 @@ public class EmailController {
                 );
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("attachments")
+    public ResponseEntity<ApiResponseV2<AttachmentDTO>> uploadAttachment(@RequestParam(name = "file") MultipartFile file) {
+        UtilHelper.ensureTraceAndSpanIds();
+        String traceId = MDC.get("X-B3-TraceId");
+        try {
+            log.info("Storing attachment: {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+            AttachmentDTO attachment = attachmentStore.store(file);
+
+            return ResponseEntity.ok(ApiResponseV2.success(
+                attachment,
+                ResponseMessages.ENG_SUCCESS_CODE,
+                ResponseMessages.ID_SUCCESS_CODE,
+                traceId
+            ));
+        } catch (AttachmentTooLargeException e) {
+            log.warn("Attachment rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(ApiResponseV2.error(
+                        "413",
+                        ResponseMessages.ENG_ATTACHMENT_TOO_LARGE,
+                        ResponseMessages.ID_ATTACHMENT_TOO_LARGE,
+                        traceId,
+                        null
+                    )
+                );
+        } catch (Exception e) {
+            log.error("Attachment upload failed: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponseV2.error(
+                        "500",
+                        ResponseMessages.ENG_FAIL_STORE_ATTACHMENT,
+                        ResponseMessages.ID_FAIL_STORE_ATTACHMENT,
+                        traceId,
+                        null
+                    )
+                );
+        }
+    }
+
+    @GetMapping("status/{emailId}")
+    public ResponseEntity<ApiResponseV2<EmailStatusDTO>> getEmailStatus(@PathVariable("emailId") String emailId) {
+        UtilHelper.ensureTraceAndSpanIds();
+        String traceId = MDC.get("X-B3-TraceId");
+
+        Optional<EmailStatusDTO> status = emailService.getEmailStatus(emailId);
+        if (!status.isPresent()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponseV2.error(
+                        "404",
+                        ResponseMessages.ENG_EMAIL_NOT_FOUND,
+                        ResponseMessages.ID_EMAIL_NOT_FOUND,
+                        traceId,
+                        null
+                    )
+                );
+        }
+
+        return ResponseEntity.ok(ApiResponseV2.success(
+            status.get(),
+            ResponseMessages.ENG_SUCCESS_CODE,
+            ResponseMessages.ID_SUCCESS_CODE,
+            traceId
+        ));
+    }
+
+    @PostMapping("campaigns")
+    public ResponseEntity<ApiResponseV2<String>> startCampaign(
+            @RequestParam(name = "recipients") MultipartFile recipients,
+            @RequestParam(name = "dto") CampaignRequestDTO dto
+    ) {
+        UtilHelper.ensureTraceAndSpanIds();
+        MDC.put("input", CappedJsonWriter.write(objectMapper, dto, inputMaxChars));
+        String traceId = MDC.get("X-B3-TraceId");
+        try {
+            log.info("Starting campaign with template: {} ({})", dto.getTemplateName(), recipients.getOriginalFilename());
+            String campaignId = campaignService.submitCampaign(dto, recipients);
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponseV2.accepted(
+                campaignId,
+                ResponseMessages.ENG_ACCEPTED_CODE,
+                ResponseMessages.ID_ACCEPTED_CODE,
+                traceId
+            ));
+        } catch (CampaignAlreadyExistsException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponseV2.error(
+                        "409",
+                        ResponseMessages.ENG_CAMPAIGN_ALREADY_EXISTS,
+                        ResponseMessages.ID_CAMPAIGN_ALREADY_EXISTS,
+                        traceId,
+                        e.getMessage()
+                    )
+                );
+        } catch (TaskRejectedException e) {
+            log.warn("Campaign queue is full: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponseV2.error(
+                        "503",
+                        ResponseMessages.ENG_EMAIL_QUEUE_FULL,
+                        ResponseMessages.ID_EMAIL_QUEUE_FULL,
+                        traceId,
+                        e.getMessage()
+                    )
+                );
+        } catch (Exception e) {
+            log.error("Campaign start failed: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponseV2.error(
+                        "500",
+                        ResponseMessages.ENG_FAIL_START_CAMPAIGN,
+                        ResponseMessages.ID_FAIL_START_CAMPAIGN,
+                        traceId,
+                        e.getMessage()
+                    )
+                );
+        }
+    }
+
+    @GetMapping("campaigns/{campaignId}")
+    public ResponseEntity<ApiResponseV2<CampaignProgressDTO>> getCampaignProgress(@PathVariable("campaignId") String campaignId) {
+        UtilHelper.ensureTraceAndSpanIds();
+        String traceId = MDC.get("X-B3-TraceId");
+
+        Optional<CampaignProgressDTO> progress = campaignService.getProgress(campaignId);
+        if (!progress.isPresent()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponseV2.error(
+                        "404",
+                        ResponseMessages.ENG_CAMPAIGN_NOT_FOUND,
+                        ResponseMessages.ID_CAMPAIGN_NOT_FOUND,
+                        traceId,
+                        null
+                    )
+                );
+        }
+
+        return ResponseEntity.ok(ApiResponseV2.success(
+            progress.get(),
+            ResponseMessages.ENG_SUCCESS_CODE,
+            ResponseMessages.ID_SUCCESS_CODE,
+            traceId
+        ));
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nivleking.springboot.dto.PdfGenerateRequestDTO;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,6 +16,7 @@ import com.nivleking.springboot.constant.ResponseMessages;
 import com.nivleking.springboot.constant.UtilHelper;
 import com.nivleking.springboot.dto.ApiResponseV2;
 import com.nivleking.springboot.service.PdfGeneratorService;
+import com.nivleking.springboot.utils.CappedJsonWriter;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -28,12 +30,15 @@ public class PdfGeneratorController {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Value("${com.nivleking.springboot.logging.input-max-chars:2048}")
+    private int inputMaxChars;
+
     @PostMapping("/generate")
     public ResponseEntity<ApiResponseV2<Object>> generatePdf(
             @RequestBody PdfGenerateRequestDTO dto
     ) throws Exception {
         UtilHelper.ensureTraceAndSpanIds();
-        MDC.put("input", objectMapper.writeValueAsString(dto));
+        MDC.put("input", CappedJsonWriter.write(objectMapper, dto, inputMaxChars));
         String traceId = MDC.get("X-B3-TraceId");
         try {
             log.info("[PDF-GENERATOR] Received generate request with traceId {}", traceId);
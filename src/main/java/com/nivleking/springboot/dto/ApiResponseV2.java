@@ -34,6 +34,24 @@ public class ApiResponseV2<T> {
                 .build();
     }
 
+    public static <T> ApiResponseV2<T> accepted(T data, String message, String messageIndo, String requestId) {
+        ErrorMessage errorMessage = ErrorMessage.builder()
+                .indonesian(messageIndo)
+                .english(message)
+                .build();
+
+        return ApiResponseV2.<T>builder()
+                .errorSchema(ErrorSchema.builder()
+                        .statusCode("202")
+                        .errorMessage(errorMessage)
+                        .build())
+                .outputSchema(OutputSchema.<T>builder()
+                        .requestId(requestId)
+                        .data(data)
+                        .build())
+                .build();
+    }
+
     public static <T> ApiResponseV2<T> error(String statusCode, String message, String messageIndo, String requestId, T data) {
         ErrorMessage errorMessage = ErrorMessage.builder()
                 .indonesian(messageIndo)
@@ -0,0 +1,20 @@
+package com.nivleking.springboot.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class CampaignProgressDTO {
+    private String campaignId;
+    private String status;
+    private long processed;
+    private long sent;
+    private long failed;
+    private String startedDate;
+    private String finishedDate;
+    private String errorMessage;
+}
@@ -0,0 +1,19 @@
+package com.nivleking.springboot.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class CampaignRequestDTO {
+    private String campaignId;
+    private String emailType;
+    private String priority;
+    private String sender;
+    private String subject;
+    private String templateName;
+    private Object params;
+}
@@ -0,0 +1,29 @@
+package com.nivleking.springboot.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class EmailStatusDTO {
+    private String emailId;
+    private String emailType;
+    private String status;
+    private String templateId;
+    private BigDecimal numberOfRetries;
+    private String lastSend;
+    private String nextRetryAt;
+    private String createdDate;
+    private String lastUpdatedDate;
+    private String requestId;
+    private String httpCode;
+    private String errorCode;
+    private String errorMessage;
+}
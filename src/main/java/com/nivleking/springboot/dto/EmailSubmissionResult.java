@@ -0,0 +1,14 @@
+package com.nivleking.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailSubmissionResult {
+    private boolean accepted;
+    private String emailId;
+    private String message;
+}
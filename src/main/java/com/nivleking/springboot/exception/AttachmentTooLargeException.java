@@ -0,0 +1,10 @@
+package com.nivleking.springboot.exception;
+
+/**
+ * The attachments of a single email exceed the per-request attachment budget.
+ */
+public class AttachmentTooLargeException extends RuntimeException {
+    public AttachmentTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nivleking.springboot.exception;
+
+/**
+ * A campaign with the requested id was already submitted, on this or any other node. Its emails were
+ * or are being sent, so it is not started again.
+ */
+public class CampaignAlreadyExistsException extends RuntimeException {
+    public CampaignAlreadyExistsException(String message) {
+        super(message);
+    }
+}
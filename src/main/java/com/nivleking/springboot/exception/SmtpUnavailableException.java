@@ -0,0 +1,13 @@
+package com.nivleking.springboot.exception;
+
+import jakarta.mail.MessagingException;
+
+/**
+ * The SMTP relay is not taking sends from this node right now: its circuit breaker is open or the
+ * concurrency limit stayed exhausted. Nothing was sent, so the email can be retried later.
+ */
+public class SmtpUnavailableException extends MessagingException {
+    public SmtpUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+package com.nivleking.springboot.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "EMAIL_CAMPAIGN")
+public class EmailCampaign {
+    @Id
+    @Column(name = "CAMPAIGN_ID")
+    private String campaignId;
+    @Column(name = "TEMPLATE_NAME")
+    private String templateName;
+    @Column(name = "EMAIL_TYPE")
+    private String emailType;
+    @Column(name = "STATUS")
+    private String status;
+    @Column(name = "PROCESSED")
+    private Long processed;
+    @Column(name = "SENT")
+    private Long sent;
+    @Column(name = "FAILED")
+    private Long failed;
+    @Column(name = "STARTED_DATE")
+    private LocalDateTime startedDate;
+    @Column(name = "FINISHED_DATE")
+    private LocalDateTime finishedDate;
+    @Column(name = "ERROR_MESSAGE", columnDefinition = "TEXT")
+    private String errorMessage;
+    @Column(name = "REQUEST_ID")
+    private String requestId;
+    @Column(name = "CREATED_DATE")
+    private LocalDateTime createdDate;
+    @Column(name = "LAST_UPDATED_DATE")
+    private LocalDateTime lastUpdatedDate;
+}
@@ -19,7 +19,7 @@ import java.time.LocalDateTime;
 public class EmailLog {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "SEQ_EMAIL_LOG")
-    @SequenceGenerator(name = "SEQ_EMAIL_LOG", initialValue = 1, allocationSize = 1, sequenceName = "SEQ_EMAIL_LOG")
+    @SequenceGenerator(name = "SEQ_EMAIL_LOG", initialValue = 1, allocationSize = 50, sequenceName = "SEQ_EMAIL_LOG")
     @Column(name = "ID")
     private BigDecimal id;
     @Column(name = "EMAIL_ID")
@@ -42,6 +42,8 @@ public class EmailLog {
     private LocalDateTime lastUpdatedDate;
     @Column(name = "EMAIL_DELAY")
     private LocalDateTime emailDelay;
+    @Column(name = "NEXT_RETRY_AT")
+    private LocalDateTime nextRetryAt;
     @Column(name = "REQUEST_ID")
     private String requestId;
     @Column(name = "HTTP_CODE")
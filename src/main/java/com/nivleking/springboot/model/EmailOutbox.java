@@ -0,0 +1,44 @@
+package com.nivleking.springboot.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "EMAIL_OUTBOX")
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "SEQ_EMAIL_OUTBOX")
+    @SequenceGenerator(name = "SEQ_EMAIL_OUTBOX", initialValue = 1, allocationSize = 1, sequenceName = "SEQ_EMAIL_OUTBOX")
+    @Column(name = "ID")
+    private BigDecimal id;
+    @Column(name = "EMAIL_ID")
+    private String emailId;
+    @Column(name = "EMAIL_TYPE")
+    private String emailType;
+    @Column(name = "PRIORITY")
+    private Integer priority;
+    @Column(name = "STATUS")
+    private String status;
+    @Column(name = "PAYLOAD", columnDefinition = "TEXT")
+    private String payload;
+    @Column(name = "ATTEMPTS")
+    private Integer attempts;
+    @Column(name = "AVAILABLE_AT")
+    private LocalDateTime availableAt;
+    @Column(name = "LOCKED_BY")
+    private String lockedBy;
+    @Column(name = "LOCKED_UNTIL")
+    private LocalDateTime lockedUntil;
+    @Column(name = "REQUEST_ID")
+    private String requestId;
+    @Column(name = "CREATED_DATE")
+    private LocalDateTime createdDate;
+    @Column(name = "LAST_UPDATED_DATE")
+    private LocalDateTime lastUpdatedDate;
+    @Column(name = "ERROR_MESSAGE", columnDefinition = "TEXT")
+    private String errorMessage;
+}
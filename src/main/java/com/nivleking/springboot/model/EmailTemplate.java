@@ -6,6 +6,7 @@ import jakarta.persistence.Table;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @Entity
@@ -15,4 +16,5 @@ public class EmailTemplate {
     private BigDecimal id;
     private String templateId;
     private String template;
+    private LocalDateTime lastUpdatedDate;
 }
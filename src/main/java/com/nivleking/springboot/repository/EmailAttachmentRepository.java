@@ -0,0 +1,119 @@
+package com.nivleking.springboot.repository;
+
+import com.nivleking.springboot.dto.AttachmentDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to EMAIL_ATTACHMENT. The content is a Postgres large object referenced by CONTENT_OID
+ * and is written and read in {@link #CHUNK_BYTES} pieces with {@code LO_PUT}/{@code LO_GET}, so neither
+ * side holds more than one chunk of an attachment in memory (a BYTEA value is always read whole).
+ */
+@Repository
+public class EmailAttachmentRepository {
+    static final int CHUNK_BYTES = 1024 * 1024;
+
+    private static final String INSERT_SQL = "INSERT INTO EMAIL_ATTACHMENT (HASH, FILE_NAME, CONTENT_TYPE, SIZE, CONTENT_OID, CREATED_DATE) " +
+            "VALUES (?, ?, ?, ?, CAST(? AS OID), ?) ON CONFLICT (HASH) DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Optional<AttachmentDTO> findMetadata(String hash) {
+        List<AttachmentDTO> rows = jdbcTemplate.query(
+                "SELECT HASH, FILE_NAME, CONTENT_TYPE, SIZE FROM EMAIL_ATTACHMENT WHERE HASH = ?",
+                (rs, rowNum) -> {
+                    AttachmentDTO attachment = new AttachmentDTO();
+                    attachment.setHash(rs.getString("HASH"));
+                    attachment.setFileName(rs.getString("FILE_NAME"));
+                    attachment.setContentType(rs.getString("CONTENT_TYPE"));
+                    attachment.setSize(rs.getLong("SIZE"));
+                    return attachment;
+                }, hash);
+        return rows.isEmpty() ? Optional.<AttachmentDTO>empty() : Optional.of(rows.get(0));
+    }
+
+    /**
+     * Store the content under its hash. An attachment that already exists is left as it is. The large
+     * object and the row are created in one transaction, so a failed upload leaves nothing behind.
+     *
+     * @return whether a new row was inserted
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public boolean insertIfAbsent(AttachmentDTO attachment, InputStream content) throws IOException {
+        Long oid = jdbcTemplate.queryForObject("SELECT LO_CREATE(0)", Long.class);
+
+        byte[] chunk = new byte[CHUNK_BYTES];
+        long offset = 0;
+        int read;
+        while ((read = readChunk(content, chunk)) > 0) {
+            jdbcTemplate.query("SELECT LO_PUT(CAST(? AS OID), ?, ?)", (ResultSetExtractor<Void>) rs -> null,
+                    oid, offset, read == chunk.length ? chunk : Arrays.copyOf(chunk, read));
+            offset += read;
+        }
+
+        int inserted = jdbcTemplate.update(INSERT_SQL, ps -> {
+            ps.setString(1, attachment.getHash());
+            ps.setString(2, attachment.getFileName());
+            ps.setString(3, attachment.getContentType());
+            ps.setLong(4, attachment.getSize());
+            ps.setLong(5, oid);
+            ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+        });
+        if (inserted == 0) {
+            // Stored concurrently by another request, drop this copy
+            jdbcTemplate.query("SELECT LO_UNLINK(CAST(? AS OID))", (ResultSetExtractor<Void>) rs -> null, oid);
+        }
+        return inserted > 0;
+    }
+
+    /**
+     * Copy the content of the attachment to {@code out}, one chunk at a time.
+     *
+     * @return false when there is no attachment with the hash
+     */
+    public boolean copyContent(String hash, OutputStream out) {
+        List<Long> oids = jdbcTemplate.queryForList("SELECT CONTENT_OID FROM EMAIL_ATTACHMENT WHERE HASH = ?", Long.class, hash);
+        if (oids.isEmpty()) {
+            return false;
+        }
+
+        long offset = 0;
+        byte[] chunk;
+        do {
+            chunk = jdbcTemplate.queryForObject("SELECT LO_GET(CAST(? AS OID), ?, ?)", byte[].class, oids.get(0), offset, CHUNK_BYTES);
+            if (chunk == null) {
+                break;
+            }
+            try {
+                out.write(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            offset += chunk.length;
+        } while (chunk.length == CHUNK_BYTES);
+        return true;
+    }
+
+    private static int readChunk(InputStream in, byte[] chunk) throws IOException {
+        int filled = 0;
+        int read;
+        while (filled < chunk.length && (read = in.read(chunk, filled, chunk.length - filled)) != -1) {
+            filled += read;
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,39 @@
+package com.nivleking.springboot.repository;
+
+import com.nivleking.springboot.model.EmailCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface EmailCampaignRepository extends JpaRepository<EmailCampaign, String> {
+    /**
+     * Register a new PENDING campaign
+     *
+     * @return 0 when a campaign with the id already exists
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO EMAIL_CAMPAIGN (CAMPAIGN_ID, TEMPLATE_NAME, EMAIL_TYPE, STATUS, PROCESSED, SENT, FAILED, " +
+            "REQUEST_ID, CREATED_DATE, LAST_UPDATED_DATE) " +
+            "VALUES (:campaignId, :templateName, :emailType, 'PENDING', 0, 0, 0, :requestId, :now, :now) " +
+            "ON CONFLICT (CAMPAIGN_ID) DO NOTHING", nativeQuery = true)
+    int create(@Param("campaignId") String campaignId, @Param("templateName") String templateName,
+               @Param("emailType") String emailType, @Param("requestId") String requestId,
+               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailCampaign a SET a.status = :status, a.processed = :processed, a.sent = :sent, a.failed = :failed, " +
+            "a.startedDate = :startedDate, a.finishedDate = :finishedDate, a.errorMessage = :errorMessage, " +
+            "a.lastUpdatedDate = :now WHERE a.campaignId = :campaignId")
+    int updateProgress(@Param("campaignId") String campaignId, @Param("status") String status,
+                       @Param("processed") long processed, @Param("sent") long sent, @Param("failed") long failed,
+                       @Param("startedDate") LocalDateTime startedDate, @Param("finishedDate") LocalDateTime finishedDate,
+                       @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+}
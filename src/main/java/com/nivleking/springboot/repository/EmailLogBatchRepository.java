@@ -0,0 +1,152 @@
+package com.nivleking.springboot.repository;
+
+import com.nivleking.springboot.model.EmailLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC batch writes to EMAIL_LOG for bulk sends, one round trip per batch instead of one
+ * stored procedure call per email.
+ */
+@Repository
+public class EmailLogBatchRepository {
+    private static final String INSERT_SQL = "INSERT INTO EMAIL_LOG " +
+            "(ID, EMAIL_ID, EMAIL_TYPE, STATUS, TEMPLATE_ID, NUMBER_OF_RETRIES, JSON_INPUT, REQUEST_ID, CREATED_DATE, LAST_UPDATED_DATE) " +
+            "VALUES (nextval('seq_email_log'), ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_FULL_SQL = "INSERT INTO EMAIL_LOG " +
+            "(ID, EMAIL_ID, EMAIL_TYPE, STATUS, TEMPLATE_ID, NUMBER_OF_RETRIES, JSON_INPUT, REQUEST_ID, CREATED_DATE, LAST_UPDATED_DATE, " +
+            "LAST_SEND, HTTP_CODE, ERROR_CODE, ERROR_MESSAGE, NEXT_RETRY_AT) " +
+            "VALUES (nextval('seq_email_log'), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // A transition owns the status and outcome columns and writes them as given, so a SUCCESS clears the
+    // error and retry of an earlier attempt. Descriptive columns and LAST_SEND keep their value when null.
+    // Only the latest row of the email is updated.
+    private static final String PATCH_SQL = "UPDATE EMAIL_LOG SET " +
+            "STATUS = ?, " +
+            "EMAIL_TYPE = COALESCE(?, EMAIL_TYPE), " +
+            "TEMPLATE_ID = COALESCE(?, TEMPLATE_ID), " +
+            "NUMBER_OF_RETRIES = COALESCE(?, NUMBER_OF_RETRIES), " +
+            "JSON_INPUT = COALESCE(?, JSON_INPUT), " +
+            "REQUEST_ID = COALESCE(?, REQUEST_ID), " +
+            "LAST_SEND = COALESCE(?, LAST_SEND), " +
+            "LAST_UPDATED_DATE = ?, " +
+            "HTTP_CODE = ?, " +
+            "ERROR_CODE = ?, " +
+            "ERROR_MESSAGE = ?, " +
+            "NEXT_RETRY_AT = ? " +
+            "WHERE (ID, CREATED_DATE) = (SELECT ID, CREATED_DATE FROM EMAIL_LOG WHERE EMAIL_ID = ? " +
+            "ORDER BY CREATED_DATE DESC, ID DESC LIMIT 1)";
+
+    // Only the latest row of the email is updated
+    private static final String UPDATE_OUTCOME_SQL = "UPDATE EMAIL_LOG " +
+            "SET STATUS = ?, LAST_SEND = ?, LAST_UPDATED_DATE = ?, HTTP_CODE = ?, ERROR_CODE = ?, ERROR_MESSAGE = ?, NEXT_RETRY_AT = ? " +
+            "WHERE (ID, CREATED_DATE) = (SELECT ID, CREATED_DATE FROM EMAIL_LOG WHERE EMAIL_ID = ? " +
+            "ORDER BY CREATED_DATE DESC, ID DESC LIMIT 1)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<EmailLog> emailLogs) {
+        if (emailLogs.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, emailLogs, emailLogs.size(), (ps, emailLog) -> {
+            ps.setString(1, emailLog.getEmailId());
+            ps.setString(2, emailLog.getEmailType());
+            ps.setString(3, emailLog.getStatus());
+            ps.setString(4, emailLog.getTemplateId());
+            ps.setBigDecimal(5, emailLog.getNumberOfRetries());
+            ps.setString(6, emailLog.getJsonInput());
+            ps.setString(7, emailLog.getRequestId());
+            ps.setTimestamp(8, toTimestamp(emailLog.getCreatedDate()));
+            ps.setTimestamp(9, toTimestamp(emailLog.getLastUpdatedDate()));
+        });
+    }
+
+    /**
+     * Write the delivery outcome (status, last send, error details and next retry) to the latest row of each EMAIL_ID.
+     */
+    public void updateOutcomes(List<EmailLog> emailLogs) {
+        if (emailLogs.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_OUTCOME_SQL, emailLogs, emailLogs.size(), (ps, emailLog) -> {
+            ps.setString(1, emailLog.getStatus());
+            ps.setTimestamp(2, toTimestamp(emailLog.getLastSend()));
+            ps.setTimestamp(3, toTimestamp(emailLog.getLastUpdatedDate()));
+            ps.setString(4, emailLog.getHttpCode());
+            ps.setString(5, emailLog.getErrorCode());
+            ps.setString(6, emailLog.getErrorMessage());
+            ps.setTimestamp(7, toTimestamp(emailLog.getNextRetryAt()));
+            ps.setString(8, emailLog.getEmailId());
+        });
+    }
+
+    /**
+     * Insert complete rows, e.g. for emails that failed before a log entry was created.
+     */
+    public void insertFull(List<EmailLog> emailLogs) {
+        if (emailLogs.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_FULL_SQL, emailLogs, emailLogs.size(), (ps, emailLog) -> {
+            ps.setString(1, emailLog.getEmailId());
+            ps.setString(2, emailLog.getEmailType());
+            ps.setString(3, emailLog.getStatus());
+            ps.setString(4, emailLog.getTemplateId());
+            ps.setBigDecimal(5, emailLog.getNumberOfRetries());
+            ps.setString(6, emailLog.getJsonInput());
+            ps.setString(7, emailLog.getRequestId());
+            ps.setTimestamp(8, toTimestamp(emailLog.getCreatedDate()));
+            ps.setTimestamp(9, toTimestamp(emailLog.getLastUpdatedDate()));
+            ps.setTimestamp(10, toTimestamp(emailLog.getLastSend()));
+            ps.setString(11, emailLog.getHttpCode());
+            ps.setString(12, emailLog.getErrorCode());
+            ps.setString(13, emailLog.getErrorMessage());
+            ps.setTimestamp(14, toTimestamp(emailLog.getNextRetryAt()));
+        });
+    }
+
+    /**
+     * Apply each entry as a status transition to the latest row with its EMAIL_ID. Status, HTTP and error
+     * codes, error message and next retry are written as given, including nulls; the other fields are
+     * only written when not null.
+     *
+     * @return the number of rows updated per entry, in order
+     */
+    public int[] patchByEmailId(List<EmailLog> emailLogs) {
+        if (emailLogs.isEmpty()) {
+            return new int[0];
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(PATCH_SQL, emailLogs, emailLogs.size(), (ps, emailLog) -> {
+            ps.setString(1, emailLog.getStatus());
+            ps.setString(2, emailLog.getEmailType());
+            ps.setString(3, emailLog.getTemplateId());
+            ps.setBigDecimal(4, emailLog.getNumberOfRetries());
+            ps.setString(5, emailLog.getJsonInput());
+            ps.setString(6, emailLog.getRequestId());
+            ps.setTimestamp(7, toTimestamp(emailLog.getLastSend()));
+            ps.setTimestamp(8, toTimestamp(emailLog.getLastUpdatedDate()));
+            ps.setString(9, emailLog.getHttpCode());
+            ps.setString(10, emailLog.getErrorCode());
+            ps.setString(11, emailLog.getErrorMessage());
+            ps.setTimestamp(12, toTimestamp(emailLog.getNextRetryAt()));
+            ps.setString(13, emailLog.getEmailId());
+        });
+        return counts.length == 0 ? new int[0] : counts[0];
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.valueOf(dateTime);
+    }
+}
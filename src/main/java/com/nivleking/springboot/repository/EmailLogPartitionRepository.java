@@ -0,0 +1,53 @@
+package com.nivleking.springboot.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Partition management for EMAIL_LOG, backed by the functions in {@code db/EMAIL_LOG_PARTITION.SQL}.
+ */
+@Repository
+public class EmailLogPartitionRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM PG_CLASS WHERE RELNAME = 'email_log' AND RELKIND = 'p')", Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /**
+     * Take the partition maintenance lock until the current transaction ends, so only one node runs it.
+     */
+    public boolean tryLock() {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT PG_TRY_ADVISORY_XACT_LOCK(HASHTEXT('EMAIL_LOG_PARTITIONS'))", Boolean.class);
+        return Boolean.TRUE.equals(locked);
+    }
+
+    /**
+     * Create the partition for the month of {@code month} if it does not exist yet.
+     *
+     * @return the partition name
+     */
+    public String createPartition(LocalDate month) {
+        return jdbcTemplate.queryForObject("SELECT EMAIL_LOG_CREATE_PARTITION(?)", String.class, Date.valueOf(month));
+    }
+
+    /**
+     * Detach monthly partitions ending on or before {@code before}, dropping them when {@code drop} is set
+     * and otherwise keeping them as EMAIL_LOG_ARCHIVE_PYYYYMM tables.
+     *
+     * @return the number of partitions retired
+     */
+    public int retirePartitions(LocalDate before, boolean drop) {
+        Integer retired = jdbcTemplate.queryForObject("SELECT EMAIL_LOG_RETIRE_PARTITIONS(?, ?)", Integer.class,
+                Date.valueOf(before), drop);
+        return retired == null ? 0 : retired;
+    }
+}
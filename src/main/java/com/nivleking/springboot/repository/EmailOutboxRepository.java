@@ -0,0 +1,63 @@
+package com.nivleking.springboot.repository;
+
+import com.nivleking.springboot.model.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, BigDecimal> {
+    /**
+     * Lock a batch of due rows, skipping rows already locked by other nodes. Rows stuck in
+     * PROCESSING past their lease (e.g. the node died mid-send) become claimable again. Rows are taken
+     * by priority (1 highest, rows without one count as 3), except that rows due since before
+     * {@code agedBefore} come first so low priorities are not starved. Only rows of {@code priorities}
+     * are taken.
+     */
+    @Query(value = "SELECT * FROM EMAIL_OUTBOX " +
+            "WHERE ((STATUS = 'PENDING' AND AVAILABLE_AT <= :now) " +
+            "OR (STATUS = 'PROCESSING' AND LOCKED_UNTIL < :now)) " +
+            "AND COALESCE(PRIORITY, 3) IN (:priorities) " +
+            "ORDER BY CASE WHEN AVAILABLE_AT < :agedBefore THEN 0 ELSE COALESCE(PRIORITY, 3) END, AVAILABLE_AT " +
+            "LIMIT :batchSize " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutbox> lockDueBatch(@Param("now") LocalDateTime now, @Param("agedBefore") LocalDateTime agedBefore,
+                                   @Param("priorities") Collection<Integer> priorities, @Param("batchSize") int batchSize);
+
+    /**
+     * Extend the lease of a row still claimed with {@code lockedBy}
+     *
+     * @return 0 when the claim was lost, e.g. the lease expired and another node claimed the row
+     */
+    @Modifying
+    @Query("UPDATE EmailOutbox a SET a.lockedUntil = :lockedUntil, a.lastUpdatedDate = :now " +
+            "WHERE a.id = :id AND a.lockedBy = :lockedBy AND a.status = 'PROCESSING'")
+    int renewLease(@Param("id") BigDecimal id, @Param("lockedBy") String lockedBy,
+                   @Param("lockedUntil") LocalDateTime lockedUntil, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutbox a WHERE a.id = :id AND a.lockedBy = :lockedBy")
+    int deleteClaimed(@Param("id") BigDecimal id, @Param("lockedBy") String lockedBy);
+
+    /**
+     * Remove FAILED rows last touched before {@code before}, their outcome is kept on EMAIL_LOG
+     */
+    @Modifying
+    @Query("DELETE FROM EmailOutbox a WHERE a.status = 'FAILED' AND a.lastUpdatedDate < :before")
+    int deleteFailedBefore(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox a SET a.status = :status, a.lockedBy = NULL, a.lockedUntil = NULL, " +
+            "a.attempts = :attempts, a.errorMessage = :errorMessage, a.lastUpdatedDate = :now " +
+            "WHERE a.id = :id AND a.lockedBy = :lockedBy")
+    int unlockClaimed(@Param("id") BigDecimal id, @Param("lockedBy") String lockedBy, @Param("status") String status,
+                      @Param("attempts") int attempts, @Param("errorMessage") String errorMessage,
+                      @Param("now") LocalDateTime now);
+}
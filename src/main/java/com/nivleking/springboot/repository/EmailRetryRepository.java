@@ -0,0 +1,90 @@
+package com.nivleking.springboot.repository;
+
+import com.nivleking.springboot.model.EmailLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Claims EMAIL_LOG rows due for a retry. Only rows with NEXT_RETRY_AT set are in EMAIL_LOG_RETRY_IDX,
+ * so a scan costs the number of pending retries, not the size of EMAIL_LOG.
+ */
+@Repository
+public class EmailRetryRepository {
+    // Claimed rows stay PROCESSING until the delivery outcome is logged; NEXT_RETRY_AT doubles as the
+    // lease, so a row whose node died mid-send becomes due again when it expires
+    private static final String CLAIM_SQL = "WITH DUE AS (" +
+            "SELECT ID, CREATED_DATE, STATUS FROM EMAIL_LOG " +
+            "WHERE STATUS IN ('FAILED', 'TIMEOUT', 'PROCESSING') AND NEXT_RETRY_AT <= ? " +
+            "AND COALESCE(NUMBER_OF_RETRIES, 0) < ? " +
+            "ORDER BY NEXT_RETRY_AT LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "UPDATE EMAIL_LOG L SET STATUS = 'PROCESSING', NEXT_RETRY_AT = ?, " +
+            "NUMBER_OF_RETRIES = COALESCE(L.NUMBER_OF_RETRIES, 0) + 1, LAST_UPDATED_DATE = ? " +
+            "FROM DUE WHERE L.ID = DUE.ID AND L.CREATED_DATE = DUE.CREATED_DATE " +
+            "RETURNING L.ID, L.EMAIL_ID, L.JSON_INPUT, L.NUMBER_OF_RETRIES, L.REQUEST_ID, DUE.STATUS";
+
+    // Release and abandon only touch the latest row of the email, like the log writer
+    private static final String RELEASE_SQL = "UPDATE EMAIL_LOG SET STATUS = ?, NEXT_RETRY_AT = ?, " +
+            "NUMBER_OF_RETRIES = NUMBER_OF_RETRIES - 1, LAST_UPDATED_DATE = ? " +
+            "WHERE (ID, CREATED_DATE) = (SELECT ID, CREATED_DATE FROM EMAIL_LOG WHERE EMAIL_ID = ? " +
+            "ORDER BY CREATED_DATE DESC, ID DESC LIMIT 1) AND STATUS = 'PROCESSING'";
+
+    private static final String CLOSE_EXHAUSTED_SQL = "UPDATE EMAIL_LOG SET NEXT_RETRY_AT = NULL, " +
+            "STATUS = CASE WHEN STATUS = 'PROCESSING' THEN 'FAILED' ELSE STATUS END " +
+            "WHERE STATUS IN ('FAILED', 'TIMEOUT', 'PROCESSING') AND NEXT_RETRY_AT <= ? " +
+            "AND COALESCE(NUMBER_OF_RETRIES, 0) >= ?";
+
+    private static final String ABANDON_SQL = "UPDATE EMAIL_LOG SET STATUS = 'FAILED', NEXT_RETRY_AT = NULL, " +
+            "ERROR_CODE = 'RETRY_ERROR', ERROR_MESSAGE = ?, LAST_UPDATED_DATE = ? " +
+            "WHERE (ID, CREATED_DATE) = (SELECT ID, CREATED_DATE FROM EMAIL_LOG WHERE EMAIL_ID = ? " +
+            "ORDER BY CREATED_DATE DESC, ID DESC LIMIT 1)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Claim up to {@code limit} due rows, counting the retry and leasing them until {@code leaseUntil}.
+     *
+     * @return the claimed rows, with {@code status} holding the status before the claim
+     */
+    public List<EmailLog> claimDue(LocalDateTime now, LocalDateTime leaseUntil, int maxRetries, int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> {
+            EmailLog emailLog = new EmailLog();
+            emailLog.setId(rs.getBigDecimal("ID"));
+            emailLog.setEmailId(rs.getString("EMAIL_ID"));
+            emailLog.setJsonInput(rs.getString("JSON_INPUT"));
+            emailLog.setNumberOfRetries(rs.getBigDecimal("NUMBER_OF_RETRIES"));
+            emailLog.setRequestId(rs.getString("REQUEST_ID"));
+            emailLog.setStatus(rs.getString("STATUS"));
+            return emailLog;
+        }, Timestamp.valueOf(now), maxRetries, limit, Timestamp.valueOf(leaseUntil), Timestamp.valueOf(now));
+    }
+
+    /**
+     * Give a claimed row back without counting the retry, e.g. when the delivery executor is full.
+     */
+    public void release(EmailLog claimed, LocalDateTime retryAt) {
+        jdbcTemplate.update(RELEASE_SQL, claimed.getStatus(), Timestamp.valueOf(retryAt),
+                Timestamp.valueOf(LocalDateTime.now()), claimed.getEmailId());
+    }
+
+    /**
+     * Take rows that used up their retries out of the retry index.
+     *
+     * @return the number of rows closed
+     */
+    public int closeExhausted(LocalDateTime now, int maxRetries) {
+        return jdbcTemplate.update(CLOSE_EXHAUSTED_SQL, Timestamp.valueOf(now), maxRetries);
+    }
+
+    /**
+     * Stop retrying an email that cannot be re-driven, e.g. because its input was not stored.
+     */
+    public void abandon(String emailId, String errorMessage) {
+        jdbcTemplate.update(ABANDON_SQL, errorMessage, Timestamp.valueOf(LocalDateTime.now()), emailId);
+    }
+}
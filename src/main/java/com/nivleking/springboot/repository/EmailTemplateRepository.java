@@ -2,12 +2,22 @@ package com.nivleking.springboot.repository;
 
 import com.nivleking.springboot.model.EmailTemplate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface EmailTemplateRepository extends JpaRepository<EmailTemplate, BigDecimal> {
     Optional<EmailTemplate> findByTemplateId(String templateId);
-}
\ No newline at end of file
+
+    @Query("SELECT COUNT(a) AS templateCount, MAX(a.lastUpdatedDate) AS lastUpdatedDate FROM EmailTemplate a")
+    TemplateVersion findTemplateVersion();
+
+    interface TemplateVersion {
+        Long getTemplateCount();
+        LocalDateTime getLastUpdatedDate();
+    }
+}
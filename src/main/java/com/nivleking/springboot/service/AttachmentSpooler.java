@@ -0,0 +1,208 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.exception.AttachmentTooLargeException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.activation.DataHandler;
+import jakarta.activation.FileDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves uploaded attachments to spool files and exposes them to JavaMail as file-backed
+ * {@link jakarta.activation.DataSource}s, so attachment content is streamed from disk while the
+ * message is written to the SMTP connection instead of being held on the heap.
+ * Attachment bytes are limited per email and across all emails in flight on this node.
+ */
+@Service
+@Slf4j
+public class AttachmentSpooler {
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    @Value("${com.nivleking.springboot.email.attachment.spool-dir:}")
+    private String spoolDir;
+
+    @Value("${com.nivleking.springboot.email.attachment.max-request-bytes:26214400}")
+    private long maxRequestBytes;
+
+    @Value("${com.nivleking.springboot.email.attachment.max-in-flight-bytes:268435456}")
+    private long maxInFlightBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Path spoolDirectory;
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicInteger rejectedTooLarge = new AtomicInteger();
+    private final AtomicInteger rejectedBudget = new AtomicInteger();
+
+    /**
+     * Spooled attachments of one email. Closing deletes the spool files and returns their bytes to
+     * the in-flight budget; it is safe to close more than once.
+     */
+    public static class SpooledAttachments implements Closeable {
+        private final AttachmentSpooler spooler;
+        private final long bytes;
+        private final List<MimeBodyPart> bodyParts = new ArrayList<>();
+        private final List<Path> files = new ArrayList<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private SpooledAttachments(AttachmentSpooler spooler, long bytes) {
+            this.spooler = spooler;
+            this.bytes = bytes;
+        }
+
+        public List<MimeBodyPart> getBodyParts() {
+            return Collections.unmodifiableList(bodyParts);
+        }
+
+        public boolean isEmpty() {
+            return bodyParts.isEmpty();
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("[SEND EMAIL] Could not delete attachment spool file {}: {}", file, e.getMessage());
+                }
+            }
+            if (spooler != null) {
+                spooler.inFlightBytes.addAndGet(-bytes);
+            }
+        }
+    }
+
+    /**
+     * File data source reporting the content type declared on upload rather than one guessed from the file name.
+     */
+    static class SpooledFileDataSource extends FileDataSource {
+        private final String contentType;
+        private final String name;
+
+        SpooledFileDataSource(Path file, String contentType, String name) {
+            super(file.toFile());
+            this.contentType = contentType;
+            this.name = name;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (spoolDir != null && !spoolDir.isEmpty()) {
+            spoolDirectory = Files.createDirectories(Paths.get(spoolDir));
+        }
+
+        Gauge.builder("email.attachment.in-flight.bytes", inFlightBytes, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("email.attachment.rejected", rejectedTooLarge, AtomicInteger::get)
+                .tag("reason", "too_large").register(meterRegistry);
+        FunctionCounter.builder("email.attachment.rejected", rejectedBudget, AtomicInteger::get)
+                .tag("reason", "budget").register(meterRegistry);
+    }
+
+    /**
+     * Spool the uploaded files. The caller owns the result and must close it once the email is sent or abandoned.
+     *
+     * @throws AttachmentTooLargeException if the files exceed the per-request budget
+     * @throws TaskRejectedException if the node has no attachment budget left
+     */
+    public SpooledAttachments spool(MultipartFile[] files) throws IOException, MessagingException {
+        if (files == null || files.length == 0) {
+            return new SpooledAttachments(null, 0);
+        }
+
+        long total = 0;
+        for (MultipartFile file : files) {
+            if (file != null && !file.isEmpty()) {
+                total += file.getSize();
+            }
+        }
+        if (total > maxRequestBytes) {
+            rejectedTooLarge.incrementAndGet();
+            throw new AttachmentTooLargeException("Attachments total " + total + " bytes, the limit is " + maxRequestBytes + " bytes");
+        }
+        if (!reserve(total)) {
+            rejectedBudget.incrementAndGet();
+            throw new TaskRejectedException("Attachment budget exhausted, " + inFlightBytes.get() + " bytes in flight");
+        }
+
+        SpooledAttachments spooled = new SpooledAttachments(this, total);
+        try {
+            log.debug("[SEND EMAIL] Spooling {} attachment(s), {} bytes", files.length, total);
+            for (MultipartFile file : files) {
+                if (file == null || file.isEmpty()) {
+                    continue;
+                }
+
+                Path path = spoolDirectory != null
+                        ? Files.createTempFile(spoolDirectory, "attachment-", ".tmp")
+                        : Files.createTempFile("attachment-", ".tmp");
+                spooled.files.add(path);
+                // Moves the container's temp file when the upload is already on disk
+                file.transferTo(path);
+
+                String contentType = file.getContentType() != null ? file.getContentType() : DEFAULT_CONTENT_TYPE;
+                MimeBodyPart attachPart = new MimeBodyPart();
+                attachPart.setDataHandler(new DataHandler(new SpooledFileDataSource(path, contentType, file.getOriginalFilename())));
+                attachPart.setFileName(file.getOriginalFilename());
+                // A fixed encoding spares JavaMail a full pass over the file to pick one
+                attachPart.setHeader("Content-Transfer-Encoding", "base64");
+                spooled.bodyParts.add(attachPart);
+                log.debug("[SEND EMAIL] Added attachment: {}", file.getOriginalFilename());
+            }
+        } catch (IOException | MessagingException | RuntimeException e) {
+            spooled.close();
+            throw e;
+        }
+        return spooled;
+    }
+
+    private boolean reserve(long bytes) {
+        while (true) {
+            long current = inFlightBytes.get();
+            if (current + bytes > maxInFlightBytes) {
+                return false;
+            }
+            if (inFlightBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.dto.AttachmentDTO;
+import com.nivleking.springboot.exception.AttachmentTooLargeException;
+import com.nivleking.springboot.repository.EmailAttachmentRepository;
+import com.nivleking.springboot.utils.BoundedCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.activation.DataHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.PreencodedMimeBodyPart;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attachments stored once in EMAIL_ATTACHMENT under the SHA-256 of their content and referenced
+ * from {@code EmailDTO.attachmentHashes}. Because the store is in the database, any node can
+ * deliver an email that references it. Each node keeps the base64 form of the attachments it
+ * sends in a local cache directory, so a repeated attachment is neither fetched nor encoded again.
+ */
+@Service
+@Slf4j
+public class AttachmentStore {
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int HASH_LENGTH = 64;
+
+    @Value("${com.nivleking.springboot.email.attachment-store.max-file-bytes:26214400}")
+    private long maxFileBytes;
+
+    @Value("${com.nivleking.springboot.email.attachment-store.cache-dir:}")
+    private String cacheDir;
+
+    @Value("${com.nivleking.springboot.email.attachment-store.cache-ttl-millis:86400000}")
+    private long cacheTtlMillis;
+
+    @Value("${com.nivleking.springboot.email.attachment-store.metadata-cache-size:1000}")
+    private int metadataCacheSize;
+
+    @Autowired
+    private EmailAttachmentRepository emailAttachmentRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Path cacheDirectory;
+
+    // Content never changes for a hash, so entries only leave the cache through LRU eviction or TTL
+    private BoundedCache<String, AttachmentDTO> metadata;
+
+    private final AtomicLong encodedHits = new AtomicLong();
+    private final AtomicLong encodedMisses = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        cacheDirectory = cacheDir != null && !cacheDir.isEmpty()
+                ? Files.createDirectories(Paths.get(cacheDir))
+                : Files.createTempDirectory("attachment-cache-");
+        metadata = new BoundedCache<>(metadataCacheSize, cacheTtlMillis);
+
+        FunctionCounter.builder("cache.gets", encodedHits, AtomicLong::get)
+                .tag("cache", "email.attachment.encoded").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", encodedMisses, AtomicLong::get)
+                .tag("cache", "email.attachment.encoded").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Store an uploaded file. Uploading content that is already stored only returns its hash; the
+     * file name and content type of the first upload are kept.
+     *
+     * @throws AttachmentTooLargeException if the file is larger than {@code max-file-bytes}
+     */
+    public AttachmentDTO store(MultipartFile file) throws IOException {
+        if (file.getSize() > maxFileBytes) {
+            throw new AttachmentTooLargeException("Attachment is " + file.getSize() + " bytes, the limit is " + maxFileBytes + " bytes");
+        }
+
+        AttachmentDTO attachment = new AttachmentDTO();
+        attachment.setHash(sha256(file));
+        attachment.setFileName(file.getOriginalFilename());
+        attachment.setContentType(file.getContentType() != null ? file.getContentType() : DEFAULT_CONTENT_TYPE);
+        attachment.setSize(file.getSize());
+
+        Optional<AttachmentDTO> existing = findMetadata(attachment.getHash());
+        if (existing.isPresent()) {
+            log.debug("[SEND EMAIL] Attachment {} is already stored", attachment.getHash());
+            return existing.get();
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            if (emailAttachmentRepository.insertIfAbsent(attachment, in)) {
+                log.info("[SEND EMAIL] Stored attachment {} ({}, {} bytes)", attachment.getHash(), attachment.getFileName(), attachment.getSize());
+            }
+        }
+        return findMetadata(attachment.getHash()).orElse(attachment);
+    }
+
+    public Optional<AttachmentDTO> findMetadata(String hash) {
+        if (!isHash(hash)) {
+            return Optional.empty();
+        }
+
+        AttachmentDTO cached = metadata.get(hash);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // Unknown hashes are not cached, the attachment may be uploaded at any moment
+        Optional<AttachmentDTO> loaded = emailAttachmentRepository.findMetadata(hash);
+        if (loaded.isPresent()) {
+            metadata.put(hash, loaded.get());
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the hashes that do not refer to a stored attachment
+     */
+    public List<String> findMissing(List<String> hashes) {
+        if (hashes == null || hashes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String hash : hashes) {
+            if (!findMetadata(hash).isPresent()) {
+                missing.add(hash);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Body parts for the stored attachments, backed by their pre-encoded base64 files.
+     *
+     * @throws IllegalArgumentException if a hash does not refer to a stored attachment
+     */
+    public List<MimeBodyPart> getBodyParts(List<String> hashes) throws IOException, MessagingException {
+        if (hashes == null || hashes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<MimeBodyPart> parts = new ArrayList<>(hashes.size());
+        for (String hash : hashes) {
+            AttachmentDTO attachment = findMetadata(hash)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown attachment: " + hash));
+
+            MimeBodyPart part = new PreencodedMimeBodyPart("base64");
+            part.setDataHandler(new DataHandler(new AttachmentSpooler.SpooledFileDataSource(
+                    encoded(hash), attachment.getContentType(), attachment.getFileName())));
+            part.setFileName(attachment.getFileName());
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    /**
+     * Delete encoded files that were not used within the cache TTL.
+     */
+    @Scheduled(fixedDelayString = "${com.nivleking.springboot.email.attachment-store.cache-sweep-millis:3600000}")
+    public void sweepEncodedCache() {
+        long cutoff = System.currentTimeMillis() - cacheTtlMillis;
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory, "*.b64")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[SEND EMAIL] Attachment cache sweep failed: {}", e.getMessage());
+        }
+
+        if (deleted > 0) {
+            log.debug("[SEND EMAIL] Removed {} unused encoded attachment(s)", deleted);
+        }
+    }
+
+    /**
+     * Path of the base64 (MIME, 76 character lines) form of the attachment, encoding it on first use.
+     */
+    private Path encoded(String hash) throws IOException {
+        Path path = cacheDirectory.resolve(hash + ".b64");
+        if (Files.exists(path)) {
+            encodedHits.incrementAndGet();
+            // Last use drives the cache sweep
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return path;
+        }
+
+        encodedMisses.incrementAndGet();
+        Path temp = Files.createTempFile(cacheDirectory, hash, ".tmp");
+        try {
+            boolean found;
+            try (OutputStream out = Base64.getMimeEncoder().wrap(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                found = emailAttachmentRepository.copyContent(hash, out);
+            }
+            if (!found) {
+                throw new IllegalArgumentException("Unknown attachment: " + hash);
+            }
+
+            // Concurrent encoders of the same attachment produce identical files, the last move wins
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("[SEND EMAIL] Encoded attachment {}", hash);
+            return path;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean isHash(String hash) {
+        if (hash == null || hash.length() != HASH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            StreamUtils.drain(in);
+        }
+
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,176 @@
+package com.nivleking.springboot.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.dto.CampaignRecipient;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams campaign recipients from an NDJSON or CSV file, one record at a time.
+ * <p>
+ * NDJSON: one {@code {"receiver": ..., "cc": ..., "bcc": ..., "params": {...}}} object per line.
+ * CSV: a header row naming the columns; {@code receiver}, {@code cc} and {@code bcc} map to the
+ * recipient fields and every other column becomes a template parameter. Quoted fields may contain
+ * commas, line breaks and doubled quotes.
+ */
+public class CampaignRecipientReader implements Iterator<CampaignRecipient>, Closeable {
+    private final BufferedReader reader;
+    private final MappingIterator<CampaignRecipient> jsonIterator;
+    private final List<String> csvHeader;
+    private CampaignRecipient next;
+
+    private CampaignRecipientReader(BufferedReader reader, MappingIterator<CampaignRecipient> jsonIterator, List<String> csvHeader) {
+        this.reader = reader;
+        this.jsonIterator = jsonIterator;
+        this.csvHeader = csvHeader;
+    }
+
+    public static CampaignRecipientReader open(Path file, boolean csv, ObjectMapper objectMapper) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            if (csv) {
+                List<String> header = readCsvRecord(reader);
+                if (header == null) {
+                    header = new ArrayList<>();
+                }
+                for (int i = 0; i < header.size(); i++) {
+                    header.set(i, header.get(i).trim().toLowerCase());
+                }
+                return new CampaignRecipientReader(reader, null, header);
+            }
+
+            MappingIterator<CampaignRecipient> iterator = objectMapper.readerFor(CampaignRecipient.class).readValues(reader);
+            return new CampaignRecipientReader(reader, iterator, null);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = jsonIterator != null ? readJson() : readCsv();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public CampaignRecipient next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CampaignRecipient recipient = next;
+        next = null;
+        return recipient;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (jsonIterator != null) {
+            jsonIterator.close();
+        }
+        reader.close();
+    }
+
+    private CampaignRecipient readJson() throws IOException {
+        return jsonIterator.hasNextValue() ? jsonIterator.nextValue() : null;
+    }
+
+    private CampaignRecipient readCsv() throws IOException {
+        List<String> record;
+        do {
+            record = readCsvRecord(reader);
+            if (record == null) {
+                return null;
+            }
+        } while (record.size() == 1 && record.get(0).trim().isEmpty());
+
+        CampaignRecipient recipient = new CampaignRecipient();
+        Map<String, Object> params = new HashMap<>();
+        for (int i = 0; i < csvHeader.size() && i < record.size(); i++) {
+            String column = csvHeader.get(i);
+            String value = record.get(i);
+            if ("receiver".equals(column)) {
+                recipient.setReceiver(value.trim());
+            } else if ("cc".equals(column)) {
+                recipient.setCc(value.trim());
+            } else if ("bcc".equals(column)) {
+                recipient.setBcc(value.trim());
+            } else if (!column.isEmpty()) {
+                params.put(column, value);
+            }
+        }
+        recipient.setParams(params);
+        return recipient;
+    }
+
+    /**
+     * Read one RFC 4180 record, or null at end of input.
+     */
+    static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int peek = reader.read();
+                    if (peek == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (peek != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,20 @@
+package com.nivleking.springboot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.dto.CampaignRequestDTO;
+import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CampaignRequestDtoConverter implements Converter<String, CampaignRequestDTO> {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    @SneakyThrows
+    public CampaignRequestDTO convert(String source) {
+        return objectMapper.readValue(source, CampaignRequestDTO.class);
+    }
+}
@@ -0,0 +1,451 @@
+package com.nivleking.springboot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.constant.EmailStatus;
+import com.nivleking.springboot.dto.CampaignProgressDTO;
+import com.nivleking.springboot.dto.CampaignRecipient;
+import com.nivleking.springboot.dto.CampaignRequestDTO;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.exception.CampaignAlreadyExistsException;
+import com.nivleking.springboot.exception.SmtpUnavailableException;
+import com.nivleking.springboot.model.EmailCampaign;
+import com.nivleking.springboot.model.EmailLog;
+import com.nivleking.springboot.repository.EmailCampaignRepository;
+import com.nivleking.springboot.repository.EmailLogBatchRepository;
+import com.nivleking.springboot.utils.TemplateSkeleton;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk sends of one template to a streamed recipient list. The recipient file is spooled to disk and
+ * read one record at a time; EMAIL_LOG rows are written in JDBC batches and messages go out over the
+ * pooled SMTP connections, paced to {@code rate-per-second}. While the {@link SmtpDeliveryGuard} does not
+ * admit sends the campaign pauses, and an email the guard still refuses is left to the retry worker. Every campaign is registered in
+ * EMAIL_CAMPAIGN on submit, which rejects a campaign id that was used before on any node, and its
+ * progress is written back after every batch so any node can report it.
+ */
+@Service
+@Slf4j
+public class CampaignService {
+    @Value("${com.nivleking.springboot.email.campaign.batch-size:200}")
+    private int batchSize;
+
+    @Value("${com.nivleking.springboot.email.campaign.rate-per-second:20}")
+    private int ratePerSecond;
+
+    @Value("${com.nivleking.springboot.email.campaign.template-skeleton.enabled:true}")
+    private boolean templateSkeletonEnabled;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailUtilities emailUtilities;
+
+    @Autowired
+    private SmtpTransportPool smtpTransportPool;
+
+    @Autowired
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @Autowired
+    private EmailRetryPolicy emailRetryPolicy;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private EmailLogBatchRepository emailLogBatchRepository;
+
+    @Autowired
+    private EmailCampaignRepository emailCampaignRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ThreadPoolTaskExecutor campaignExecutor;
+
+    private static final int MAX_SKELETONS = 16;
+    private static final long RELAY_CHECK_MILLIS = 1000;
+
+    // Campaigns running on this node, with counters newer than their last EMAIL_CAMPAIGN write
+    private final Map<String, CampaignProgress> running = new ConcurrentHashMap<>();
+
+    private static class CampaignProgress {
+        private final String campaignId;
+        private volatile String status = EmailStatus.PENDING;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile LocalDateTime startedDate;
+        private volatile LocalDateTime finishedDate;
+        private volatile String errorMessage;
+
+        private CampaignProgress(String campaignId) {
+            this.campaignId = campaignId;
+        }
+
+        private CampaignProgressDTO toDto() {
+            CampaignProgressDTO dto = new CampaignProgressDTO();
+            dto.setCampaignId(campaignId);
+            dto.setStatus(status);
+            dto.setProcessed(processed.get());
+            dto.setSent(sent.get());
+            dto.setFailed(failed.get());
+            dto.setStartedDate(startedDate == null ? null : startedDate.toString());
+            dto.setFinishedDate(finishedDate == null ? null : finishedDate.toString());
+            dto.setErrorMessage(errorMessage);
+            return dto;
+        }
+    }
+
+    /**
+     * The campaign template, compiled per set of recipient-specific params into a {@link TemplateSkeleton}
+     * so each email only merges its own values instead of rendering the whole template.
+     */
+    private class CampaignTemplate {
+        private final String templateHtml;
+        private final Map<String, Object> sharedParams;
+        // Null values mark param sets the template cannot be compiled for
+        private final Map<List<String>, TemplateSkeleton> skeletons = new HashMap<>();
+
+        private CampaignTemplate(String templateHtml, Map<String, Object> sharedParams) {
+            this.templateHtml = templateHtml;
+            this.sharedParams = sharedParams;
+        }
+
+        private MimeMessage compose(EmailDTO email) throws Exception {
+            String html = templateSkeletonEnabled ? renderSkeleton(email) : null;
+            if (html == null) {
+                return emailService.composeMessage(email, templateHtml, Collections.<MimeBodyPart>emptyList());
+            }
+            return emailService.composeRenderedMessage(email, html, Collections.<MimeBodyPart>emptyList());
+        }
+
+        private String renderSkeleton(EmailDTO email) {
+            Map<String, Object> params = (Map<String, Object>) email.getParams();
+            List<String> variables = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : params.entrySet()) {
+                if (!Objects.equals(entry.getValue(), sharedParams.get(entry.getKey()))) {
+                    variables.add(entry.getKey());
+                }
+            }
+            Collections.sort(variables);
+
+            TemplateSkeleton skeleton = skeletons.get(variables);
+            if (skeleton == null && !skeletons.containsKey(variables) && skeletons.size() < MAX_SKELETONS) {
+                skeleton = emailUtilities.compileTemplate(templateHtml, sharedParams, variables);
+                skeletons.put(variables, skeleton);
+                if (skeleton == null) {
+                    log.info("[CAMPAIGN] Params {} are not plain output in template {}, rendering each email in full",
+                            variables, email.getTemplateName());
+                } else {
+                    log.debug("[CAMPAIGN] Compiled template {} for params {}", email.getTemplateName(), variables);
+                }
+            }
+            return skeleton == null ? null : skeleton.render(params);
+        }
+    }
+
+    /**
+     * Spool the recipient file and queue the campaign.
+     *
+     * @return the campaign id
+     * @throws CampaignAlreadyExistsException if a campaign with the same id was submitted before
+     * @throws TaskRejectedException if too many campaigns are already queued
+     */
+    public String submitCampaign(CampaignRequestDTO request, MultipartFile recipients) throws IOException {
+        if (request.getCampaignId() == null || request.getCampaignId().isEmpty()) {
+            request.setCampaignId(UUID.randomUUID().toString());
+        }
+        String campaignId = request.getCampaignId();
+
+        if (emailCampaignRepository.create(campaignId, request.getTemplateName(), request.getEmailType(),
+                MDC.get("X-B3-TraceId"), LocalDateTime.now()) == 0) {
+            throw new CampaignAlreadyExistsException("Campaign already exists: " + campaignId);
+        }
+        CampaignProgress progress = new CampaignProgress(campaignId);
+        running.put(campaignId, progress);
+
+        boolean csv = isCsv(recipients);
+        Path spooled = null;
+        try {
+            spooled = Files.createTempFile("campaign-", csv ? ".csv" : ".ndjson");
+            recipients.transferTo(spooled);
+            Path file = spooled;
+            campaignExecutor.execute(() -> runCampaign(request, file, csv, progress));
+        } catch (IOException | RuntimeException e) {
+            // Nothing was sent, the id may be submitted again
+            running.remove(campaignId);
+            emailCampaignRepository.deleteById(campaignId);
+            if (spooled != null) {
+                Files.deleteIfExists(spooled);
+            }
+            throw e;
+        }
+
+        log.info("[CAMPAIGN] Campaign {} queued ({} recipients file)", campaignId, csv ? "CSV" : "NDJSON");
+        return campaignId;
+    }
+
+    public Optional<CampaignProgressDTO> getProgress(String campaignId) {
+        CampaignProgress progress = running.get(campaignId);
+        if (progress != null) {
+            return Optional.of(progress.toDto());
+        }
+        return emailCampaignRepository.findById(campaignId).map(CampaignService::toDto);
+    }
+
+    private static CampaignProgressDTO toDto(EmailCampaign campaign) {
+        CampaignProgressDTO dto = new CampaignProgressDTO();
+        dto.setCampaignId(campaign.getCampaignId());
+        dto.setStatus(campaign.getStatus());
+        dto.setProcessed(campaign.getProcessed() == null ? 0 : campaign.getProcessed());
+        dto.setSent(campaign.getSent() == null ? 0 : campaign.getSent());
+        dto.setFailed(campaign.getFailed() == null ? 0 : campaign.getFailed());
+        dto.setStartedDate(campaign.getStartedDate() == null ? null : campaign.getStartedDate().toString());
+        dto.setFinishedDate(campaign.getFinishedDate() == null ? null : campaign.getFinishedDate().toString());
+        dto.setErrorMessage(campaign.getErrorMessage());
+        return dto;
+    }
+
+    /**
+     * Write the counters of a running campaign to EMAIL_CAMPAIGN. A failed write only delays what other
+     * nodes report, the campaign carries on.
+     */
+    private void saveProgress(CampaignProgress progress) {
+        try {
+            emailCampaignRepository.updateProgress(progress.campaignId, progress.status, progress.processed.get(),
+                    progress.sent.get(), progress.failed.get(), progress.startedDate, progress.finishedDate,
+                    progress.errorMessage, LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("[CAMPAIGN] Could not save progress of campaign {}: {}", progress.campaignId, e.getMessage());
+        }
+    }
+
+    private void runCampaign(CampaignRequestDTO request, Path spooled, boolean csv, CampaignProgress progress) {
+        progress.status = EmailStatus.PROCESSING;
+        progress.startedDate = LocalDateTime.now();
+        saveProgress(progress);
+        log.info("[CAMPAIGN] Starting campaign {}", progress.campaignId);
+
+        try (CampaignRecipientReader reader = CampaignRecipientReader.open(spooled, csv, objectMapper)) {
+            String templateHtml = emailService.getEmailTemplate(request.getTemplateName());
+            Map<String, Object> sharedParams = toParams(request.getParams());
+            CampaignTemplate template = new CampaignTemplate(templateHtml, sharedParams);
+            long intervalNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / ratePerSecond : 0;
+            long nextSendAt = System.nanoTime();
+
+            List<EmailDTO> batch = new ArrayList<>(batchSize);
+            long index = 0;
+            while (reader.hasNext()) {
+                batch.add(toEmail(request, sharedParams, reader.next(), ++index));
+                if (batch.size() >= batchSize) {
+                    nextSendAt = sendBatch(batch, template, progress, intervalNanos, nextSendAt);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                sendBatch(batch, template, progress, intervalNanos, nextSendAt);
+            }
+
+            progress.status = EmailStatus.SUCCESS;
+            log.info("[CAMPAIGN] Campaign {} finished: {} sent, {} failed",
+                    progress.campaignId, progress.sent.get(), progress.failed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.status = EmailStatus.FAILED;
+            progress.errorMessage = "Interrupted";
+        } catch (Exception e) {
+            log.error("[CAMPAIGN] Campaign {} aborted: {}", progress.campaignId, e.getMessage(), e);
+            progress.status = EmailStatus.FAILED;
+            progress.errorMessage = emailUtilities.truncateErrorMessage(e.getMessage());
+        } finally {
+            progress.finishedDate = LocalDateTime.now();
+            saveProgress(progress);
+            running.remove(progress.campaignId);
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                log.warn("[CAMPAIGN] Could not delete spooled recipients {}: {}", spooled, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Insert PENDING logs for the batch, send each email over one SMTP connection, then write all
+     * outcomes in one batch. When the rate limit makes the next send wait, the connection goes back to
+     * the pool for the wait.
+     *
+     * @return the earliest time the next email may be sent
+     */
+    private long sendBatch(List<EmailDTO> batch, CampaignTemplate template, CampaignProgress progress,
+                           long intervalNanos, long nextSendAt) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailLog> pending = new ArrayList<>(batch.size());
+        for (EmailDTO email : batch) {
+            pending.add(newLog(email, now));
+        }
+        emailLogBatchRepository.insertAll(pending);
+
+        List<EmailLog> outcomes = new ArrayList<>(batch.size());
+        // Campaign emails share the sender and relay, send the batch over one SMTP connection
+        try (SmtpTransportPool.Batch smtpBatch = smtpTransportPool.openBatch()) {
+            for (int i = 0; i < batch.size(); i++) {
+                EmailDTO email = batch.get(i);
+                EmailLog outcome = pending.get(i);
+
+                List<String> errors = emailService.validateEmails(email);
+                if (!errors.isEmpty()) {
+                    markFailed(outcome, EmailStatus.FAILED, "400", "VALIDATION_ERROR", String.join(", ", errors));
+                    progress.failed.incrementAndGet();
+                } else {
+                    awaitRelay(smtpBatch, progress);
+                    if (intervalNanos > 0) {
+                        long waitNanos = nextSendAt - System.nanoTime();
+                        if (waitNanos > 0) {
+                            // Don't hold a pooled connection and its permit while pacing
+                            smtpBatch.returnConnection();
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        }
+                        nextSendAt = Math.max(nextSendAt, System.nanoTime() - intervalNanos) + intervalNanos;
+                    }
+
+                    try {
+                        MimeMessage message = template.compose(email);
+                        pipelineMetrics.email(PipelineMetrics.SMTP_SEND, email, () -> {
+                            smtpBatch.send(message);
+                            return null;
+                        });
+                        LocalDateTime sentAt = LocalDateTime.now();
+                        outcome.setStatus(EmailStatus.SUCCESS);
+                        outcome.setLastSend(sentAt);
+                        outcome.setLastUpdatedDate(sentAt);
+                        progress.sent.incrementAndGet();
+                    } catch (SmtpUnavailableException e) {
+                        // Nothing was sent, the retry worker delivers it from the logged input
+                        LocalDateTime retryAt = emailRetryPolicy.nextRetryAt(BigDecimal.ZERO, LocalDateTime.now());
+                        log.warn("[CAMPAIGN] SMTP relay refused {}, retrying at {}: {}", email.getEmailId(), retryAt, e.getMessage());
+                        markFailed(outcome, EmailStatus.FAILED, "503", "SMTP_UNAVAILABLE", e.getMessage());
+                        outcome.setNextRetryAt(retryAt);
+                        progress.failed.incrementAndGet();
+                    } catch (Exception e) {
+                        log.warn("[CAMPAIGN] Failed to send {} to {}: {}", email.getEmailId(), email.getReceiver(), e.getMessage());
+                        String status = emailUtilities.checkTimeout(e) ? EmailStatus.TIMEOUT : EmailStatus.FAILED;
+                        markFailed(outcome, status, "500", "EMAIL_SEND_ERROR", e.getMessage());
+                        progress.failed.incrementAndGet();
+                    }
+                }
+
+                outcomes.add(outcome);
+                progress.processed.incrementAndGet();
+            }
+        }
+
+        emailLogBatchRepository.updateOutcomes(outcomes);
+        saveProgress(progress);
+        return nextSendAt;
+    }
+
+    /**
+     * Wait while the SMTP relay is not taking sends, without holding a pooled connection.
+     */
+    private void awaitRelay(SmtpTransportPool.Batch smtpBatch, CampaignProgress progress) throws InterruptedException {
+        if (smtpDeliveryGuard.isAvailable()) {
+            return;
+        }
+
+        smtpBatch.returnConnection();
+        log.warn("[CAMPAIGN] SMTP relay unavailable, pausing campaign {}", progress.campaignId);
+        long pausedAt = System.currentTimeMillis();
+        while (!smtpDeliveryGuard.isAvailable()) {
+            TimeUnit.MILLISECONDS.sleep(RELAY_CHECK_MILLIS);
+        }
+        log.info("[CAMPAIGN] SMTP relay available again, resuming campaign {} after {} ms",
+                progress.campaignId, System.currentTimeMillis() - pausedAt);
+    }
+
+    private EmailDTO toEmail(CampaignRequestDTO request, Map<String, Object> sharedParams, CampaignRecipient recipient, long index) {
+        Map<String, Object> params = new HashMap<>(sharedParams);
+        if (recipient.getParams() != null) {
+            params.putAll(recipient.getParams());
+        }
+
+        EmailDTO email = new EmailDTO();
+        email.setEmailId(request.getCampaignId() + "-" + index);
+        email.setEmailType(request.getEmailType());
+        email.setPriority(request.getPriority());
+        email.setSender(request.getSender());
+        email.setSubject(request.getSubject());
+        email.setTemplateName(request.getTemplateName());
+        email.setReceiver(recipient.getReceiver());
+        email.setCc(recipient.getCc());
+        email.setBcc(recipient.getBcc());
+        email.setParams(params);
+        return email;
+    }
+
+    private EmailLog newLog(EmailDTO email, LocalDateTime now) throws Exception {
+        EmailLog emailLog = new EmailLog();
+        emailLog.setEmailId(email.getEmailId());
+        emailLog.setEmailType(email.getEmailType());
+        emailLog.setStatus(EmailStatus.PENDING);
+        emailLog.setTemplateId(email.getTemplateName());
+        emailLog.setNumberOfRetries(BigDecimal.ZERO);
+        emailLog.setJsonInput(objectMapper.writeValueAsString(email));
+        emailLog.setRequestId(MDC.get("X-B3-TraceId"));
+        emailLog.setCreatedDate(now);
+        emailLog.setLastUpdatedDate(now);
+        return emailLog;
+    }
+
+    private void markFailed(EmailLog emailLog, String status, String httpCode, String errorCode, String errorMessage) {
+        LocalDateTime now = LocalDateTime.now();
+        emailLog.setStatus(status);
+        emailLog.setLastSend(now);
+        emailLog.setLastUpdatedDate(now);
+        emailLog.setHttpCode(httpCode);
+        emailLog.setErrorCode(errorCode);
+        emailLog.setErrorMessage(emailUtilities.truncateErrorMessage(errorMessage));
+    }
+
+    private Map<String, Object> toParams(Object params) {
+        if (params == null) {
+            return new HashMap<>();
+        }
+        return objectMapper.convertValue(params, HashMap.class);
+    }
+
+    private static boolean isCsv(MultipartFile recipients) {
+        String fileName = recipients.getOriginalFilename();
+        String contentType = recipients.getContentType();
+        return (fileName != null && fileName.toLowerCase().endsWith(".csv"))
+                || (contentType != null && contentType.startsWith("text/csv"));
+    }
+}
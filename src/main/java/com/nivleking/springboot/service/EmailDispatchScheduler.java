@@ -0,0 +1,352 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.utils.MdcTaskDecorator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Worker pool for asynchronous email delivery that orders queued emails by {@code EmailDTO.priority}
+ * (1 highest to 5 lowest, missing or invalid is 3) instead of arrival order.
+ * <ul>
+ *   <li>Every priority level has its own queue. Workers pick the next level by smooth weighted round
+ *   robin over {@code priority-weights}, so with the defaults an OTP goes ahead of sixteen bulk emails
+ *   but bulk emails still move while OTPs keep arriving.</li>
+ *   <li>A level may occupy at most its {@code priority-shares} fraction of the workers, and with them of
+ *   the SMTP connections, so a backlog of low priority emails cannot take every connection.</li>
+ *   <li>Starvation protection: an email that waited longer than {@code max-wait-millis} is picked
+ *   next regardless of its weight, oldest first.</li>
+ * </ul>
+ * Every level queues up to {@code queue-capacity} emails of its own, so a backlog of bulk emails cannot
+ * fill the queue and get OTPs rejected; a full level rejects new work.
+ */
+@Service
+@Slf4j
+public class EmailDispatchScheduler {
+    public static final int HIGHEST_PRIORITY = 1;
+    public static final int LOWEST_PRIORITY = 5;
+    public static final int DEFAULT_PRIORITY = 3;
+
+    private static final int LEVELS = LOWEST_PRIORITY - HIGHEST_PRIORITY + 1;
+
+    @Value("${com.nivleking.springboot.email.delivery.max-pool-size:8}")
+    private int workers;
+
+    @Value("${com.nivleking.springboot.email.delivery.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${com.nivleking.springboot.email.delivery.priority-weights:16,8,4,2,1}")
+    private int[] priorityWeights;
+
+    @Value("${com.nivleking.springboot.email.delivery.priority-shares:1.0,1.0,0.75,0.5,0.25}")
+    private double[] priorityShares;
+
+    @Value("${com.nivleking.springboot.email.delivery.max-wait-millis:30000}")
+    private long maxWaitMillis;
+
+    @Value("${com.nivleking.springboot.email.delivery.await-termination-seconds:30}")
+    private long awaitTerminationSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final TaskDecorator taskDecorator = new MdcTaskDecorator();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // Guarded by lock, indexed by priority - 1
+    private final List<ArrayDeque<QueuedTask>> queues = new ArrayList<>(LEVELS);
+    private final int[] active = new int[LEVELS];
+    private final int[] maxActive = new int[LEVELS];
+    private final long[] credits = new long[LEVELS];
+    private int queued;
+    private boolean running;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final Timer[] waitTimers = new Timer[LEVELS];
+    private final AtomicLong[] rejected = new AtomicLong[LEVELS];
+    private final AtomicLong[] promoted = new AtomicLong[LEVELS];
+
+    private static class QueuedTask {
+        private final int level;
+        private final Runnable runnable;
+        private final long enqueuedNanos = System.nanoTime();
+
+        private QueuedTask(int level, Runnable runnable) {
+            this.level = level;
+            this.runnable = runnable;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (priorityWeights.length != LEVELS || priorityShares.length != LEVELS) {
+            throw new IllegalStateException("Email delivery priority weights and shares need " + LEVELS + " values each");
+        }
+
+        for (int i = 0; i < LEVELS; i++) {
+            String priority = String.valueOf(i + HIGHEST_PRIORITY);
+            queues.add(new ArrayDeque<>());
+            maxActive[i] = Math.max(1, (int) Math.round(priorityShares[i] * workers));
+            rejected[i] = new AtomicLong();
+            promoted[i] = new AtomicLong();
+
+            int level = i;
+            Gauge.builder("email.dispatch.queue.depth", this, s -> s.getQueued(level + HIGHEST_PRIORITY))
+                    .tag("priority", priority).register(meterRegistry);
+            Gauge.builder("email.dispatch.active", this, s -> s.getActive(level + HIGHEST_PRIORITY))
+                    .tag("priority", priority).register(meterRegistry);
+            waitTimers[i] = Timer.builder("email.dispatch.wait")
+                    .description("Time emails waited in the delivery queue")
+                    .tag("priority", priority)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            FunctionCounter.builder("email.dispatch.rejected", rejected[i], AtomicLong::get)
+                    .tag("priority", priority).register(meterRegistry);
+            FunctionCounter.builder("email.dispatch.promoted", promoted[i], AtomicLong::get)
+                    .tag("priority", priority).register(meterRegistry);
+        }
+
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::runWorker, "email-delivery-" + (i + 1));
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * The priority level of an {@code EmailDTO.priority} value
+     */
+    public static int level(String priority) {
+        if (priority == null || priority.trim().isEmpty()) {
+            return DEFAULT_PRIORITY;
+        }
+        try {
+            int level = Integer.parseInt(priority.trim());
+            return level < HIGHEST_PRIORITY || level > LOWEST_PRIORITY ? DEFAULT_PRIORITY : level;
+        } catch (NumberFormatException e) {
+            return DEFAULT_PRIORITY;
+        }
+    }
+
+    /**
+     * Queue a delivery with the caller's MDC and span.
+     *
+     * @param priority the {@code EmailDTO.priority} of the email
+     * @throws TaskRejectedException if the queue is full or the scheduler is shutting down
+     */
+    public void execute(String priority, Runnable task) throws TaskRejectedException {
+        execute(level(priority), task);
+    }
+
+    /**
+     * Queue a delivery with the caller's MDC and span.
+     *
+     * @param level the priority level, see {@link #level(String)}
+     * @throws TaskRejectedException if the queue is full or the scheduler is shutting down
+     */
+    public void execute(int level, Runnable task) throws TaskRejectedException {
+        if (level < HIGHEST_PRIORITY || level > LOWEST_PRIORITY) {
+            level = DEFAULT_PRIORITY;
+        }
+        QueuedTask queuedTask = new QueuedTask(level, taskDecorator.decorate(task));
+
+        lock.lock();
+        try {
+            ArrayDeque<QueuedTask> queue = queues.get(level - HIGHEST_PRIORITY);
+            if (!running || queue.size() >= queueCapacity) {
+                rejected[level - HIGHEST_PRIORITY].incrementAndGet();
+                throw new TaskRejectedException(running
+                        ? "Email delivery queue for priority " + level + " is full (" + queueCapacity + ")"
+                        : "Email delivery is shutting down");
+            }
+            queue.addLast(queuedTask);
+            queued++;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How many more emails can be queued right now over all priorities, for pollers that should not
+     * claim more than that.
+     */
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            int remaining = 0;
+            for (int priority = HIGHEST_PRIORITY; priority <= LOWEST_PRIORITY; priority++) {
+                remaining += remainingCapacity(priority);
+            }
+            return remaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How many more emails of the priority can be queued right now
+     */
+    public int remainingCapacity(int priority) {
+        lock.lock();
+        try {
+            return running ? Math.max(0, queueCapacity - queues.get(priority - HIGHEST_PRIORITY).size()) : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued(int priority) {
+        lock.lock();
+        try {
+            return queues.get(priority - HIGHEST_PRIORITY).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActive(int priority) {
+        lock.lock();
+        try {
+            return active[priority - HIGHEST_PRIORITY];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop taking new work and let the workers finish what is queued, before the beans the deliveries
+     * use are destroyed.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() throws InterruptedException {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(awaitTerminationSeconds);
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+
+        int remaining = remainingQueued();
+        if (remaining > 0) {
+            log.warn("[SEND EMAIL] Delivery scheduler stopped with {} email(s) still queued", remaining);
+        }
+    }
+
+    private int remainingQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            QueuedTask task;
+            lock.lock();
+            try {
+                while ((task = next()) == null) {
+                    if (!running && queued == 0) {
+                        return;
+                    }
+                    changed.await();
+                }
+                active[task.level - HIGHEST_PRIORITY]++;
+                queued--;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            waitTimers[task.level - HIGHEST_PRIORITY].record(System.nanoTime() - task.enqueuedNanos, TimeUnit.NANOSECONDS);
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                log.error("[SEND EMAIL] Delivery task failed: {}", e.getMessage(), e);
+            } finally {
+                lock.lock();
+                try {
+                    active[task.level - HIGHEST_PRIORITY]--;
+                    // A level that was at its share may have work waiting
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * The next task to run, or null when every non-empty level is at its share. Caller holds the lock.
+     */
+    private QueuedTask next() {
+        long now = System.nanoTime();
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        int oldest = -1;
+        int totalWeight = 0;
+        int best = -1;
+
+        for (int i = 0; i < LEVELS; i++) {
+            QueuedTask head = queues.get(i).peekFirst();
+            if (head == null || active[i] >= maxActive[i]) {
+                continue;
+            }
+            if (now - head.enqueuedNanos >= maxWaitNanos
+                    && (oldest < 0 || head.enqueuedNanos < queues.get(oldest).peekFirst().enqueuedNanos)) {
+                oldest = i;
+            }
+            credits[i] += priorityWeights[i];
+            totalWeight += priorityWeights[i];
+            if (best < 0 || credits[i] > credits[best]) {
+                best = i;
+            }
+        }
+
+        if (oldest >= 0) {
+            // Starvation protection, the level that waited too long takes the turn of the weighted pick
+            credits[oldest] -= totalWeight;
+            if (oldest != best) {
+                promoted[oldest].incrementAndGet();
+            }
+            return queues.get(oldest).pollFirst();
+        }
+        if (best < 0) {
+            return null;
+        }
+        credits[best] -= totalWeight;
+        return queues.get(best).pollFirst();
+    }
+}
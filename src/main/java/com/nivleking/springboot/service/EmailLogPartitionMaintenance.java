@@ -0,0 +1,83 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.repository.EmailLogPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the monthly EMAIL_LOG partitions ahead of time and retires the ones past retention.
+ * Creating partitions in advance keeps rows out of the default partition, and retiring a month
+ * is a detach instead of a large DELETE. Does nothing while EMAIL_LOG is not partitioned yet.
+ */
+@Component
+@Slf4j
+public class EmailLogPartitionMaintenance {
+    @Value("${com.nivleking.springboot.email.log-partition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${com.nivleking.springboot.email.log-partition.months-ahead:2}")
+    private int monthsAhead;
+
+    @Value("${com.nivleking.springboot.email.log-partition.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${com.nivleking.springboot.email.log-partition.drop-expired:false}")
+    private boolean dropExpired;
+
+    @Autowired
+    private EmailLogPartitionRepository emailLogPartitionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${com.nivleking.springboot.email.log-partition.cron:0 15 0 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+
+        // The transaction holds the advisory lock; a failure rolls it back before it is logged here
+        try {
+            transactionTemplate.executeWithoutResult(status -> maintain(LocalDate.now()));
+        } catch (Exception e) {
+            log.error("[EMAIL LOG] Partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create partitions from the month of {@code today} through {@code months-ahead} months later,
+     * then retire the ones older than {@code retention-months}.
+     */
+    public void maintain(LocalDate today) {
+        if (!emailLogPartitionRepository.tryLock()) {
+            log.debug("[EMAIL LOG] Partition maintenance is running on another node");
+            return;
+        }
+        if (!emailLogPartitionRepository.isPartitioned()) {
+            log.debug("[EMAIL LOG] EMAIL_LOG is not partitioned, skipping partition maintenance");
+            return;
+        }
+
+        LocalDate month = today.withDayOfMonth(1);
+        for (int i = 0; i <= monthsAhead; i++) {
+            emailLogPartitionRepository.createPartition(month.plusMonths(i));
+        }
+
+        if (retentionMonths > 0) {
+            int retired = emailLogPartitionRepository.retirePartitions(month.minusMonths(retentionMonths), dropExpired);
+            if (retired > 0) {
+                log.info("[EMAIL LOG] {} {} partition(s) older than {} month(s)", dropExpired ? "Dropped" : "Archived",
+                        retired, retentionMonths);
+            }
+        }
+    }
+}
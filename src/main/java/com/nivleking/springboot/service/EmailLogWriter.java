@@ -0,0 +1,391 @@
+package com.nivleking.springboot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.model.EmailLog;
+import com.nivleking.springboot.repository.EmailLogBatchRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind EMAIL_LOG writer. Status transitions are queued and applied by a background thread
+ * as JDBC batch updates to the latest row of each EMAIL_ID; several transitions of the same email within
+ * a batch are merged into one. Emails without a log row yet are inserted. When the queue stays full the
+ * caller writes the oldest queued batch to make room and queues its own transition behind it, so
+ * transitions of an email are always applied in order. A failed batch is written again row by row, rows
+ * that still fail are retried with back-off ahead of anything queued after them. The queue is drained on
+ * shutdown.
+ */
+@Service
+@Slf4j
+public class EmailLogWriter {
+    @Value("${com.nivleking.springboot.email.log-writer.capacity:10000}")
+    private int capacity;
+
+    @Value("${com.nivleking.springboot.email.log-writer.batch-size:200}")
+    private int batchSize;
+
+    @Value("${com.nivleking.springboot.email.log-writer.offer-timeout-millis:50}")
+    private long offerTimeoutMillis;
+
+    @Value("${com.nivleking.springboot.email.log-writer.retry-backoff-millis:1000}")
+    private long retryBackoffMillis;
+
+    @Value("${com.nivleking.springboot.email.log-writer.max-attempts:10}")
+    private int maxAttempts;
+
+    @Autowired
+    private EmailLogBatchRepository emailLogBatchRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<PendingLog> queue;
+    // Held from taking transitions off the queue until they are written, which keeps writes in queue order
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    // Transitions whose write failed, oldest first, guarded by writeLock. Written before anything queued
+    private final List<PendingLog> retries = new ArrayList<>();
+    private long retryAt;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong synchronousWrites = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * A queued transition: {@code emailLog} plus the DTO serialized into JSON_INPUT at flush time.
+     */
+    private static class PendingLog {
+        private final EmailLog emailLog;
+        private EmailDTO dto;
+        private int attempts;
+
+        private PendingLog(EmailLog emailLog, EmailDTO dto) {
+            this.emailLog = emailLog;
+            this.dto = dto;
+        }
+
+        private void merge(PendingLog later) {
+            EmailLog source = later.emailLog;
+            // The later transition owns the status and outcome
+            emailLog.setStatus(source.getStatus());
+            emailLog.setLastUpdatedDate(source.getLastUpdatedDate());
+            emailLog.setHttpCode(source.getHttpCode());
+            emailLog.setErrorCode(source.getErrorCode());
+            emailLog.setErrorMessage(source.getErrorMessage());
+            emailLog.setNextRetryAt(source.getNextRetryAt());
+            if (source.getEmailType() != null) {
+                emailLog.setEmailType(source.getEmailType());
+            }
+            if (source.getTemplateId() != null) {
+                emailLog.setTemplateId(source.getTemplateId());
+            }
+            if (source.getNumberOfRetries() != null) {
+                emailLog.setNumberOfRetries(source.getNumberOfRetries());
+            }
+            if (source.getRequestId() != null) {
+                emailLog.setRequestId(source.getRequestId());
+            }
+            if (source.getCreatedDate() != null && emailLog.getCreatedDate() == null) {
+                emailLog.setCreatedDate(source.getCreatedDate());
+            }
+            if (source.getLastSend() != null) {
+                emailLog.setLastSend(source.getLastSend());
+            }
+            if (later.dto != null) {
+                dto = later.dto;
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(capacity);
+        running = true;
+        flusher = new Thread(this::runFlusher, "email-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        Gauge.builder("email.log.writer.queue", this, w -> w.queue.size()).register(meterRegistry);
+        FunctionCounter.builder("email.log.writer.written", written, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("email.log.writer.batches", batches, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("email.log.writer.synchronous", synchronousWrites, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("email.log.writer.failures", failures, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("email.log.writer.dropped", dropped, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Queue a status transition for {@code emailLog.getEmailId()}. Status, HTTP and error codes, error
+     * message and next retry are written as given, null clears them; other null fields leave the stored
+     * values unchanged.
+     *
+     * @param dto serialized into JSON_INPUT, may be null
+     */
+    public void write(EmailLog emailLog, EmailDTO dto) {
+        PendingLog pending = new PendingLog(emailLog, dto);
+        try {
+            if (running && queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronousWrites.incrementAndGet();
+        writeLock.lock();
+        try {
+            if (!running) {
+                // Nothing flushes the queue any more, write this transition behind whatever is left
+                List<PendingLog> left = new ArrayList<>(queue.size() + 1);
+                queue.drainTo(left);
+                left.add(pending);
+                addRetries(left, false);
+                flush();
+                return;
+            }
+
+            // Older transitions of the same email may still be queued, make room one batch at a time and
+            // queue this one behind them
+            List<PendingLog> batch = new ArrayList<>(batchSize);
+            do {
+                if (retries.isEmpty()) {
+                    nextBatch(batch);
+                    writeBatch(batch);
+                } else {
+                    // A failed write is backing off, park the oldest queued transitions behind it
+                    queue.drainTo(batch, batchSize);
+                    addRetries(batch, false);
+                }
+                batch.clear();
+            } while (!queue.offer(pending));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write everything queued so far on the calling thread, including failed transitions regardless of
+     * their back-off. Stops at the first batch that still fails.
+     */
+    public void flush() {
+        List<PendingLog> batch = new ArrayList<>(batchSize);
+        writeLock.lock();
+        try {
+            nextBatch(batch);
+            while (!batch.isEmpty()) {
+                if (!writeBatch(batch)) {
+                    log.warn("[EMAIL LOG] Flush stopped, {} transition(s) left to retry", retries.size() + queue.size());
+                    return;
+                }
+                batch.clear();
+                nextBatch(batch);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            // The flusher notices within one poll timeout, let it finish the batch it is writing
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        flush();
+        int left = retries.size() + queue.size();
+        if (left > 0) {
+            log.error("[EMAIL LOG] Log writer stopped with {} transition(s) not written", left);
+        }
+        log.info("[EMAIL LOG] Log writer stopped after {} write(s)", written.get());
+    }
+
+    private void runFlusher() {
+        List<PendingLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            long backoffMillis = 0;
+            try {
+                writeLock.lockInterruptibly();
+                try {
+                    if (!retries.isEmpty()) {
+                        backoffMillis = TimeUnit.NANOSECONDS.toMillis(retryAt - System.nanoTime());
+                        if (backoffMillis <= 0) {
+                            nextBatch(batch);
+                            writeBatch(batch);
+                        }
+                    } else {
+                        // Wait while holding the lock, so no writer can overtake a transition taken off the queue
+                        PendingLog first = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        batch.add(first);
+                        queue.drainTo(batch, batchSize - 1);
+                        writeBatch(batch);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+                if (backoffMillis > 0) {
+                    Thread.sleep(Math.min(backoffMillis, 100));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("[EMAIL LOG] Log writer error: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Take up to one batch, failed transitions first since they are older than anything queued. Caller
+     * holds writeLock.
+     */
+    private void nextBatch(List<PendingLog> batch) {
+        List<PendingLog> head = retries.subList(0, Math.min(batchSize, retries.size()));
+        batch.addAll(head);
+        head.clear();
+        if (retries.isEmpty()) {
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    /**
+     * @param failed true when the transitions come from a failed write; they are older than the retries
+     *               left and go first
+     */
+    private void addRetries(List<PendingLog> pending, boolean failed) {
+        if (failed) {
+            retries.addAll(0, pending);
+            retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis);
+        } else {
+            retries.addAll(pending);
+        }
+
+        int overflow = retries.size() - capacity;
+        if (overflow > 0) {
+            List<PendingLog> oldest = retries.subList(0, overflow);
+            dropped.addAndGet(overflow);
+            log.error("[EMAIL LOG] Retry backlog full, dropping {} transition(s), oldest {} ({})", overflow,
+                    oldest.get(0).emailLog.getEmailId(), oldest.get(0).emailLog.getStatus());
+            oldest.clear();
+        }
+    }
+
+    /**
+     * Write the batch, or row by row when the batch fails. Rows that still fail are kept for a retry.
+     * Caller holds writeLock.
+     *
+     * @return false if any row was not written
+     */
+    private boolean writeBatch(List<PendingLog> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        Map<String, PendingLog> merged = new LinkedHashMap<>();
+        for (PendingLog pending : batch) {
+            PendingLog existing = merged.get(pending.emailLog.getEmailId());
+            if (existing == null) {
+                merged.put(pending.emailLog.getEmailId(), pending);
+            } else {
+                existing.merge(pending);
+            }
+        }
+
+        List<EmailLog> emailLogs = new ArrayList<>(merged.size());
+        for (PendingLog pending : merged.values()) {
+            if (pending.dto != null) {
+                try {
+                    pending.emailLog.setJsonInput(objectMapper.writeValueAsString(pending.dto));
+                    pending.dto = null;
+                } catch (Exception e) {
+                    log.warn("[EMAIL LOG] Could not serialize input of {}: {}", pending.emailLog.getEmailId(), e.getMessage());
+                }
+            }
+            emailLogs.add(pending.emailLog);
+        }
+
+        if (emailLogs.size() > 1) {
+            try {
+                apply(emailLogs);
+                written.addAndGet(emailLogs.size());
+                batches.incrementAndGet();
+                log.debug("[EMAIL LOG] Wrote {} log(s) from {} transition(s)", emailLogs.size(), batch.size());
+                return true;
+            } catch (Exception e) {
+                log.warn("[EMAIL LOG] Failed to write {} log(s), writing them one by one: {}", emailLogs.size(), e.getMessage());
+            }
+        }
+
+        List<PendingLog> failed = new ArrayList<>();
+        for (PendingLog pending : merged.values()) {
+            try {
+                apply(Collections.singletonList(pending.emailLog));
+                written.incrementAndGet();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                if (++pending.attempts >= maxAttempts) {
+                    dropped.incrementAndGet();
+                    log.error("[EMAIL LOG] Giving up on {} ({}) after {} attempt(s): {}", pending.emailLog.getEmailId(),
+                            pending.emailLog.getStatus(), pending.attempts, e.getMessage(), e);
+                } else {
+                    failed.add(pending);
+                }
+            }
+        }
+        if (failed.isEmpty()) {
+            return true;
+        }
+        log.error("[EMAIL LOG] {} log(s) not written, retrying in {} ms", failed.size(), retryBackoffMillis);
+        addRetries(failed, true);
+        return false;
+    }
+
+    private void apply(List<EmailLog> emailLogs) {
+        int[] counts = emailLogBatchRepository.patchByEmailId(emailLogs);
+
+        List<EmailLog> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                EmailLog emailLog = emailLogs.get(i);
+                if (emailLog.getCreatedDate() == null) {
+                    emailLog.setCreatedDate(emailLog.getLastUpdatedDate() != null ? emailLog.getLastUpdatedDate() : LocalDateTime.now());
+                }
+                missing.add(emailLog);
+            }
+        }
+        if (!missing.isEmpty()) {
+            log.debug("[EMAIL LOG] Creating {} missing log(s)", missing.size());
+            emailLogBatchRepository.insertFull(missing);
+        }
+    }
+}
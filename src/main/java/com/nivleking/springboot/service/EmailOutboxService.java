@@ -0,0 +1,155 @@
+package com.nivleking.springboot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.constant.EmailStatus;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.model.EmailOutbox;
+import com.nivleking.springboot.repository.EmailOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Durable queue of emails waiting for delivery (EMAIL_OUTBOX). Rows are claimed in batches with
+ * {@code FOR UPDATE SKIP LOCKED} so any number of nodes can drain the outbox concurrently.
+ * <p>
+ * Every claim writes a fresh token to LOCKED_BY. The lease is renewed right before sending and the
+ * outcome is only recorded while the row still carries that token, so a node whose lease expired
+ * neither sends a row another node re-claimed nor overwrites that node's outcome.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+    @Value("${com.nivleking.springboot.email.outbox.lease-millis:120000}")
+    private long leaseMillis;
+
+    @Value("${com.nivleking.springboot.email.delivery.max-wait-millis:30000}")
+    private long maxWaitMillis;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * Add a registered email to the outbox. This runs in its own transaction after EMAIL_INSERT has
+     * committed; if it fails the caller records the failure on EMAIL_LOG and the retry worker picks the
+     * email up from there.
+     */
+    @Transactional
+    public EmailOutbox enqueue(EmailDTO dto) throws JsonProcessingException {
+        LocalDateTime now = LocalDateTime.now();
+
+        EmailOutbox outbox = new EmailOutbox();
+        outbox.setEmailId(dto.getEmailId());
+        outbox.setEmailType(dto.getEmailType());
+        outbox.setPriority(EmailDispatchScheduler.level(dto.getPriority()));
+        outbox.setStatus(EmailStatus.PENDING);
+        outbox.setPayload(objectMapper.writeValueAsString(dto));
+        outbox.setAttempts(0);
+        outbox.setAvailableAt(now);
+        outbox.setRequestId(MDC.get("X-B3-TraceId"));
+        outbox.setCreatedDate(now);
+        outbox.setLastUpdatedDate(now);
+
+        EmailOutbox saved = emailOutboxRepository.save(outbox);
+        log.debug("[EMAIL OUTBOX] Enqueued email {}", dto.getEmailId());
+        return saved;
+    }
+
+    /**
+     * Claim up to {@code batchSize} due rows of {@code priorities} for this node, highest priority first.
+     * Rows due for longer than {@code max-wait-millis} go first whatever their priority. Claimed rows are
+     * PROCESSING until their lease expires, after which another node may pick them up again.
+     */
+    @Transactional
+    public List<EmailOutbox> claimBatch(int batchSize, Collection<Integer> priorities) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> rows = emailOutboxRepository.lockDueBatch(now, now.minus(maxWaitMillis, ChronoUnit.MILLIS),
+                priorities, batchSize);
+        String claimToken = nodeId + "/" + UUID.randomUUID();
+
+        for (EmailOutbox row : rows) {
+            row.setStatus(EmailStatus.PROCESSING);
+            row.setLockedBy(claimToken);
+            row.setLockedUntil(now.plus(leaseMillis, ChronoUnit.MILLIS));
+            row.setAttempts(row.getAttempts() == null ? 1 : row.getAttempts() + 1);
+            row.setLastUpdatedDate(now);
+        }
+
+        if (!rows.isEmpty()) {
+            log.debug("[EMAIL OUTBOX] Claimed {} email(s) on {}", rows.size(), nodeId);
+        }
+        return rows;
+    }
+
+    /**
+     * Extend the lease of a claimed row just before it is sent, the row may have waited in the local
+     * delivery queue for a good part of its lease.
+     *
+     * @return false when the lease was lost and the row must not be sent
+     */
+    @Transactional
+    public boolean renewLease(EmailOutbox row) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plus(leaseMillis, ChronoUnit.MILLIS);
+        if (emailOutboxRepository.renewLease(row.getId(), row.getLockedBy(), lockedUntil, now) == 0) {
+            return false;
+        }
+        row.setLockedUntil(lockedUntil);
+        return true;
+    }
+
+    @Transactional
+    public void markSent(EmailOutbox row) {
+        if (emailOutboxRepository.deleteClaimed(row.getId(), row.getLockedBy()) == 0) {
+            log.warn("[EMAIL OUTBOX] Email {} was sent after its lease was lost", row.getEmailId());
+        }
+    }
+
+    /**
+     * @return false when the lease was lost and the row belongs to another claim
+     */
+    @Transactional
+    public boolean markFailed(EmailOutbox row, String errorMessage) {
+        if (emailOutboxRepository.unlockClaimed(row.getId(), row.getLockedBy(), EmailStatus.FAILED,
+                row.getAttempts(), errorMessage, LocalDateTime.now()) == 0) {
+            log.warn("[EMAIL OUTBOX] Lease of email {} was lost, not marking it failed", row.getEmailId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Delete FAILED rows older than {@code before}
+     *
+     * @return the number of rows deleted
+     */
+    @Transactional
+    public int purgeFailed(LocalDateTime before) {
+        return emailOutboxRepository.deleteFailedBefore(before);
+    }
+
+    /**
+     * Hand a claimed row back, e.g. when the local executor could not take it.
+     */
+    @Transactional
+    public void release(EmailOutbox row) {
+        emailOutboxRepository.unlockClaimed(row.getId(), row.getLockedBy(), EmailStatus.PENDING,
+                Math.max(0, row.getAttempts() - 1), row.getErrorMessage(), LocalDateTime.now());
+    }
+}
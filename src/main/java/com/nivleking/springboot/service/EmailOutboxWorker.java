@@ -0,0 +1,171 @@
+package com.nivleking.springboot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.constant.EmailStatus;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.model.EmailOutbox;
+import com.nivleking.springboot.utils.TraceContext;
+import com.nivleking.springboot.utils.Tracing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Polls EMAIL_OUTBOX and delivers claimed emails on the {@link EmailDispatchScheduler} by their priority.
+ * Only rows of priorities the scheduler can still queue are claimed, and no more than it can take.
+ * Rows that cannot be delivered from the outbox are marked FAILED, together with their EMAIL_LOG entry,
+ * and deleted after {@code failed-retention-millis}.
+ */
+@Component
+@Slf4j
+public class EmailOutboxWorker {
+    @Value("${com.nivleking.springboot.email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${com.nivleking.springboot.email.outbox.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${com.nivleking.springboot.email.outbox.failed-retention-millis:604800000}")
+    private long failedRetentionMillis;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailUtilities emailUtilities;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EmailDispatchScheduler emailDispatchScheduler;
+
+    @Autowired
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @Scheduled(fixedDelayString = "${com.nivleking.springboot.email.outbox.poll-interval-millis:1000}")
+    public void poll() {
+        // Leave the rows queued while the relay is down instead of failing them one by one
+        if (!smtpDeliveryGuard.isAvailable()) {
+            return;
+        }
+
+        // Only claim priorities the scheduler can still queue, a full bulk queue must not hold back OTPs
+        List<Integer> priorities = new ArrayList<>();
+        int capacity = 0;
+        for (int priority = EmailDispatchScheduler.HIGHEST_PRIORITY; priority <= EmailDispatchScheduler.LOWEST_PRIORITY; priority++) {
+            int remaining = emailDispatchScheduler.remainingCapacity(priority);
+            if (remaining > 0) {
+                priorities.add(priority);
+                capacity += remaining;
+            }
+        }
+        int limit = Math.min(batchSize, capacity);
+        if (limit <= 0) {
+            return;
+        }
+
+        List<EmailOutbox> claimed;
+        try {
+            claimed = emailOutboxService.claimBatch(limit, priorities);
+        } catch (Exception e) {
+            log.warn("[EMAIL OUTBOX] Failed to claim outbox batch: {}", e.getMessage());
+            return;
+        }
+
+        for (EmailOutbox row : claimed) {
+            try {
+                emailDispatchScheduler.execute(priority(row), () -> process(row));
+            } catch (TaskRejectedException e) {
+                log.debug("[EMAIL OUTBOX] Executor is full, releasing email {}", row.getEmailId());
+                emailOutboxService.release(row);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${com.nivleking.springboot.email.outbox.purge-interval-millis:3600000}")
+    public void purgeFailed() {
+        try {
+            int deleted = emailOutboxService.purgeFailed(LocalDateTime.now().minus(failedRetentionMillis, ChronoUnit.MILLIS));
+            if (deleted > 0) {
+                log.info("[EMAIL OUTBOX] Purged {} failed email(s)", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("[EMAIL OUTBOX] Failed to purge failed emails: {}", e.getMessage());
+        }
+    }
+
+    private static int priority(EmailOutbox row) {
+        return row.getPriority() == null ? EmailDispatchScheduler.DEFAULT_PRIORITY : row.getPriority();
+    }
+
+    private void process(EmailOutbox row) {
+        // Continue the trace of the request that submitted the email
+        Tracing.Span span = Tracing.startSpan("email.outbox.deliver", TraceContext.fromTraceId(row.getRequestId()));
+
+        try {
+            if (row.getAttempts() > maxAttempts) {
+                log.warn("[EMAIL OUTBOX] Email {} was claimed {} times without completing, giving up", row.getEmailId(), row.getAttempts());
+                fail(row, readPayload(row), "Gave up after " + row.getAttempts() + " attempts");
+                return;
+            }
+            if (!emailOutboxService.renewLease(row)) {
+                log.warn("[EMAIL OUTBOX] Lease of email {} expired while it was queued, leaving it to its new owner", row.getEmailId());
+                return;
+            }
+
+            EmailDTO dto = readPayload(row);
+            if (dto == null) {
+                fail(row, null, "Unreadable outbox payload");
+                return;
+            }
+
+            // A failed delivery is logged on EMAIL_LOG, and retried from there, by the email service
+            emailService.deliverQueuedEmail(dto);
+            emailOutboxService.markSent(row);
+        } catch (Exception e) {
+            span.error(e);
+            log.error("[EMAIL OUTBOX] Delivery failed for email {}: {}", row.getEmailId(), e.getMessage());
+            emailOutboxService.markFailed(row, e.getMessage());
+        } finally {
+            span.end();
+        }
+    }
+
+    private EmailDTO readPayload(EmailOutbox row) {
+        try {
+            return objectMapper.readValue(row.getPayload(), EmailDTO.class);
+        } catch (Exception e) {
+            log.error("[EMAIL OUTBOX] Could not read payload of email {}: {}", row.getEmailId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mark the row FAILED and close its EMAIL_LOG entry, unless another claim owns the row by now.
+     */
+    private void fail(EmailOutbox row, EmailDTO dto, String errorMessage) {
+        if (!emailOutboxService.markFailed(row, errorMessage)) {
+            return;
+        }
+
+        if (dto == null) {
+            dto = new EmailDTO();
+            dto.setEmailId(row.getEmailId());
+            dto.setEmailType(row.getEmailType());
+        }
+        emailUtilities.saveErrorLog(dto, EmailStatus.FAILED, row.getEmailId(), BigDecimal.ZERO, "500", "OUTBOX_ERROR", errorMessage);
+    }
+}
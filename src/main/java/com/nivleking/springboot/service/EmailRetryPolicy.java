@@ -0,0 +1,55 @@
+package com.nivleking.springboot.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff for failed deliveries. The n-th retry waits between half and all of
+ * {@code base-delay * 2^n} (capped at {@code max-delay}), so emails that failed together during a
+ * relay outage do not all come back at the same moment.
+ */
+@Component
+public class EmailRetryPolicy {
+    @Getter
+    @Value("${com.nivleking.springboot.email.retry.enabled:true}")
+    private boolean enabled;
+
+    @Getter
+    @Value("${com.nivleking.springboot.email.retry.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${com.nivleking.springboot.email.retry.base-delay-millis:60000}")
+    private long baseDelayMillis;
+
+    @Value("${com.nivleking.springboot.email.retry.max-delay-millis:3600000}")
+    private long maxDelayMillis;
+
+    /**
+     * @param retries retries already made for the email
+     * @return when to retry, or null when retries are disabled or used up
+     */
+    public LocalDateTime nextRetryAt(BigDecimal retries, LocalDateTime now) {
+        int attempt = retries == null ? 0 : retries.intValue();
+        if (!enabled || attempt >= maxRetries) {
+            return null;
+        }
+        return now.plus(backoffMillis(attempt), ChronoUnit.MILLIS);
+    }
+
+    public long backoffMillis(int attempt) {
+        long delay = maxDelayMillis;
+        // Past 62 doublings the shift overflows, the cap applies long before that anyway
+        if (attempt < 62 && baseDelayMillis <= (maxDelayMillis >> attempt)) {
+            delay = baseDelayMillis << attempt;
+        }
+
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+}
@@ -0,0 +1,151 @@
+package com.nivleking.springboot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.model.EmailLog;
+import com.nivleking.springboot.repository.EmailRetryRepository;
+import com.nivleking.springboot.utils.TraceContext;
+import com.nivleking.springboot.utils.Tracing;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-drives FAILED and TIMEOUT emails whose NEXT_RETRY_AT has passed, from the EmailDTO stored in
+ * JSON_INPUT. Rows are claimed with {@code FOR UPDATE SKIP LOCKED}, so every node can run the worker,
+ * and only as many as the delivery scheduler can still take. Retries are queued by the priority of the email.
+ */
+@Component
+@Slf4j
+public class EmailRetryWorker {
+    @Value("${com.nivleking.springboot.email.retry.batch-size:50}")
+    private int batchSize;
+
+    @Value("${com.nivleking.springboot.email.retry.lease-millis:300000}")
+    private long leaseMillis;
+
+    @Autowired
+    private EmailRetryPolicy emailRetryPolicy;
+
+    @Autowired
+    private EmailRetryRepository emailRetryRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EmailDispatchScheduler emailDispatchScheduler;
+
+    @Autowired
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        FunctionCounter.builder("email.retry.attempts", retried, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("email.retry.exhausted", exhausted, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${com.nivleking.springboot.email.retry.poll-interval-millis:5000}")
+    public void poll() {
+        // Retries claimed while the relay is down would only use up their attempts
+        if (!emailRetryPolicy.isEnabled() || !smtpDeliveryGuard.isAvailable()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailLog> claimed;
+        try {
+            int closed = emailRetryRepository.closeExhausted(now, emailRetryPolicy.getMaxRetries());
+            if (closed > 0) {
+                exhausted.addAndGet(closed);
+                log.info("[EMAIL RETRY] {} email(s) used up their {} retries", closed, emailRetryPolicy.getMaxRetries());
+            }
+
+            int limit = Math.min(batchSize, emailDispatchScheduler.remainingCapacity());
+            if (limit <= 0) {
+                return;
+            }
+            claimed = emailRetryRepository.claimDue(now, now.plus(leaseMillis, ChronoUnit.MILLIS),
+                    emailRetryPolicy.getMaxRetries(), limit);
+        } catch (Exception e) {
+            log.warn("[EMAIL RETRY] Failed to claim retries: {}", e.getMessage());
+            return;
+        }
+
+        for (EmailLog row : claimed) {
+            try {
+                emailDispatchScheduler.execute(priority(row), () -> process(row));
+            } catch (TaskRejectedException e) {
+                log.debug("[EMAIL RETRY] Executor is full, releasing email {}", row.getEmailId());
+                emailRetryRepository.release(row, now);
+            }
+        }
+    }
+
+    /**
+     * The priority of the stored EmailDTO, unreadable input is left for {@link #process} to give up on
+     */
+    private String priority(EmailLog row) {
+        if (row.getJsonInput() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(row.getJsonInput()).path("priority").asText(null);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void process(EmailLog row) {
+        // Continue the trace of the request that submitted the email
+        Tracing.Span span = Tracing.startSpan("email.retry", TraceContext.fromTraceId(row.getRequestId()));
+
+        try {
+            if (row.getJsonInput() == null) {
+                log.warn("[EMAIL RETRY] Email {} has no stored input, giving up", row.getEmailId());
+                emailRetryRepository.abandon(row.getEmailId(), "No stored input to retry from");
+                return;
+            }
+
+            EmailDTO dto;
+            try {
+                dto = objectMapper.readValue(row.getJsonInput(), EmailDTO.class);
+            } catch (JsonProcessingException e) {
+                log.warn("[EMAIL RETRY] Email {} has unreadable input, giving up: {}", row.getEmailId(), e.getMessage());
+                emailRetryRepository.abandon(row.getEmailId(), "Unreadable input: " + e.getOriginalMessage());
+                return;
+            }
+
+            log.info("[EMAIL RETRY] Retry {} of email {}", row.getNumberOfRetries(), row.getEmailId());
+            retried.incrementAndGet();
+            emailService.retryEmail(dto, row.getNumberOfRetries());
+        } catch (Exception e) {
+            span.error(e);
+            // The failure and the next retry, if any, were already logged by EmailService
+            log.warn("[EMAIL RETRY] Retry of email {} failed: {}", row.getEmailId(), e.getMessage());
+        } finally {
+            span.end();
+        }
+    }
+}
@@ -2,23 +2,23 @@ package com.nivleking.springboot.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nivleking.springboot.constant.EmailStatus;
-import com.nivleking.springboot.constant.RegexValidator;
 import com.nivleking.springboot.dto.EmailDTO;
-import com.nivleking.springboot.model.EmailTemplate;
+import com.nivleking.springboot.dto.EmailStatusDTO;
+import com.nivleking.springboot.dto.EmailSubmissionResult;
+import com.nivleking.springboot.exception.SmtpUnavailableException;
+import com.nivleking.springboot.model.EmailLog;
 import com.nivleking.springboot.repository.EmailLogRepository;
-import com.nivleking.springboot.repository.EmailTemplateRepository;
-import jakarta.activation.DataHandler;
-import jakarta.activation.DataSource;
+import com.nivleking.springboot.utils.EmailAddressParser;
 import jakarta.mail.*;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.internet.MimeMultipart;
-import jakarta.mail.util.ByteArrayDataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -30,12 +30,6 @@ import java.util.*;
 @Service
 @Slf4j
 public class EmailService {
-    @Value("${spring.mail.username}")
-    private String emailUsername;
-
-    @Value("${spring.mail.password}")
-    private String emailPassword;
-
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -43,7 +37,7 @@ public class EmailService {
     private EmailUtilities emailUtilities;
 
     @Autowired
-    private EmailTemplateRepository emailTemplateRepository;
+    private EmailTemplateCache emailTemplateCache;
 
     @Autowired
     private EmailLogRepository emailLogRepository;
@@ -51,6 +45,36 @@ public class EmailService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private SmtpTransportPool smtpTransportPool;
+
+    @Autowired
+    private MailSessionFactory mailSessionFactory;
+
+    @Autowired
+    private EmailDispatchScheduler emailDispatchScheduler;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailThrottle emailThrottle;
+
+    @Autowired
+    private AttachmentSpooler attachmentSpooler;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Autowired
+    private EmailRetryPolicy emailRetryPolicy;
+
+    @Autowired
+    private SentEmailCache sentEmailCache;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
     /**
      * Send email with optional attachments
      *
@@ -61,172 +85,358 @@ public class EmailService {
      */
     public String sendEmail(EmailDTO emailDTO, MultipartFile[] files) throws Exception {
         BigDecimal retries = BigDecimal.ZERO;
-        String emailId = emailDTO.getEmailId();
-        LocalDateTime now = LocalDateTime.now();
+        AttachmentSpooler.SpooledAttachments attachments = attachmentSpooler.spool(files);
 
         try {
-            log.info("[SEND EMAIL] Starting email sending process to recipient: {}", emailDTO.getReceiver());
-            log.debug("[SEND EMAIL] Email details: id={}, type={}, priority={}", emailId, emailDTO.getEmailType(), emailDTO.getPriority());
-
-            // Generate email ID if not provided
-            if (emailId == null || emailId.isEmpty()) {
-                emailId = UUID.randomUUID().toString();
-                emailDTO.setEmailId(emailId);
-                log.debug("[SEND EMAIL] Generated new email ID: {}", emailId);
+            String skipReason = registerEmail(emailDTO, retries);
+            if (skipReason != null) {
+                return skipReason;
             }
 
-            // Check if email type requires delay
-            if (!emailUtilities.checkIfEmailNeedsDelay(emailDTO.getEmailType())) {
-                log.debug("[SEND EMAIL] Email does not use delay! Proceed to normal flow!");
-
-                // Create or update email log without delay
-                try {
-                    emailId = emailLogRepository.createOrUpdateEmailLog(
-                            now,
-                            emailDTO.getEmailType(),
-                            emailId
-                    );
-
-                    if (emailId == null) {
-                        log.info("[SEND EMAIL] Email {} already sent successfully. Skipping.", emailId);
-                        return "Email already successfully sent to " + emailDTO.getReceiver();
-                    }
-                } catch (Exception e) {
-                    log.error("[SEND EMAIL] Insert log error! {} will not be sent: {}", emailDTO.getEmailType(), emailId, e);
-                    throw new Exception("Insert log error! Email id: " + emailId);
+            deliverEmail(emailDTO, attachments.getBodyParts(), retries);
+            return "Email sent successfully to " + emailDTO.getReceiver();
+        } catch (Exception e) {
+            // The caller is answered 503 and resubmits, a scheduled retry as well could send it twice
+            handleFailure(emailDTO, retries, e, attachments.isEmpty() && !(e instanceof SmtpUnavailableException));
+            throw e;
+        } finally {
+            attachments.close();
+        }
+    }
+
+    /**
+     * Register and validate the email, then queue it for delivery. Emails without uploaded files go to
+     * the durable EMAIL_OUTBOX and are delivered by whichever node claims them, including emails that
+     * reference stored attachments; emails with uploaded files are handed to the local
+     * {@link EmailDispatchScheduler} together with their spool files, queued by their priority.
+     *
+     * @return whether the email was queued, with its email id
+     * @throws TaskRejectedException if the delivery queue is full
+     */
+    public EmailSubmissionResult submitEmail(EmailDTO emailDTO, MultipartFile[] files) throws Exception {
+        BigDecimal retries = BigDecimal.ZERO;
+        AttachmentSpooler.SpooledAttachments attachments = attachmentSpooler.spool(files);
+        boolean handedOver = false;
+
+        try {
+            try {
+                String skipReason = registerEmail(emailDTO, retries);
+                if (skipReason != null) {
+                    return new EmailSubmissionResult(false, emailDTO.getEmailId(), skipReason);
                 }
-            } else {
-                log.debug("[SEND EMAIL] Email uses delay concept! EMAIL_TYPE: {}", emailDTO.getEmailType());
-
-                Long delayMillis = emailUtilities.getDelayByEmailType(emailDTO.getEmailType());
-                log.debug("[SEND EMAIL] Delay for {} is {} ms", emailDTO.getEmailType(), delayMillis);
-
-                // Create or update email log with delay
-                try {
-                    emailId = emailLogRepository.checkAndCreateEmailDelay(
-                            now,
-                            emailDTO.getEmailType(),
-                            emailId,
-                            delayMillis,
-                            retries
-                    );
-
-                    // If emailId is null, it means delay is active - return early
-                    if (emailId == null) {
-                        log.debug("[SEND EMAIL] Email delay is still active! {} will not be sent: {}",
-                                emailDTO.getEmailType(), emailDTO.getEmailId());
-                        return "Email delay is still active for " + emailDTO.getEmailType() + "! Email will not be sent: " + emailDTO.getEmailId();
+
+                if (attachments.isEmpty()) {
+                    try {
+                        emailOutboxService.enqueue(emailDTO);
+                        log.info("[SEND EMAIL] Email {} added to outbox for {}", emailDTO.getEmailId(), emailDTO.getReceiver());
+                    } catch (DataAccessException e) {
+                        // Already registered on EMAIL_LOG, the retry worker delivers it from there
+                        LocalDateTime retryAt = emailRetryPolicy.nextRetryAt(retries, LocalDateTime.now());
+                        log.warn("[SEND EMAIL] Could not add email {} to the outbox, retrying at {}: {}", emailDTO.getEmailId(), retryAt, e.getMessage());
+                        emailUtilities.saveErrorLog(emailDTO, EmailStatus.FAILED, emailDTO.getEmailId(), retries, "503", "OUTBOX_ERROR", e.getMessage(), retryAt);
+                        if (retryAt == null) {
+                            throw e;
+                        }
                     }
-                } catch (Exception e) {
-                    log.error("[SEND EMAIL] Email delay check failed: {}", e.getMessage(), e);
-                    throw new Exception("Email delay check failed! Email id: " + emailId);
+                    return new EmailSubmissionResult(true, emailDTO.getEmailId(), "Email queued for delivery to " + emailDTO.getReceiver());
                 }
+            } catch (Exception e) {
+                handleFailure(emailDTO, retries, e, attachments.isEmpty());
+                throw e;
             }
 
-            // Email validations
-            log.debug("[SEND EMAIL] Validating email addresses");
-            List<String> errors = validateEmails(emailDTO);
-            if (!errors.isEmpty()) {
-                String errorMsg = String.join(", ", errors);
-                log.error("[SEND EMAIL] Email validation failed: {}", errorMsg);
-                emailUtilities.saveErrorLog(emailDTO, EmailStatus.FAILED, emailDTO.getEmailId(), retries, "400", "VALIDATION_ERROR", errorMsg);
-                throw new IllegalArgumentException(errorMsg);
+            try {
+                // The delivery task owns the spool files from here on
+                emailDispatchScheduler.execute(emailDTO.getPriority(), () -> {
+                    try {
+                        deliverEmail(emailDTO, attachments.getBodyParts(), retries);
+                    } catch (Exception e) {
+                        handleFailure(emailDTO, retries, e, false);
+                    } finally {
+                        attachments.close();
+                    }
+                });
+                handedOver = true;
+            } catch (TaskRejectedException e) {
+                log.warn("[SEND EMAIL] Delivery queue is full, rejecting email {}", emailDTO.getEmailId());
+                emailUtilities.saveErrorLog(emailDTO, EmailStatus.FAILED, emailDTO.getEmailId(), retries, "503", "QUEUE_FULL", e.getMessage());
+                throw e;
             }
-            log.debug("[SEND EMAIL] Email validation successful");
-
-            log.debug("[SEND EMAIL] Creating email session with authentication");
-            Session session = Session.getInstance(emailUtilities.getDefaultProps(),
-                    new Authenticator() {
-                        protected PasswordAuthentication getPasswordAuthentication() {
-                            return new PasswordAuthentication(emailUsername, emailPassword);
-                        }
-                    });
+        } finally {
+            if (!handedOver) {
+                attachments.close();
+            }
+        }
 
-            MimeMessage message = new MimeMessage(session);
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        log.info("[SEND EMAIL] Email {} queued for delivery to {}", emailDTO.getEmailId(), emailDTO.getReceiver());
+        return new EmailSubmissionResult(true, emailDTO.getEmailId(), "Email queued for delivery to " + emailDTO.getReceiver());
+    }
 
-            // Set basic email properties
-            log.debug("[SEND EMAIL] Setting basic email properties");
-            message.setSubject(emailDTO.getSubject());
-            message.setFrom(new InternetAddress(emailDTO.getSender()));
+    /**
+     * Deliver an email claimed from EMAIL_OUTBOX. The email was already registered and validated on submit.
+     */
+    public void deliverQueuedEmail(EmailDTO emailDTO) throws Exception {
+        deliverStoredEmail(emailDTO, BigDecimal.ZERO);
+    }
 
-            // Set email priority if specified (1-5, with 1 being highest priority)
-            if (emailDTO.getPriority() != null && !emailDTO.getPriority().isEmpty()) {
-                helper.setPriority(Integer.parseInt(emailDTO.getPriority()));
-            }
+    /**
+     * Deliver an email claimed by {@link EmailRetryWorker} again.
+     *
+     * @param retries retries made for the email, including this one
+     */
+    public void retryEmail(EmailDTO emailDTO, BigDecimal retries) throws Exception {
+        deliverStoredEmail(emailDTO, retries);
+    }
 
-            // Set recipients
-            log.debug("[SEND EMAIL] Setting email recipients");
-            message.addRecipients(Message.RecipientType.TO, InternetAddress.parse(emailDTO.getReceiver()));
+    private void deliverStoredEmail(EmailDTO emailDTO, BigDecimal retries) throws Exception {
+        try {
+            deliverEmail(emailDTO, Collections.<MimeBodyPart>emptyList(), retries);
+        } catch (Exception e) {
+            handleFailure(emailDTO, retries, e, true);
+            throw e;
+        }
+    }
 
-            if (emailDTO.getCc() != null && !emailDTO.getCc().isEmpty()) {
-                log.debug("[SEND EMAIL] Adding CC recipients: {}", emailDTO.getCc());
-                message.addRecipients(Message.RecipientType.CC, InternetAddress.parse(emailDTO.getCc()));
-            }
+    /**
+     * Latest EMAIL_LOG entry for the email id
+     */
+    public Optional<EmailStatusDTO> getEmailStatus(String emailId) {
+        List<EmailLog> emailLogs = emailLogRepository.findAllByEmailId(emailId);
+        if (emailLogs == null || emailLogs.isEmpty()) {
+            return Optional.empty();
+        }
 
-            if (emailDTO.getBcc() != null && !emailDTO.getBcc().isEmpty()) {
-                log.debug("[SEND EMAIL] Adding BCC recipients: {}", emailDTO.getBcc());
-                message.addRecipients(Message.RecipientType.BCC, InternetAddress.parse(emailDTO.getBcc()));
-            }
+        return Optional.of(modelMapper.map(emailLogs.get(0), EmailStatusDTO.class));
+    }
 
-            // Create multipart email
-            log.debug("[SEND EMAIL] Creating multipart email");
-            Multipart multipart = new MimeMultipart();
+    /**
+     * Create or update the EMAIL_LOG entry (honouring email type delays) and validate the addresses.
+     *
+     * @return the reason the email is skipped, or null when it should be delivered
+     */
+    private String registerEmail(EmailDTO emailDTO, BigDecimal retries) throws Exception {
+        String emailId = emailDTO.getEmailId();
+        LocalDateTime now = LocalDateTime.now();
 
-            // Process template with parameters
-            log.debug("[SEND EMAIL] Processing email template with parameters");
-            String templateHtml = getEmailTemplate(emailDTO.getTemplateName());
-            Map<String, Object> params = new HashMap<>();
+        log.info("[SEND EMAIL] Starting email sending process to recipient: {}", emailDTO.getReceiver());
+        log.debug("[SEND EMAIL] Email details: id={}, type={}, priority={}", emailId, emailDTO.getEmailType(), emailDTO.getPriority());
+
+        // Generate email ID if not provided
+        if (emailId == null || emailId.isEmpty()) {
+            emailId = UUID.randomUUID().toString();
+            emailDTO.setEmailId(emailId);
+            log.debug("[SEND EMAIL] Generated new email ID: {}", emailId);
+        } else if (sentEmailCache.isSent(emailId)) {
+            pipelineMetrics.suppressed(emailDTO, PipelineMetrics.SUPPRESSED_DUPLICATE);
+            log.info("[SEND EMAIL] Email {} already sent successfully. Skipping.", emailId);
+            return "Email already successfully sent to " + emailDTO.getReceiver();
+        }
 
-            if (emailDTO.getParams() != null) {
-                params = objectMapper.convertValue(emailDTO.getParams(), HashMap.class);
-                log.debug("[SEND EMAIL] Template parameters: {}", params);
+        // Check if email type requires delay
+        if (!emailUtilities.checkIfEmailNeedsDelay(emailDTO.getEmailType())) {
+            log.debug("[SEND EMAIL] Email does not use delay! Proceed to normal flow!");
+
+            // Create or update email log without delay
+            try {
+                String requestedId = emailId;
+                emailId = pipelineMetrics.email(PipelineMetrics.EMAIL_INSERT, emailDTO, () ->
+                        emailLogRepository.createOrUpdateEmailLog(now, emailDTO.getEmailType(), requestedId));
+
+                // NULL is also returned when the row is locked by another send, only a SUCCESS fills the cache
+                if (emailId == null) {
+                    pipelineMetrics.suppressed(emailDTO, PipelineMetrics.SUPPRESSED_DUPLICATE);
+                    log.info("[SEND EMAIL] Email {} already sent successfully. Skipping.", emailDTO.getEmailId());
+                    return "Email already successfully sent to " + emailDTO.getReceiver();
+                }
+            } catch (Exception e) {
+                log.error("[SEND EMAIL] Insert log error! {} will not be sent: {}", emailDTO.getEmailType(), emailId, e);
+                throw new Exception("Insert log error! Email id: " + emailId);
+            }
+        } else {
+            log.debug("[SEND EMAIL] Email uses delay concept! EMAIL_TYPE: {}", emailDTO.getEmailType());
+
+            Long delayMillis = emailUtilities.getDelayByEmailType(emailDTO.getEmailType());
+            log.debug("[SEND EMAIL] Delay for {} is {} ms", emailDTO.getEmailType(), delayMillis);
+
+            // Bursts of the same type on this node are rejected without a database round trip
+            EmailThrottle.Reservation reservation = emailThrottle.tryReserve(emailDTO.getEmailType(), delayMillis);
+            if (reservation == null) {
+                pipelineMetrics.suppressed(emailDTO, PipelineMetrics.SUPPRESSED_DELAY);
+                log.debug("[SEND EMAIL] Email delay is still active! {} will not be sent: {}",
+                        emailDTO.getEmailType(), emailDTO.getEmailId());
+                return "Email delay is still active for " + emailDTO.getEmailType() + "! Email will not be sent: " + emailDTO.getEmailId();
             }
 
-            String htmlContent = emailUtilities.processTemplate(templateHtml, params);
-            log.debug("[SEND EMAIL] Template processing complete");
-
-            // Add HTML content
-            MimeBodyPart messageBodyPart = new MimeBodyPart();
-            messageBodyPart.setContent(htmlContent, "text/html; charset=utf-8");
-            multipart.addBodyPart(messageBodyPart);
-            log.debug("[SEND EMAIL] HTML content added to email");
-
-            // Add attachments if any
-            if (files != null && files.length > 0) {
-                log.debug("[SEND EMAIL] Processing {} attachment(s)", files.length);
-                for (MultipartFile file : files) {
-                    if (file != null && !file.isEmpty()) {
-                        MimeBodyPart attachPart = new MimeBodyPart();
-                        DataSource source = new ByteArrayDataSource(file.getInputStream(), file.getContentType());
-                        attachPart.setDataHandler(new DataHandler(source));
-                        attachPart.setFileName(file.getOriginalFilename());
-                        multipart.addBodyPart(attachPart);
-                        log.debug("[SEND EMAIL] Added attachment: {}", file.getOriginalFilename());
-                    }
+            // Create or update email log with delay
+            try {
+                String requestedId = emailId;
+                emailId = pipelineMetrics.email(PipelineMetrics.EMAIL_DELAY, emailDTO, () ->
+                        emailLogRepository.checkAndCreateEmailDelay(now, emailDTO.getEmailType(), requestedId, delayMillis, retries));
+
+                // If emailId is null, it means delay is active - return early
+                if (emailId == null) {
+                    reservation.cancel();
+                    pipelineMetrics.suppressed(emailDTO, PipelineMetrics.SUPPRESSED_DELAY);
+                    log.debug("[SEND EMAIL] Email delay is still active! {} will not be sent: {}",
+                            emailDTO.getEmailType(), emailDTO.getEmailId());
+                    return "Email delay is still active for " + emailDTO.getEmailType() + "! Email will not be sent: " + emailDTO.getEmailId();
                 }
+            } catch (Exception e) {
+                reservation.cancel();
+                log.error("[SEND EMAIL] Email delay check failed: {}", e.getMessage(), e);
+                throw new Exception("Email delay check failed! Email id: " + emailId);
             }
+        }
 
-            // Set content and send
-            message.setContent(multipart);
-            log.info("[SEND EMAIL] Sending email to {}", emailDTO.getReceiver());
-            Transport.send(message);
+        // Email validations
+        log.debug("[SEND EMAIL] Validating email addresses");
+        List<String> errors = validateEmails(emailDTO);
+        for (String hash : attachmentStore.findMissing(emailDTO.getAttachmentHashes())) {
+            log.warn("[SEND EMAIL] Email validation: Unknown attachment: {}", hash);
+            errors.add("Unknown attachment: " + hash);
+        }
+        if (!errors.isEmpty()) {
+            String errorMsg = String.join(", ", errors);
+            log.error("[SEND EMAIL] Email validation failed: {}", errorMsg);
+            emailUtilities.saveErrorLog(emailDTO, EmailStatus.FAILED, emailDTO.getEmailId(), retries, "400", "VALIDATION_ERROR", errorMsg);
+            throw new IllegalArgumentException(errorMsg);
+        }
+        log.debug("[SEND EMAIL] Email validation successful");
+
+        return null;
+    }
+
+    /**
+     * Render the template, assemble the MIME message with the stored and uploaded attachments and send
+     * it over a pooled SMTP connection.
+     */
+    private void deliverEmail(EmailDTO emailDTO, List<MimeBodyPart> attachments, BigDecimal retries) throws Exception {
+        List<MimeBodyPart> parts = new ArrayList<>(attachmentStore.getBodyParts(emailDTO.getAttachmentHashes()));
+        parts.addAll(attachments);
+        String templateHtml = pipelineMetrics.email(PipelineMetrics.TEMPLATE_FETCH, emailDTO, () ->
+                getEmailTemplate(emailDTO.getTemplateName()));
+        MimeMessage message = composeMessage(emailDTO, templateHtml, parts);
+
+        log.info("[SEND EMAIL] Sending email to {}", emailDTO.getReceiver());
+        pipelineMetrics.email(PipelineMetrics.SMTP_SEND, emailDTO, () -> {
+            smtpTransportPool.send(message);
+            return null;
+        });
+        sentEmailCache.markSent(emailDTO.getEmailId());
+        pipelineMetrics.email(PipelineMetrics.LOG_WRITE, emailDTO, () -> {
             emailUtilities.saveSuccessLog(emailDTO, emailDTO.getEmailId(), retries);
-            log.info("[SEND EMAIL] Email successfully sent to {}", emailDTO.getReceiver());
+            return null;
+        });
+        log.info("[SEND EMAIL] Email successfully sent to {}", emailDTO.getReceiver());
+    }
 
-            return "Email sent successfully to " + emailDTO.getReceiver();
-        } catch (Exception e) {
-            log.error("[SEND EMAIL] Failed to send email: {}", e.getMessage(), e);
-            String status = emailUtilities.checkTimeout(e) ? EmailStatus.TIMEOUT : EmailStatus.FAILED;
-            emailUtilities.saveErrorLog(emailDTO, status, emailDTO.getEmailId(), retries, "500", "EMAIL_SEND_ERROR", e.getMessage());
-            throw e;
+    /**
+     * Assemble the MIME message for the email, rendering {@code templateHtml} with the email params.
+     */
+    public MimeMessage composeMessage(EmailDTO emailDTO, String templateHtml, List<MimeBodyPart> attachments) throws Exception {
+        // Process template with parameters
+        log.debug("[SEND EMAIL] Processing email template with parameters");
+        Map<String, Object> params = new HashMap<>();
+
+        if (emailDTO.getParams() instanceof Map) {
+            // Already a JSON tree of maps and lists, the template context reads it in place
+            params = (Map<String, Object>) emailDTO.getParams();
+            log.debug("[SEND EMAIL] Template parameters: {}", params);
+        } else if (emailDTO.getParams() != null) {
+            params = objectMapper.convertValue(emailDTO.getParams(), HashMap.class);
+            log.debug("[SEND EMAIL] Template parameters: {}", params);
         }
+
+        Map<String, Object> templateParams = params;
+        String htmlContent = pipelineMetrics.email(PipelineMetrics.TEMPLATE_RENDER, emailDTO, () ->
+                emailUtilities.processTemplate(templateHtml, templateParams));
+        log.debug("[SEND EMAIL] Template processing complete");
+
+        return composeRenderedMessage(emailDTO, htmlContent, attachments);
+    }
+
+    /**
+     * Assemble the MIME message for the email around HTML that is already rendered.
+     */
+    public MimeMessage composeRenderedMessage(EmailDTO emailDTO, String htmlContent, List<MimeBodyPart> attachments) throws Exception {
+        return pipelineMetrics.email(PipelineMetrics.MIME_ASSEMBLY, emailDTO, () ->
+                assembleMessage(emailDTO, htmlContent, attachments));
+    }
+
+    private MimeMessage assembleMessage(EmailDTO emailDTO, String htmlContent, List<MimeBodyPart> attachments) throws MessagingException {
+        MimeMessage message = new MimeMessage(mailSessionFactory.getSession());
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        // Set basic email properties
+        log.debug("[SEND EMAIL] Setting basic email properties");
+        message.setSubject(emailDTO.getSubject());
+        message.setFrom(new InternetAddress(emailDTO.getSender()));
+
+        // Set email priority if specified (1-5, with 1 being highest priority)
+        if (emailDTO.getPriority() != null && !emailDTO.getPriority().isEmpty()) {
+            helper.setPriority(Integer.parseInt(emailDTO.getPriority()));
+        }
+
+        // Set recipients
+        log.debug("[SEND EMAIL] Setting email recipients");
+        message.addRecipients(Message.RecipientType.TO, InternetAddress.parse(emailDTO.getReceiver()));
+
+        if (emailDTO.getCc() != null && !emailDTO.getCc().isEmpty()) {
+            log.debug("[SEND EMAIL] Adding CC recipients: {}", emailDTO.getCc());
+            message.addRecipients(Message.RecipientType.CC, InternetAddress.parse(emailDTO.getCc()));
+        }
+
+        if (emailDTO.getBcc() != null && !emailDTO.getBcc().isEmpty()) {
+            log.debug("[SEND EMAIL] Adding BCC recipients: {}", emailDTO.getBcc());
+            message.addRecipients(Message.RecipientType.BCC, InternetAddress.parse(emailDTO.getBcc()));
+        }
+
+        // Create multipart email
+        log.debug("[SEND EMAIL] Creating multipart email");
+        Multipart multipart = new MimeMultipart();
+
+        // Add HTML content
+        MimeBodyPart messageBodyPart = new MimeBodyPart();
+        messageBodyPart.setContent(htmlContent, "text/html; charset=utf-8");
+        multipart.addBodyPart(messageBodyPart);
+        log.debug("[SEND EMAIL] HTML content added to email");
+
+        // Add attachments if any
+        for (MimeBodyPart attachment : attachments) {
+            multipart.addBodyPart(attachment);
+        }
+
+        message.setContent(multipart);
+        return message;
+    }
+
+    /**
+     * Log the failure. SMTP errors and timeouts are scheduled for a retry when the email can be rebuilt
+     * from its logged input, i.e. it has no uploaded files.
+     */
+    private void handleFailure(EmailDTO emailDTO, BigDecimal retries, Exception e, boolean retryable) {
+        log.error("[SEND EMAIL] Failed to send email: {}", e.getMessage(), e);
+        boolean timeout = emailUtilities.checkTimeout(e);
+        String status = timeout ? EmailStatus.TIMEOUT : EmailStatus.FAILED;
+
+        LocalDateTime nextRetryAt = null;
+        if (retryable && (timeout || e instanceof MessagingException)) {
+            nextRetryAt = emailRetryPolicy.nextRetryAt(retries, LocalDateTime.now());
+            if (nextRetryAt != null) {
+                log.info("[SEND EMAIL] Email {} will be retried at {}", emailDTO.getEmailId(), nextRetryAt);
+            }
+        }
+        LocalDateTime retryAt = nextRetryAt;
+        pipelineMetrics.email(PipelineMetrics.LOG_WRITE, emailDTO, () -> {
+            emailUtilities.saveErrorLog(emailDTO, status, emailDTO.getEmailId(), retries, "500", "EMAIL_SEND_ERROR", e.getMessage(), retryAt);
+            return null;
+        });
     }
 
     /**
      * Validate email addresses and required fields
      */
-    private List<String> validateEmails(EmailDTO emailDTO) throws Exception {
+    public List<String> validateEmails(EmailDTO emailDTO) throws Exception {
         List<String> errors = new ArrayList<>();
 
         if (emailDTO.getSubject() == null || emailDTO.getSubject().isEmpty()) {
@@ -237,7 +447,7 @@ public class EmailService {
         if (emailDTO.getSender() == null || emailDTO.getSender().isEmpty()) {
             log.warn("[SEND EMAIL] Email validation: Missing sender");
             errors.add("Sender email is required");
-        } else if (!emailDTO.getSender().matches(RegexValidator.EMAIL_FORMAT)) {
+        } else if (!EmailAddressParser.isValid(emailDTO.getSender())) {
             log.warn("[SEND EMAIL] Email validation: Invalid sender format: {}", emailDTO.getSender());
             errors.add("Invalid sender email: " + emailDTO.getSender());
         }
@@ -255,7 +465,7 @@ public class EmailService {
                 if (result.getErrors().isEmpty()) {
                     log.debug("[SEND EMAIL] Email receiver valid! -> {}", emailDTO.getReceiver());
                 }
-            } else if (!receiver.matches(RegexValidator.EMAIL_FORMAT)) {
+            } else if (!EmailAddressParser.isValid(receiver)) {
                 log.warn("[SEND EMAIL] Email validation: Invalid receiver format: {}", receiver);
                 errors.add("Invalid receiver email: " + receiver);
             }
@@ -271,7 +481,7 @@ public class EmailService {
                 if (result.getErrors().isEmpty()) {
                     log.debug("[SEND EMAIL] Email CC valid! -> {}", emailDTO.getCc());
                 }
-            } else if (!cc.matches(RegexValidator.EMAIL_FORMAT)) {
+            } else if (!EmailAddressParser.isValid(cc)) {
                 log.warn("[SEND EMAIL] Email validation: Invalid CC format: {}", cc);
                 errors.add("Invalid CC email: " + cc);
             }
@@ -289,7 +499,7 @@ public class EmailService {
                 if (result.getErrors().isEmpty()) {
                     log.debug("[SEND EMAIL] Email BCC valid! -> {}", emailDTO.getBcc());
                 }
-            } else if (!bcc.matches(RegexValidator.EMAIL_FORMAT)) {
+            } else if (!EmailAddressParser.isValid(bcc)) {
                 log.warn("[SEND EMAIL] Email validation: Invalid BCC format: {}", bcc);
                 errors.add("Invalid BCC email: " + bcc);
             }
@@ -300,22 +510,21 @@ public class EmailService {
         return errors;
     }
 
-    private String getEmailTemplate(String templateName) {
+    /**
+     * Template HTML for the template name, falling back to the default template
+     */
+    public String getEmailTemplate(String templateName) {
         if (templateName == null || templateName.isEmpty()) {
             return getDefaultEmailTemplate();
         }
 
-        EmailTemplate template = emailTemplateRepository.findByTemplateId(templateName)
-                .orElseGet(() -> {
-                    log.warn("[SEND EMAIL] Template not found: {}, using default", templateName);
-                    return null;
-                });
-
-        if (template != null && template.getTemplate() != null && !template.getTemplate().isEmpty()) {
+        Optional<String> template = emailTemplateCache.findTemplate(templateName);
+        if (template.isPresent()) {
             log.debug("[SEND EMAIL] Using database template: {}", templateName);
-            return template.getTemplate();
+            return template.get();
         }
 
+        log.warn("[SEND EMAIL] Template not found: {}, using default", templateName);
         log.debug("[SEND EMAIL] Using default email template");
         return getDefaultEmailTemplate();
     }
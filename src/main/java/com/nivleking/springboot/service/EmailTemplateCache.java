@@ -0,0 +1,113 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.model.EmailTemplate;
+import com.nivleking.springboot.repository.EmailTemplateRepository;
+import com.nivleking.springboot.utils.BoundedCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of {@link EmailTemplateRepository}.
+ * Unknown template ids are cached as absent for a shorter TTL. The whole cache is dropped when
+ * the EMAIL_TEMPLATE version (row count + latest LAST_UPDATED_DATE) changes or on {@code /actuator/refresh}.
+ */
+@Service
+@Slf4j
+public class EmailTemplateCache {
+    @Value("${com.nivleking.springboot.email.template-cache.max-size:100}")
+    private int maxSize;
+
+    @Value("${com.nivleking.springboot.email.template-cache.ttl-millis:3600000}")
+    private long ttlMillis;
+
+    @Value("${com.nivleking.springboot.email.template-cache.negative-ttl-millis:60000}")
+    private long negativeTtlMillis;
+
+    @Autowired
+    private EmailTemplateRepository emailTemplateRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BoundedCache<String, Optional<String>> templates;
+
+    // Bumped on every invalidation so a load that raced with it is not put back into the cache
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile String lastSeenVersion;
+
+    @PostConstruct
+    public void init() {
+        templates = new BoundedCache<>(maxSize, ttlMillis);
+
+        FunctionCounter.builder("cache.gets", templates, BoundedCache::getHitCount)
+                .tag("cache", "email.template").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", templates, BoundedCache::getMissCount)
+                .tag("cache", "email.template").tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", templates, BoundedCache::getEvictionCount)
+                .tag("cache", "email.template").register(meterRegistry);
+        Gauge.builder("cache.size", templates, BoundedCache::size)
+                .tag("cache", "email.template").register(meterRegistry);
+    }
+
+    /**
+     * @return the template HTML, or empty when the id is unknown or the stored template is blank
+     */
+    public Optional<String> findTemplate(String templateId) {
+        Optional<String> cached = templates.get(templateId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadGeneration = generation.get();
+        Optional<String> loaded = emailTemplateRepository.findByTemplateId(templateId)
+                .map(EmailTemplate::getTemplate)
+                .filter(template -> !template.isEmpty());
+
+        if (generation.get() == loadGeneration) {
+            templates.put(templateId, loaded, loaded.isPresent() ? ttlMillis : negativeTtlMillis);
+        }
+        log.debug("[EMAIL TEMPLATE] Loaded template {} from database (found={})", templateId, loaded.isPresent());
+        return loaded;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        templates.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${com.nivleking.springboot.email.template-cache.version-check-millis:30000}")
+    public void checkForUpdates() {
+        try {
+            EmailTemplateRepository.TemplateVersion version = emailTemplateRepository.findTemplateVersion();
+            String currentVersion = version == null ? null : version.getTemplateCount() + "@" + version.getLastUpdatedDate();
+
+            if (lastSeenVersion != null && !Objects.equals(lastSeenVersion, currentVersion)) {
+                log.info("[EMAIL TEMPLATE] EMAIL_TEMPLATE changed ({} -> {}), clearing template cache", lastSeenVersion, currentVersion);
+                invalidateAll();
+            }
+            lastSeenVersion = currentVersion;
+        } catch (Exception e) {
+            log.warn("[EMAIL TEMPLATE] Template version check failed: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        log.info("[EMAIL TEMPLATE] Refresh requested, clearing template cache");
+        invalidateAll();
+    }
+}
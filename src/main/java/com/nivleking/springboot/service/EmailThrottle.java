@@ -0,0 +1,95 @@
+package com.nivleking.springboot.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local gate for email types with a delay (one email per type per delay window).
+ * A burst of the same type on this node costs one EMAIL_DELAY call; the rest of the burst is
+ * rejected here until the window passes. The EMAIL_THROTTLE row updated by EMAIL_DELAY stays the
+ * source of truth across nodes, so a local reservation is cancelled whenever the database refuses it.
+ */
+@Service
+@Slf4j
+public class EmailThrottle {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, AtomicLong> nextAllowedMillis = new ConcurrentHashMap<>();
+
+    private final AtomicInteger granted = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    /**
+     * Local claim on the delay window of an email type.
+     */
+    public static class Reservation {
+        private final AtomicLong slot;
+        private final long previous;
+        private final long reserved;
+
+        private Reservation(AtomicLong slot, long previous, long reserved) {
+            this.slot = slot;
+            this.previous = previous;
+            this.reserved = reserved;
+        }
+
+        /**
+         * Give the window back, unless another reservation already replaced this one.
+         */
+        public void cancel() {
+            slot.compareAndSet(reserved, previous);
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        FunctionCounter.builder("email.throttle.decisions", granted, AtomicInteger::get)
+                .tag("result", "granted").register(meterRegistry);
+        FunctionCounter.builder("email.throttle.decisions", rejected, AtomicInteger::get)
+                .tag("result", "rejected").register(meterRegistry);
+    }
+
+    /**
+     * Reserve the current delay window of the email type on this node.
+     *
+     * @return the reservation, or null when this node already used the window
+     */
+    public Reservation tryReserve(String emailType, long delayMillis) {
+        AtomicLong slot = nextAllowedMillis.computeIfAbsent(emailType, k -> new AtomicLong());
+        while (true) {
+            long now = System.currentTimeMillis();
+            long current = slot.get();
+            if (now < current) {
+                rejected.incrementAndGet();
+                log.debug("[EMAIL THROTTLE] {} is throttled for another {} ms", emailType, current - now);
+                return null;
+            }
+
+            long reserved = now + delayMillis;
+            if (slot.compareAndSet(current, reserved)) {
+                granted.incrementAndGet();
+                return new Reservation(slot, current, reserved);
+            }
+        }
+    }
+
+    /**
+     * Delays may change on {@code /actuator/refresh}, forget local windows so the new values apply at once.
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        nextAllowedMillis.clear();
+    }
+}
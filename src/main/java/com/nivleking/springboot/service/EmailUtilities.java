@@ -1,13 +1,12 @@
 package com.nivleking.springboot.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nivleking.springboot.constant.EmailStatus;
-import com.nivleking.springboot.constant.RegexValidator;
-import com.nivleking.springboot.dto.ConfigMapData;
 import com.nivleking.springboot.dto.EmailDTO;
 import com.nivleking.springboot.model.EmailLog;
-import com.nivleking.springboot.repository.EmailLogRepository;
+import com.nivleking.springboot.utils.EmailAddressParser;
+import com.nivleking.springboot.utils.TemplateParamsContext;
+import com.nivleking.springboot.utils.TemplateSkeleton;
 import jakarta.annotation.Resource;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -16,25 +15,17 @@ import org.apache.hc.client5.http.ConnectTimeoutException;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
-import org.thymeleaf.templatemode.TemplateMode;
-import org.thymeleaf.templateresolver.StringTemplateResolver;
 
 import java.math.BigDecimal;
 import java.net.SocketTimeoutException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
 public class EmailUtilities {
-    @Autowired
-    private ConfigMapData emailHost;
-
-    @Autowired
-    private ConfigMapData emailPort;
-
     @Resource()
     private Map<String, String> emailDelayMap;
 
@@ -42,7 +33,10 @@ public class EmailUtilities {
     private ObjectMapper objectMapper;
 
     @Autowired
-    private EmailLogRepository emailLogRepository;
+    private EmailLogWriter emailLogWriter;
+
+    @Autowired
+    private SpringTemplateEngine htmlTemplateEngine;
 
     @Data
     @AllArgsConstructor
@@ -52,71 +46,42 @@ public class EmailUtilities {
     }
 
     public EmailResult splitEmails(String emails, String emailType) throws Exception {
-        String[] emailSplit = emails.split(";");
-        List<String> localErrors = new ArrayList<>();
-        for(String email : emailSplit) {
-            if (!email.matches(RegexValidator.EMAIL_FORMAT)) {
-                log.debug("[SEND EMAIL][ERR] Invalid email! -> " + "(" + emailType + ")" + " -> " + email);
-                localErrors.add("Invalid email: " + "(" + emailType + ")" + " -> " + email);
-            }
+        EmailAddressParser.ParsedAddresses parsed = EmailAddressParser.parseList(emails);
+        List<String> localErrors = new ArrayList<>(parsed.getInvalid().size());
+        for (String email : parsed.getInvalid()) {
+            log.debug("[SEND EMAIL][ERR] Invalid email! -> " + "(" + emailType + ")" + " -> " + email);
+            localErrors.add("Invalid email: " + "(" + emailType + ")" + " -> " + email);
         }
-        emails = String.join(",", emailSplit);
 
-        return new EmailResult(emails, localErrors);
+        return new EmailResult(parsed.getNormalized(), localErrors);
     }
 
-    private void processList(List<Object> list, Context context, String parentKey) {
-        int index = 0;
-        for (Object item : list) {
-            String key = parentKey + "[" + index + "]";
-            if (item instanceof Map<?,?>) {
-                Map<String, String> details = objectMapper.convertValue(item, HashMap.class);
-                for (Map.Entry<String, String> entry2 : details.entrySet()) {
-                    context.setVariable(entry2.getKey(), details.get(entry2.getKey()));
-                }
-                processParams((Map<String, Object>) item, context);
-            } else if (item instanceof List) {
-                List<Object> details = objectMapper.convertValue(item, new TypeReference<List<Object>>() {});
-                context.setVariable(key, details);
-                processList((List<Object>) item, context, key);
-            } else {
-                context.setVariable(key, item.toString());
-            }
-            index++;
-        }
+    /**
+     * Render the template against the params as they are; nested values are looked up on demand by
+     * {@link TemplateParamsContext} instead of being copied into the context up front.
+     */
+    public String processTemplate(String templateHtml, Map<String, Object> params) {
+        return htmlTemplateEngine.process(templateHtml, new TemplateParamsContext(Locale.getDefault(), params));
     }
 
-    private void processParams(Map<String, Object> params, Context context) {
-        for (Map.Entry<String, Object> entry : params.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-
-            if (value instanceof Map) {
-                Map<String, String> details = objectMapper.convertValue(value, HashMap.class);
-                for (Map.Entry<String, String> entry2 : details.entrySet()) {
-                    context.setVariable(entry2.getKey(), details.get(entry2.getKey()));
-                }
-                processParams((Map<String, Object>) value, context);
-            } else if (value instanceof List) {
-                List<Object> details = objectMapper.convertValue(value, new TypeReference<List<Object>>() {});
-                context.setVariable(key, details);
-                processList((List<Object>) value, context, key);
-            } else {
-                context.setVariable(key, value.toString());
-            }
+    /**
+     * Render {@code templateHtml} once with the shared params into a skeleton that only the
+     * {@code variables} still have to be merged into.
+     *
+     * @return the skeleton, or null when the variables are used in a way that needs a full render per email
+     */
+    public TemplateSkeleton compileTemplate(String templateHtml, Map<String, Object> sharedParams, List<String> variables) {
+        if (!TemplateSkeleton.canCompile(templateHtml, variables)) {
+            return null;
         }
-    }
-
-    public String processTemplate(String templateHtml, Map<String, Object> params) {
-        Context context = new Context(Locale.getDefault());
-        processParams(params, context);
 
-        StringTemplateResolver templateResolver = new StringTemplateResolver();
-        templateResolver.setTemplateMode(TemplateMode.HTML);
+        String nonce = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        TemplateParamsContext context = new TemplateParamsContext(Locale.getDefault(), sharedParams);
+        for (int i = 0; i < variables.size(); i++) {
+            context.setVariable(variables.get(i), TemplateSkeleton.placeholder(nonce, i));
+        }
 
-        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
-        templateEngine.setTemplateResolver(templateResolver);
-        return templateEngine.process(templateHtml, context);
+        return TemplateSkeleton.parse(htmlTemplateEngine.process(templateHtml, context), nonce, variables);
     }
 
     public boolean checkIfEmailNeedsDelay(String emailType) {
@@ -141,96 +106,55 @@ public class EmailUtilities {
         return delayInMillis;
     }
 
-    public void insertLog(EmailDTO dto, String emailId, BigDecimal numberOfRetries) {
-        try {
-            EmailLog emailLog = new EmailLog();
-            emailLog.setEmailId(emailId);
-            emailLog.setEmailType(dto.getEmailType());
-            emailLog.setNumberOfRetries(numberOfRetries);
-            emailLog.setStatus(EmailStatus.PENDING);
-            emailLog.setTemplateId(dto.getTemplateName());
-            emailLog.setJsonInput(objectMapper.writeValueAsString(dto));
-            emailLog.setRequestId(MDC.get("X-B3-TraceId"));
-
-            LocalDateTime now = LocalDateTime.now();
-            emailLog.setCreatedDate(now);
-            emailLog.setLastUpdatedDate(now);
-
-            emailLogRepository.save(emailLog);
-            log.debug("[EMAIL LOG] Inserted pending log: {}", emailId);
-        } catch(Exception e) {
-            log.error("[EMAIL LOG] Failed to insert log: {}", e.getMessage(), e);
-        }
-    }
-
     public void saveSuccessLog(EmailDTO dto, String emailId, BigDecimal numberOfRetries) {
-        try {
-            List<EmailLog> emailLogs = emailLogRepository.findAllByEmailId(emailId);
-            EmailLog emailLog = emailLogs.get(0);
-            emailLog.setStatus(EmailStatus.SUCCESS);
-            emailLog.setEmailType(dto.getEmailType());
-            emailLog.setTemplateId(dto.getTemplateName());
-            emailLog.setNumberOfRetries(numberOfRetries);
-            emailLog.setJsonInput(objectMapper.writeValueAsString(dto));
-            emailLog.setRequestId(MDC.get("X-B3-TraceId"));
-
-            LocalDateTime now = LocalDateTime.now();
-            emailLog.setLastSend(now);
-            emailLog.setLastUpdatedDate(now);
-
-            emailLogRepository.save(emailLog);
-            log.debug("[EMAIL LOG] Updated success log: {}", emailId);
-        } catch(Exception e) {
-            log.error("[EMAIL LOG] Failed to update success log: {}", e.getMessage(), e);
-        }
+        LocalDateTime now = LocalDateTime.now();
+
+        EmailLog emailLog = new EmailLog();
+        emailLog.setEmailId(emailId);
+        emailLog.setStatus(EmailStatus.SUCCESS);
+        emailLog.setEmailType(dto.getEmailType());
+        emailLog.setTemplateId(dto.getTemplateName());
+        emailLog.setNumberOfRetries(numberOfRetries);
+        emailLog.setRequestId(MDC.get("X-B3-TraceId"));
+        emailLog.setLastSend(now);
+        emailLog.setLastUpdatedDate(now);
+
+        emailLogWriter.write(emailLog, dto);
+        log.debug("[EMAIL LOG] Queued success log: {}", emailId);
     }
 
     public void saveErrorLog(EmailDTO dto, String status, String emailId, BigDecimal numberOfRetries, String httpCode, String errorCode, String errorMessage) {
-        try {
-            List<EmailLog> emailLogs = emailLogRepository.findAllByEmailId(emailId);
-            if (emailLogs == null || emailLogs.isEmpty()) {
-                log.warn("[EMAIL LOG] No logs found for email ID: {}, creating new log", emailId);
-                EmailLog emailLog = new EmailLog();
-                emailLog.setEmailId(emailId);
-                emailLog.setStatus(status);
-                emailLog.setCreatedDate(LocalDateTime.now());
-                setupErrorLog(dto, status, numberOfRetries, httpCode, errorCode, errorMessage, emailLog);
-            } else {
-                EmailLog emailLog = emailLogs.get(0);
-                setupErrorLog(dto, status, numberOfRetries, httpCode, errorCode, errorMessage, emailLog);
-            }
-        } catch(Exception e) {
-            log.error("[EMAIL LOG] Failed to update error log: {}", e.getMessage(), e);
-        }
+        saveErrorLog(dto, status, emailId, numberOfRetries, httpCode, errorCode, errorMessage, null);
     }
 
-    private void setupErrorLog(EmailDTO dto, String status, BigDecimal numberOfRetries, String httpCode, String errorCode, String errorMessage, EmailLog emailLog) throws Exception {
-        String truncatedErrorMessage = truncateErrorMessage(errorMessage);
+    /**
+     * Save an error log that {@link EmailRetryWorker} picks up again at {@code nextRetryAt}, or never when it is null.
+     */
+    public void saveErrorLog(EmailDTO dto, String status, String emailId, BigDecimal numberOfRetries, String httpCode, String errorCode, String errorMessage, LocalDateTime nextRetryAt) {
+        LocalDateTime now = LocalDateTime.now();
 
+        EmailLog emailLog = new EmailLog();
+        emailLog.setEmailId(emailId);
         emailLog.setStatus(status);
         emailLog.setEmailType(dto.getEmailType());
         emailLog.setTemplateId(dto.getTemplateName());
         emailLog.setNumberOfRetries(numberOfRetries);
         emailLog.setHttpCode(httpCode);
         emailLog.setErrorCode(errorCode);
-        emailLog.setErrorMessage(truncatedErrorMessage);
-
-        emailLog.setJsonInput(objectMapper.writeValueAsString(dto));
-
+        emailLog.setErrorMessage(truncateErrorMessage(errorMessage));
+        emailLog.setNextRetryAt(nextRetryAt);
         emailLog.setRequestId(MDC.get("X-B3-TraceId"));
-
-        LocalDateTime now = LocalDateTime.now();
         emailLog.setLastSend(now);
         emailLog.setLastUpdatedDate(now);
 
-        emailLogRepository.save(emailLog);
-        log.debug("[EMAIL LOG] Updated error log: {}", dto.getEmailId());
+        emailLogWriter.write(emailLog, dto);
+        log.debug("[EMAIL LOG] Queued error log: {}", emailId);
     }
 
     /**
      * Truncates error message to a reasonable size and adds indication if truncated
      */
-    private String truncateErrorMessage(String errorMessage) {
+    public String truncateErrorMessage(String errorMessage) {
         if (errorMessage == null) {
             return null;
         }
@@ -293,15 +217,4 @@ public class EmailUtilities {
 //        return dateFormat.format(date);
 //    }
 //
-
-    public Properties getDefaultProps() {
-        Properties props = System.getProperties();
-        props.setProperty("mail.smtp.host", emailHost.getValue());
-        props.setProperty("mail.smtp.port", emailPort.getValue());
-        props.setProperty("mail.smtp.auth", "true");
-        props.setProperty("mail.smtp.starttls.enable", "true");
-        props.setProperty("mail.smtp.connectiontimeout", "10000");
-        props.setProperty("mail.smtp.timeout", "10000");
-        return props;
-    }
 }
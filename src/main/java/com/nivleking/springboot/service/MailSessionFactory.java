@@ -0,0 +1,107 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.dto.ConfigMapData;
+import jakarta.mail.Authenticator;
+import jakarta.mail.PasswordAuthentication;
+import jakarta.mail.Session;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The mail {@link Session} for the SMTP host and port from the config server. The session and its
+ * properties are built once per host/port and shared by every send; when {@code /actuator/refresh}
+ * changes the values the next caller builds a new one and swaps it in atomically. Nothing here reads
+ * or writes {@code System.getProperties()}.
+ */
+@Service
+@Slf4j
+public class MailSessionFactory {
+    @Value("${spring.mail.username}")
+    private String emailUsername;
+
+    @Value("${spring.mail.password}")
+    private String emailPassword;
+
+    @Value("${com.nivleking.springboot.email.smtp.chunk-size:262144}")
+    private int chunkSize;
+
+    @Autowired
+    private ConfigMapData emailHost;
+
+    @Autowired
+    private ConfigMapData emailPort;
+
+    private final AtomicReference<MailSession> current = new AtomicReference<>();
+
+    /**
+     * A session with the host and port it was built for. The properties are not modified after the
+     * session is built.
+     */
+    @Getter
+    public static final class MailSession {
+        private final String host;
+        private final int port;
+        private final String username;
+        private final Session session;
+
+        private MailSession(String host, int port, String username, Session session) {
+            this.host = host;
+            this.port = port;
+            this.username = username;
+            this.session = session;
+        }
+
+        private boolean matches(String host, int port) {
+            return this.host.equals(host) && this.port == port;
+        }
+    }
+
+    /**
+     * The session for the current config server values
+     */
+    public MailSession current() {
+        String host = emailHost.getValue();
+        int port = Integer.parseInt(emailPort.getValue());
+
+        MailSession session = current.get();
+        while (session == null || !session.matches(host, port)) {
+            MailSession built = build(host, port);
+            if (current.compareAndSet(session, built)) {
+                log.info("[SEND EMAIL] Built mail session for {}:{}", host, port);
+                return built;
+            }
+            // Another thread swapped in a session first, use it if it is for the same values
+            session = current.get();
+        }
+        return session;
+    }
+
+    public Session getSession() {
+        return current().getSession();
+    }
+
+    private MailSession build(String host, int port) {
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.host", host);
+        props.setProperty("mail.smtp.port", String.valueOf(port));
+        props.setProperty("mail.smtp.auth", "true");
+        props.setProperty("mail.smtp.starttls.enable", "true");
+        props.setProperty("mail.smtp.connectiontimeout", "10000");
+        props.setProperty("mail.smtp.timeout", "10000");
+        // BDAT is only used when the relay advertises CHUNKING
+        props.setProperty("mail.smtp.chunksize", String.valueOf(chunkSize));
+
+        Session session = Session.getInstance(props, new Authenticator() {
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(emailUsername, emailPassword);
+            }
+        });
+        return new MailSession(host, port, emailUsername, session);
+    }
+}
@@ -5,11 +5,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
-import org.thymeleaf.templatemode.TemplateMode;
-import org.thymeleaf.templateresolver.StringTemplateResolver;
 import org.xhtmlrenderer.pdf.ITextRenderer;
 
 import java.io.ByteArrayOutputStream;
@@ -22,6 +21,12 @@ import java.util.List;
 @Component
 @Slf4j
 public class PdfJsonUtilities {
+    @Autowired
+    private SpringTemplateEngine htmlTemplateEngine;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
     public LinkedHashMap<String, Object> jsonToMap(JSONObject jsonObject) throws JSONException {
         LinkedHashMap<String, Object> map = new LinkedHashMap<>();
 
@@ -86,17 +91,12 @@ public class PdfJsonUtilities {
             html = "";
         }
 
-        StringTemplateResolver templateResolver = new StringTemplateResolver();
-        templateResolver.setTemplateMode(TemplateMode.HTML);
-
-        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
-        templateEngine.setTemplateResolver(templateResolver);
-
         try {
-            log.debug("[PDF-UTIL] Generating HTML for data: {}", data == null ? "null" : data.toString());
+            log.debug("[PDF-UTIL] Generating HTML for data of type {}", data == null ? "null" : data.getClass().getSimpleName());
             Context context = new Context();
             context.setVariable("data", data);
-            String processed = templateEngine.process(html, context);
+            String template = html;
+            String processed = pipelineMetrics.pdf(PipelineMetrics.PDF_RENDER, () -> htmlTemplateEngine.process(template, context));
             log.debug("[PDF-UTIL] HTML generation complete (length={})", processed == null ? 0 : processed.length());
             return processed;
         } catch (Exception e) {
@@ -116,8 +116,14 @@ public class PdfJsonUtilities {
         try {
             log.debug("[PDF-UTIL] Setting document for renderer (html length={})", html.length());
             renderer.setDocumentFromString(html);
-            renderer.layout();
-            renderer.createPDF(outputStream);
+            pipelineMetrics.pdf(PipelineMetrics.PDF_LAYOUT, () -> {
+                renderer.layout();
+                return null;
+            });
+            pipelineMetrics.pdf(PipelineMetrics.PDF_CREATE, () -> {
+                renderer.createPDF(outputStream);
+                return null;
+            });
             renderer.finishPDF();
             outputStream.flush();
             log.debug("[PDF-UTIL] PDF creation finished (bytes={})", outputStream.size());
@@ -0,0 +1,136 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.utils.Tracing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and tracing spans for the stages of the email and PDF pipelines, and counters for emails that
+ * are not sent because of an email type delay or because they were sent already.
+ * <ul>
+ *   <li>{@code email.pipeline}: tagged with stage, email_type, template and outcome, without histogram</li>
+ *   <li>{@code email.pipeline.stage}: tagged with stage and outcome, with percentile histogram</li>
+ *   <li>{@code pdf.pipeline}: tagged with stage and outcome, with percentile histogram</li>
+ *   <li>{@code email.suppressed}: tagged with reason ({@code delay} or {@code duplicate}) and email_type</li>
+ * </ul>
+ * The number of template and email_type tag values is capped in {@link com.nivleking.springboot.config.MetricsConfiguration};
+ * their combinations can still run into the thousands, so those timers carry no histogram buckets.
+ */
+@Service
+public class PipelineMetrics {
+    public static final String EMAIL_TIMER = "email.pipeline";
+    public static final String EMAIL_STAGE_TIMER = "email.pipeline.stage";
+    public static final String PDF_TIMER = "pdf.pipeline";
+    public static final String SUPPRESSED_COUNTER = "email.suppressed";
+
+    public static final String EMAIL_INSERT = "email_insert";
+    public static final String EMAIL_DELAY = "email_delay";
+    public static final String TEMPLATE_FETCH = "template_fetch";
+    public static final String TEMPLATE_RENDER = "template_render";
+    public static final String MIME_ASSEMBLY = "mime_assembly";
+    public static final String SMTP_SEND = "smtp_send";
+    public static final String LOG_WRITE = "log_write";
+
+    public static final String PDF_RENDER = "thymeleaf_render";
+    public static final String PDF_LAYOUT = "layout";
+    public static final String PDF_CREATE = "create_pdf";
+
+    public static final String SUPPRESSED_DELAY = "delay";
+    public static final String SUPPRESSED_DUPLICATE = "duplicate";
+
+    private static final String NONE = "none";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * A pipeline stage. The exception type is inferred from the lambda, so callers keep their checked exceptions.
+     */
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Run and time an email pipeline stage, tagging the outcome with {@code success} or {@code error}
+     */
+    public <T, E extends Exception> T email(String stage, EmailDTO emailDTO, Stage<T, E> work) throws E {
+        Tracing.Span span = Tracing.startSpan("email." + stage);
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = work.run();
+            outcome = "success";
+            return result;
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+            long elapsed = System.nanoTime() - start;
+            emailTimer(stage, emailDTO, outcome).record(elapsed, TimeUnit.NANOSECONDS);
+            Timer.builder(EMAIL_STAGE_TIMER)
+                    .tag("stage", stage)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Run and time a PDF pipeline stage, tagging the outcome with {@code success} or {@code error}
+     */
+    public <T, E extends Exception> T pdf(String stage, Stage<T, E> work) throws E {
+        Tracing.Span span = Tracing.startSpan("pdf." + stage);
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = work.run();
+            outcome = "success";
+            return result;
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+            Timer.builder(PDF_TIMER)
+                    .tag("stage", stage)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Count an email that is not sent
+     *
+     * @param reason {@link #SUPPRESSED_DELAY} or {@link #SUPPRESSED_DUPLICATE}
+     */
+    public void suppressed(EmailDTO emailDTO, String reason) {
+        Counter.builder(SUPPRESSED_COUNTER)
+                .tag("reason", reason)
+                .tag("email_type", tagValue(emailDTO.getEmailType()))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer emailTimer(String stage, EmailDTO emailDTO, String outcome) {
+        return Timer.builder(EMAIL_TIMER)
+                .tag("stage", stage)
+                .tag("email_type", tagValue(emailDTO.getEmailType()))
+                .tag("template", tagValue(emailDTO.getTemplateName()))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String tagValue(String value) {
+        return value == null || value.isEmpty() ? NONE : value;
+    }
+}
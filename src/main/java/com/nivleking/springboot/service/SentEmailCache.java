@@ -0,0 +1,55 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.utils.BoundedCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Node-local record of email ids known to be sent successfully, so duplicate submissions of those
+ * ids are answered without calling EMAIL_INSERT / EMAIL_DELAY. Only positive answers come from the
+ * cache: an id that is not here may still have been sent by another node, which the database decides.
+ */
+@Service
+@Slf4j
+public class SentEmailCache {
+    @Value("${com.nivleking.springboot.email.sent-cache.max-size:100000}")
+    private int maxSize;
+
+    @Value("${com.nivleking.springboot.email.sent-cache.ttl-millis:86400000}")
+    private long ttlMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BoundedCache<String, Boolean> sentEmailIds;
+
+    @PostConstruct
+    public void init() {
+        sentEmailIds = new BoundedCache<>(maxSize, ttlMillis);
+
+        FunctionCounter.builder("cache.gets", sentEmailIds, BoundedCache::getHitCount)
+                .tag("cache", "email.sent").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", sentEmailIds, BoundedCache::getMissCount)
+                .tag("cache", "email.sent").tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", sentEmailIds, BoundedCache::getEvictionCount)
+                .tag("cache", "email.sent").register(meterRegistry);
+        Gauge.builder("cache.size", sentEmailIds, BoundedCache::size)
+                .tag("cache", "email.sent").register(meterRegistry);
+    }
+
+    public boolean isSent(String emailId) {
+        return emailId != null && sentEmailIds.get(emailId) != null;
+    }
+
+    public void markSent(String emailId) {
+        if (emailId != null) {
+            sentEmailIds.put(emailId, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.exception.SmtpUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.SendFailedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for SMTP sends on this node.
+ * <ul>
+ *   <li>An AIMD concurrency limit: every send that completes within {@code slow-call-millis} raises the
+ *   limit by {@code 1/limit}, a slow or failed send multiplies it by {@code backoff-ratio}. Callers wait at
+ *   most {@code acquire-timeout-millis} for a slot, so a degraded relay cannot hold every request thread.</li>
+ *   <li>A circuit breaker: {@code failure-threshold} consecutive relay failures open the circuit and sends
+ *   fail at once for {@code open-millis}. After that a single trial send decides whether it closes again.</li>
+ * </ul>
+ * Recipient rejections ({@link SendFailedException}) mean the relay is answering, so they count as successes.
+ */
+@Service
+@Slf4j
+public class SmtpDeliveryGuard {
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.initial-limit:4}")
+    private int initialLimit;
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.min-limit:1}")
+    private int minLimit;
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.max-limit:8}")
+    private int maxLimit;
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.backoff-ratio:0.5}")
+    private double backoffRatio;
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.slow-call-millis:5000}")
+    private long slowCallMillis;
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.acquire-timeout-millis:1000}")
+    private long acquireTimeoutMillis;
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${com.nivleking.springboot.email.smtp.guard.open-millis:30000}")
+    private long openMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntilMillis;
+    private boolean trialInFlight;
+
+    private final AtomicLong rejectedOpen = new AtomicLong();
+    private final AtomicLong rejectedLimit = new AtomicLong();
+
+    /**
+     * A slot taken by one send. Release it exactly once with the outcome of the send, or cancel it.
+     */
+    public final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final boolean trial;
+
+        private Permit(boolean trial) {
+            this.trial = trial;
+        }
+
+        /**
+         * @param failure what the send threw, or null when it succeeded
+         */
+        public void release(Throwable failure) {
+            onRelease(this, failure, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+
+        /**
+         * Give the slot back when the send failed before reaching the relay, e.g. no pooled connection was
+         * free. The limit and the circuit are left as they were.
+         */
+        public void cancel() {
+            onCancel(this);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        Gauge.builder("email.smtp.guard.limit", this, g -> g.getLimit()).register(meterRegistry);
+        Gauge.builder("email.smtp.guard.in-flight", this, g -> g.getInFlight()).register(meterRegistry);
+        Gauge.builder("email.smtp.guard.state", this, g -> g.getState().ordinal()).register(meterRegistry);
+        FunctionCounter.builder("email.smtp.guard.rejected", rejectedOpen, AtomicLong::get)
+                .tag("reason", "circuit_open").register(meterRegistry);
+        FunctionCounter.builder("email.smtp.guard.rejected", rejectedLimit, AtomicLong::get)
+                .tag("reason", "limit").register(meterRegistry);
+    }
+
+    /**
+     * Take a slot for one send, waiting up to {@code acquire-timeout-millis} while the limit is reached.
+     *
+     * @throws SmtpUnavailableException if the circuit is open or no slot became free in time
+     */
+    public synchronized Permit acquire() throws SmtpUnavailableException {
+        long deadline = System.currentTimeMillis() + acquireTimeoutMillis;
+        while (true) {
+            long now = System.currentTimeMillis();
+            if (state == State.OPEN && now >= openUntilMillis) {
+                log.info("[SMTP GUARD] Circuit half-open, letting a trial send through");
+                state = State.HALF_OPEN;
+            }
+
+            if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+                rejectedOpen.incrementAndGet();
+                throw new SmtpUnavailableException("SMTP relay circuit is open, sends are paused");
+            }
+
+            if (state == State.HALF_OPEN) {
+                trialInFlight = true;
+                inFlight++;
+                return new Permit(true);
+            }
+
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return new Permit(false);
+            }
+
+            long remaining = deadline - now;
+            if (remaining <= 0) {
+                rejectedLimit.incrementAndGet();
+                throw new SmtpUnavailableException("SMTP concurrency limit of " + (int) limit + " reached");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SmtpUnavailableException("Interrupted while waiting for an SMTP send slot");
+            }
+        }
+    }
+
+    /**
+     * Whether a send would currently be let through the circuit breaker, for pollers that should not
+     * claim work while the relay is down.
+     */
+    public synchronized boolean isAvailable() {
+        return state == State.CLOSED
+                || (state == State.OPEN && System.currentTimeMillis() >= openUntilMillis)
+                || (state == State.HALF_OPEN && !trialInFlight);
+    }
+
+    /**
+     * Close the circuit and forget the failure streak, e.g. once the relay is known to be fixed.
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        notifyAll();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Current limiter and circuit breaker state, as shown by {@code /actuator/smtp}.
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("state", state);
+        snapshot.put("limit", limit);
+        snapshot.put("inFlight", inFlight);
+        snapshot.put("consecutiveFailures", consecutiveFailures);
+        snapshot.put("openRemainingMillis", state == State.OPEN ? Math.max(0, openUntilMillis - System.currentTimeMillis()) : 0);
+        snapshot.put("rejectedCircuitOpen", rejectedOpen.get());
+        snapshot.put("rejectedLimit", rejectedLimit.get());
+        return snapshot;
+    }
+
+    private synchronized void onCancel(Permit permit) {
+        inFlight--;
+        if (permit.trial) {
+            trialInFlight = false;
+        }
+        notifyAll();
+    }
+
+    private synchronized void onRelease(Permit permit, Throwable failure, long latencyMillis) {
+        inFlight--;
+        if (permit.trial) {
+            trialInFlight = false;
+        }
+
+        boolean relayFailure = failure != null && !(failure instanceof SendFailedException);
+        if (relayFailure || latencyMillis > slowCallMillis) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+
+        if (!relayFailure) {
+            if (state == State.HALF_OPEN) {
+                log.info("[SMTP GUARD] Trial send succeeded, closing circuit");
+                state = State.CLOSED;
+            }
+            consecutiveFailures = 0;
+        } else if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("[SMTP GUARD] Opening circuit for {} ms after {} failure(s), last: {}",
+                        openMillis, Math.max(1, consecutiveFailures), failure.getMessage());
+            }
+            state = State.OPEN;
+            openUntilMillis = System.currentTimeMillis() + openMillis;
+        }
+
+        notifyAll();
+    }
+}
@@ -0,0 +1,399 @@
+package com.nivleking.springboot.service;
+
+import com.nivleking.springboot.utils.PipeliningSmtpTransport;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of connected and authenticated SMTP transports, keyed by host/port/user.
+ * Idle connections are NOOP-checked before reuse and closed after {@code max-idle-millis}.
+ * Pools whose key no longer matches the config server values are retired on refresh. Sessions come
+ * from the {@link MailSessionFactory}.
+ * <p>
+ * Connections use PIPELINING and CHUNKING when the relay advertises them, see
+ * {@link PipeliningSmtpTransport}. A {@link Batch} sends several messages back-to-back over one connection.
+ */
+@Service
+@Slf4j
+public class SmtpTransportPool {
+    @Value("${spring.mail.username}")
+    private String emailUsername;
+
+    @Value("${spring.mail.password}")
+    private String emailPassword;
+
+    @Value("${com.nivleking.springboot.email.smtp.pool.max-size:8}")
+    private int maxSize;
+
+    @Value("${com.nivleking.springboot.email.smtp.pool.max-idle-millis:60000}")
+    private long maxIdleMillis;
+
+    @Value("${com.nivleking.springboot.email.smtp.pool.validate-after-idle-millis:5000}")
+    private long validateAfterIdleMillis;
+
+    @Value("${com.nivleking.springboot.email.smtp.pool.borrow-timeout-millis:10000}")
+    private long borrowTimeoutMillis;
+
+    @Value("${com.nivleking.springboot.email.smtp.pipelining:true}")
+    private boolean pipelining;
+
+    @Autowired
+    private MailSessionFactory mailSessionFactory;
+
+    @Autowired
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<PoolKey, KeyedPool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger evicted = new AtomicInteger();
+    private final AtomicInteger borrowTimeouts = new AtomicInteger();
+
+    @Data
+    @AllArgsConstructor
+    private static class PoolKey {
+        private String host;
+        private int port;
+        private String username;
+    }
+
+    private static class PooledTransport {
+        private final Transport transport;
+        private long lastUsed;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private static class KeyedPool {
+        private final PoolKey key;
+        private final Session session;
+        private final Semaphore permits;
+        private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile boolean retired;
+
+        private KeyedPool(PoolKey key, Session session, int maxSize) {
+            this.key = key;
+            this.session = session;
+            this.permits = new Semaphore(maxSize, true);
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("email.smtp.pool.active", this, p -> p.sumActive()).register(meterRegistry);
+        Gauge.builder("email.smtp.pool.idle", this, p -> p.sumIdle()).register(meterRegistry);
+        Gauge.builder("email.smtp.pool.keys", pools, Map::size).register(meterRegistry);
+        FunctionCounter.builder("email.smtp.pool.created", created, AtomicInteger::get).register(meterRegistry);
+        FunctionCounter.builder("email.smtp.pool.evicted", evicted, AtomicInteger::get).register(meterRegistry);
+        FunctionCounter.builder("email.smtp.pool.borrow.timeouts", borrowTimeouts, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Send a message over a pooled connection for the current host/port/user, once admitted by the
+     * {@link SmtpDeliveryGuard}. A connection that fails while sending is discarded instead of being
+     * returned to the pool.
+     *
+     * @throws com.nivleking.springboot.exception.SmtpUnavailableException if the guard refused the send
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        try (Batch batch = openBatch()) {
+            batch.send(message);
+        }
+    }
+
+    /**
+     * Hold one connection for several messages of the same sender, e.g. a batch of a campaign. Close
+     * the batch to return the connection.
+     */
+    public Batch openBatch() {
+        return new Batch(currentPool());
+    }
+
+    /**
+     * Messages sent back-to-back over one pooled connection. Every message is still admitted by the
+     * {@link SmtpDeliveryGuard} on its own. A connection that fails while sending is discarded and the
+     * next message borrows another one, except after a rejection ({@link SendFailedException}) where the
+     * transaction is reset and the connection kept. {@link #returnConnection()} hands the connection
+     * back between messages, e.g. while the caller waits, and the next message borrows again. Not thread
+     * safe.
+     */
+    public final class Batch implements AutoCloseable {
+        private final KeyedPool pool;
+        private PooledTransport pooled;
+
+        private Batch(KeyedPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * @throws com.nivleking.springboot.exception.SmtpUnavailableException if the guard refused the send
+         */
+        public void send(MimeMessage message) throws MessagingException {
+            // A malformed message fails here, before it can count against the relay
+            message.saveChanges();
+            Address[] recipients = message.getAllRecipients();
+
+            SmtpDeliveryGuard.Permit permit = smtpDeliveryGuard.acquire();
+            // Only connect, I/O and SMTP reply failures are the relay's; local ones leave the guard as it was
+            boolean contacted = false;
+            boolean judged = false;
+            Throwable failure = null;
+            try {
+                if (pooled != null && !isUsable(pool, pooled)) {
+                    release(pool, pooled, false);
+                    pooled = null;
+                }
+                if (pooled == null) {
+                    reserve(pool);
+                    contacted = true;
+                    pooled = borrow(pool);
+                } else {
+                    contacted = true;
+                }
+
+                boolean healthy = false;
+                try {
+                    pooled.transport.sendMessage(message, recipients);
+                    pooled.lastUsed = System.currentTimeMillis();
+                    healthy = true;
+                } catch (SendFailedException e) {
+                    // The relay refused recipients or the message, the session itself is still fine
+                    healthy = reset(pooled);
+                    throw e;
+                } finally {
+                    if (!healthy) {
+                        release(pool, pooled, false);
+                        pooled = null;
+                    }
+                }
+                judged = true;
+            } catch (MessagingException e) {
+                if (contacted) {
+                    failure = e;
+                    judged = true;
+                }
+                throw e;
+            } finally {
+                if (judged) {
+                    permit.release(failure);
+                } else {
+                    permit.cancel();
+                }
+            }
+        }
+
+        /**
+         * Return the held connection to the pool, the batch stays open and borrows on the next send.
+         */
+        public void returnConnection() {
+            if (pooled != null) {
+                release(pool, pooled, true);
+                pooled = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            returnConnection();
+        }
+    }
+
+    private KeyedPool currentPool() {
+        MailSessionFactory.MailSession mailSession = mailSessionFactory.current();
+        PoolKey key = new PoolKey(mailSession.getHost(), mailSession.getPort(), mailSession.getUsername());
+        return pools.computeIfAbsent(key, k -> {
+            log.info("[SMTP POOL] Creating pool for {}:{} ({})", k.getHost(), k.getPort(), k.getUsername());
+            return new KeyedPool(k, mailSession.getSession(), maxSize);
+        });
+    }
+
+    /**
+     * Take one of the pool's connection slots, waiting up to {@code borrow-timeout-millis}. Pair with
+     * {@link #borrow(KeyedPool)}.
+     */
+    private void reserve(KeyedPool pool) throws MessagingException {
+        try {
+            if (!pool.permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new MessagingException("Timed out waiting for an SMTP connection to " + pool.key.getHost());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+    }
+
+    /**
+     * Hand out an idle connection or open a new one, in a slot taken by {@link #reserve(KeyedPool)}.
+     * The slot is given back when this fails.
+     */
+    private PooledTransport borrow(KeyedPool pool) throws MessagingException {
+        try {
+            PooledTransport pooled;
+            while ((pooled = pool.idle.pollFirst()) != null) {
+                if (isUsable(pool, pooled)) {
+                    pool.active.incrementAndGet();
+                    return pooled;
+                }
+                closeQuietly(pooled);
+            }
+
+            Transport transport = pipelining
+                    ? pool.session.getTransport(PipeliningSmtpTransport.PROVIDER)
+                    : pool.session.getTransport("smtp");
+            transport.connect(pool.key.getHost(), pool.key.getPort(), emailUsername, emailPassword);
+            created.incrementAndGet();
+            log.debug("[SMTP POOL] Opened new connection to {}:{}", pool.key.getHost(), pool.key.getPort());
+            pool.active.incrementAndGet();
+            return new PooledTransport(transport);
+        } catch (MessagingException | RuntimeException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * RSET the mail transaction after a rejection so the connection can be reused
+     *
+     * @return whether the connection is still usable
+     */
+    private boolean reset(PooledTransport pooled) {
+        if (!(pooled.transport instanceof SMTPTransport)) {
+            return false;
+        }
+        try {
+            int code = ((SMTPTransport) pooled.transport).simpleCommand("RSET");
+            pooled.lastUsed = System.currentTimeMillis();
+            return code == 250;
+        } catch (MessagingException e) {
+            log.debug("[SMTP POOL] RSET after rejection failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isUsable(KeyedPool pool, PooledTransport pooled) {
+        long idleFor = System.currentTimeMillis() - pooled.lastUsed;
+        // isConnected() issues a NOOP, only pay for it when the connection sat idle for a while
+        if (idleFor < validateAfterIdleMillis || pooled.transport.isConnected()) {
+            return true;
+        }
+        log.debug("[SMTP POOL] Discarding stale connection to {}", pool.key.getHost());
+        return false;
+    }
+
+    private void release(KeyedPool pool, PooledTransport pooled, boolean healthy) {
+        pool.active.decrementAndGet();
+        if (healthy && !pool.retired) {
+            pooled.lastUsed = System.currentTimeMillis();
+            pool.idle.offerFirst(pooled);
+        } else {
+            closeQuietly(pooled);
+        }
+        pool.permits.release();
+    }
+
+    @Scheduled(fixedDelayString = "${com.nivleking.springboot.email.smtp.pool.eviction-interval-millis:30000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (KeyedPool pool : pools.values()) {
+            Iterator<PooledTransport> iterator = pool.idle.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledTransport pooled = iterator.next();
+                if (now - pooled.lastUsed > maxIdleMillis && pool.idle.removeLastOccurrence(pooled)) {
+                    evicted.incrementAndGet();
+                    closeQuietly(pooled);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retire pools that no longer match the SMTP host/port after {@code /actuator/refresh}.
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        MailSessionFactory.MailSession mailSession = mailSessionFactory.current();
+        PoolKey current = new PoolKey(mailSession.getHost(), mailSession.getPort(), mailSession.getUsername());
+        for (KeyedPool pool : pools.values()) {
+            if (!pool.key.equals(current)) {
+                log.info("[SMTP POOL] SMTP config changed, retiring pool for {}:{}", pool.key.getHost(), pool.key.getPort());
+                retire(pool);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (KeyedPool pool : pools.values()) {
+            retire(pool);
+        }
+    }
+
+    private void retire(KeyedPool pool) {
+        pool.retired = true;
+        pools.remove(pool.key, pool);
+        PooledTransport pooled;
+        while ((pooled = pool.idle.pollFirst()) != null) {
+            evicted.incrementAndGet();
+            closeQuietly(pooled);
+        }
+    }
+
+    private void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("[SMTP POOL] Error while closing connection: {}", e.getMessage());
+        }
+    }
+
+    private int sumActive() {
+        int total = 0;
+        for (KeyedPool pool : pools.values()) {
+            total += pool.active.get();
+        }
+        return total;
+    }
+
+    private int sumIdle() {
+        int total = 0;
+        for (KeyedPool pool : pools.values()) {
+            total += pool.idle.size();
+        }
+        return total;
+    }
+}
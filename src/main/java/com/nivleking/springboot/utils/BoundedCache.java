@@ -0,0 +1,92 @@
+package com.nivleking.springboot.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small thread-safe LRU cache with a per-entry TTL.
+ * {@link #get(Object)} returns {@code null} for absent or expired keys, so callers that need
+ * negative caching should store an explicit "absent" value (e.g. {@code Optional.empty()}).
+ */
+public class BoundedCache<K, V> {
+    private final int maxSize;
+    private final long defaultTtlMillis;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private CacheEntry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public BoundedCache(int maxSize, long defaultTtlMillis) {
+        this.maxSize = maxSize;
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, defaultTtlMillis);
+    }
+
+    public synchronized void put(K key, V value, long ttlMillis) {
+        entries.put(key, new CacheEntry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+}
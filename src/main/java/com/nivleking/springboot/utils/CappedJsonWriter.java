@@ -0,0 +1,63 @@
+package com.nivleking.springboot.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Serializes values for log output with an upper bound on the length. Serialization stops shortly
+ * after the limit is reached, so a large payload (e.g. PDF data) costs about the same as a small one.
+ */
+public final class CappedJsonWriter {
+    private static final String TRUNCATED = "...[truncated]";
+
+    private CappedJsonWriter() {
+    }
+
+    /**
+     * @return the JSON of {@code value}, cut to {@code maxChars} and marked when longer
+     */
+    public static String write(ObjectMapper objectMapper, Object value, int maxChars) {
+        CappedWriter writer = new CappedWriter(maxChars);
+        try {
+            objectMapper.writeValue(writer, value);
+        } catch (IOException e) {
+            if (!writer.full) {
+                return "[unserializable " + (value == null ? "null" : value.getClass().getSimpleName()) + "]";
+            }
+        }
+        return writer.full ? writer.buffer + TRUNCATED : writer.buffer.toString();
+    }
+
+    private static class CappedWriter extends Writer {
+        private final StringBuilder buffer;
+        private final int maxChars;
+        private boolean full;
+
+        private CappedWriter(int maxChars) {
+            this.buffer = new StringBuilder(Math.min(maxChars, 1024));
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            int room = maxChars - buffer.length();
+            if (length > room) {
+                buffer.append(chars, offset, Math.max(0, room));
+                full = true;
+                // Aborts the serialization, the caller keeps what fits
+                throw new IOException("Log payload limit of " + maxChars + " characters reached");
+            }
+            buffer.append(chars, offset, length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.nivleking.springboot.utils;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hand-written validator for email addresses, accepting exactly what
+ * {@link com.nivleking.springboot.constant.RegexValidator#EMAIL_FORMAT} accepts:
+ * <pre>
+ *   local  = segment *("." segment)        segment = 1*[a-zA-Z0-9_+&amp;*-]
+ *   domain = 1*(label ".") tld             label   = 1*[a-zA-Z0-9-], tld = 2*7[a-zA-Z]
+ * </pre>
+ * Addresses are checked in place, so neither validation nor list parsing compiles a pattern or
+ * allocates per address beyond the returned strings.
+ */
+public final class EmailAddressParser {
+    private static final int MIN_TLD_LENGTH = 2;
+    private static final int MAX_TLD_LENGTH = 7;
+
+    private EmailAddressParser() {
+    }
+
+    /**
+     * Result of parsing a {@code ;}-separated recipient list.
+     */
+    @Getter
+    public static final class ParsedAddresses {
+        /** Every address in list order, including invalid ones */
+        private final List<String> addresses;
+        /** Addresses that failed validation, in list order */
+        private final List<String> invalid;
+        /** Addresses joined with {@code ,} as expected by {@code InternetAddress.parse} */
+        private final String normalized;
+
+        private ParsedAddresses(List<String> addresses, List<String> invalid, String normalized) {
+            this.addresses = addresses;
+            this.invalid = invalid;
+            this.normalized = normalized;
+        }
+
+        public boolean isValid() {
+            return invalid.isEmpty();
+        }
+    }
+
+    public static boolean isValid(CharSequence address) {
+        return address != null && isValid(address, 0, address.length());
+    }
+
+    /**
+     * Validate {@code address[start, end)} without copying it.
+     */
+    public static boolean isValid(CharSequence address, int start, int end) {
+        // Local part: dot-separated, non-empty segments
+        int i = start;
+        boolean segmentEmpty = true;
+        for (; i < end; i++) {
+            char c = address.charAt(i);
+            if (c == '@') {
+                break;
+            }
+            if (c == '.') {
+                if (segmentEmpty) {
+                    return false;
+                }
+                segmentEmpty = true;
+            } else if (isLocalChar(c)) {
+                segmentEmpty = false;
+            } else {
+                return false;
+            }
+        }
+        if (i == end || segmentEmpty) {
+            return false;
+        }
+
+        // Domain: one or more labels each followed by a dot, then an alphabetic TLD
+        int labels = 0;
+        int labelLength = 0;
+        boolean labelAlpha = true;
+        for (i = i + 1; i < end; i++) {
+            char c = address.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return false;
+                }
+                labels++;
+                labelLength = 0;
+                labelAlpha = true;
+            } else if (isLabelChar(c)) {
+                labelLength++;
+                labelAlpha &= isAlpha(c);
+            } else {
+                return false;
+            }
+        }
+
+        return labels > 0 && labelAlpha && labelLength >= MIN_TLD_LENGTH && labelLength <= MAX_TLD_LENGTH;
+    }
+
+    /**
+     * Split a {@code ;}-separated list in one pass, validating each address and building the
+     * {@code ,}-separated form. Empty entries are kept (and reported invalid) except at the end of
+     * the list, matching {@code String.split(";")}.
+     */
+    public static ParsedAddresses parseList(String list) {
+        List<String> addresses = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        int length = list.length();
+
+        // Trailing separators produce no entries, like String.split
+        int end = length;
+        while (end > 0 && list.charAt(end - 1) == ';') {
+            end--;
+        }
+        if (end == 0 && length > 0) {
+            return new ParsedAddresses(Collections.<String>emptyList(), Collections.<String>emptyList(), "");
+        }
+
+        StringBuilder normalized = new StringBuilder(end);
+        int start = 0;
+        while (true) {
+            int separator = list.indexOf(';', start);
+            int segmentEnd = separator == -1 || separator > end ? end : separator;
+
+            String address = list.substring(start, segmentEnd);
+            addresses.add(address);
+            if (!isValid(list, start, segmentEnd)) {
+                invalid.add(address);
+            }
+            normalized.append(list, start, segmentEnd);
+
+            if (segmentEnd == end) {
+                break;
+            }
+            normalized.append(',');
+            start = segmentEnd + 1;
+        }
+
+        return new ParsedAddresses(addresses, invalid, normalized.toString());
+    }
+
+    private static boolean isLocalChar(char c) {
+        return isAlpha(c) || (c >= '0' && c <= '9')
+                || c == '_' || c == '+' || c == '&' || c == '*' || c == '-';
+    }
+
+    private static boolean isLabelChar(char c) {
+        return isAlpha(c) || (c >= '0' && c <= '9') || c == '-';
+    }
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,36 @@
+package com.nivleking.springboot.utils;
+
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.Map;
+
+/**
+ * Carry the caller's MDC (trace ids, request input) and span over to the worker thread.
+ */
+public class MdcTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> contextMap = MDC.getCopyOfContextMap();
+        Tracing.Span span = Tracing.current();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            if (contextMap == null) {
+                MDC.clear();
+            } else {
+                MDC.setContextMap(contextMap);
+            }
+            Tracing.Span previousSpan = Tracing.attach(span);
+            try {
+                runnable.run();
+            } finally {
+                Tracing.attach(previousSpan);
+                if (previous == null) {
+                    MDC.clear();
+                } else {
+                    MDC.setContextMap(previous);
+                }
+            }
+        };
+    }
+}
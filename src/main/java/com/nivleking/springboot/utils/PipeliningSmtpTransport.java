@@ -0,0 +1,145 @@
+package com.nivleking.springboot.utils;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.URLName;
+import jakarta.mail.event.TransportEvent;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPMessage;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SMTP transport that uses PIPELINING (RFC 2920) when the relay advertises it: {@code MAIL FROM} and
+ * every {@code RCPT TO} are written at once and their replies read afterwards, so a message costs two
+ * round trips (envelope, then DATA or BDAT) instead of one per command and recipient. With
+ * {@code mail.smtp.chunksize} set and CHUNKING (RFC 3030) advertised the content goes out as BDAT.
+ * <p>
+ * Messages with SMTP envelope options ({@link SMTPMessage}), non-internet addresses or a relay without
+ * PIPELINING are sent by {@link SMTPTransport} as usual. Like {@link SMTPTransport} without
+ * {@code mail.smtp.sendpartial}, a message with any rejected recipient is not sent at all.
+ */
+public class PipeliningSmtpTransport extends SMTPTransport {
+    public static final Provider PROVIDER = new Provider(Provider.Type.TRANSPORT, "smtp",
+            PipeliningSmtpTransport.class.getName(), "nivleking", "1.0");
+
+    private static final String[] IGNORED_HEADERS = {"Bcc", "Content-Length"};
+
+    public PipeliningSmtpTransport(Session session, URLName urlname) {
+        super(session, urlname);
+    }
+
+    @Override
+    public synchronized void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        if (!supportsExtension("PIPELINING") || !(message instanceof MimeMessage) || message instanceof SMTPMessage
+                || addresses == null || addresses.length == 0 || !allInternetAddresses(addresses)) {
+            super.sendMessage(message, addresses);
+            return;
+        }
+        checkConnected();
+
+        // One write for the whole group, otherwise Nagle holds the RCPTs back until MAIL FROM is acknowledged
+        StringBuilder envelope = new StringBuilder("MAIL FROM:<").append(envelopeFrom((MimeMessage) message)).append('>');
+        for (Address address : addresses) {
+            envelope.append("\r\nRCPT TO:<").append(((InternetAddress) address).getAddress()).append('>');
+        }
+        sendCommand(envelope.toString());
+
+        // Read every reply even after a failure, the connection stays in sync for the next message
+        int mailCode = readServerResponse();
+        String mailResponse = getLastServerResponse();
+        List<Address> valid = new ArrayList<>(addresses.length);
+        List<Address> invalid = new ArrayList<>();
+        SendFailedException rejections = null;
+        for (Address address : addresses) {
+            int code = readServerResponse();
+            if (code == 250 || code == 251) {
+                valid.add(address);
+                continue;
+            }
+            invalid.add(address);
+            SMTPAddressFailedException rejection = new SMTPAddressFailedException((InternetAddress) address,
+                    "RCPT TO", code, getLastServerResponse());
+            if (rejections == null) {
+                rejections = rejection;
+            } else {
+                rejections.setNextException(rejection);
+            }
+        }
+
+        if (mailCode != 250) {
+            reset();
+            throw new SMTPSendFailedException("MAIL FROM", mailCode, mailResponse, null, null, addresses, null);
+        }
+        if (!invalid.isEmpty()) {
+            reset();
+            Address[] invalidAddresses = invalid.toArray(new Address[0]);
+            Address[] validAddresses = valid.toArray(new Address[0]);
+            notifyTransportListeners(TransportEvent.MESSAGE_NOT_DELIVERED, new Address[0], validAddresses, invalidAddresses, message);
+            throw new SendFailedException("Invalid Addresses", rejections, new Address[0], validAddresses, invalidAddresses);
+        }
+
+        boolean chunking = supportsExtension("CHUNKING") && chunkSize() > 0;
+        try {
+            OutputStream content = chunking ? bdat() : data();
+            ((MimeMessage) message).writeTo(content, IGNORED_HEADERS);
+            if (chunking) {
+                finishBdat();
+            } else {
+                finishData();
+            }
+        } catch (IOException e) {
+            throw new MessagingException("IOException while sending message", e);
+        }
+        notifyTransportListeners(TransportEvent.MESSAGE_DELIVERED, addresses, new Address[0], new Address[0], message);
+    }
+
+    private void reset() throws MessagingException {
+        simpleCommand("RSET");
+    }
+
+    private String envelopeFrom(MimeMessage message) throws MessagingException {
+        String from = session.getProperty("mail.smtp.from");
+        if (from != null && !from.isEmpty()) {
+            return from;
+        }
+        Address[] senders = message.getFrom();
+        if (senders != null && senders.length > 0 && senders[0] instanceof InternetAddress) {
+            return ((InternetAddress) senders[0]).getAddress();
+        }
+        InternetAddress local = InternetAddress.getLocalAddress(session);
+        if (local == null) {
+            throw new MessagingException("Can't determine SMTP MAIL FROM address");
+        }
+        return local.getAddress();
+    }
+
+    private int chunkSize() {
+        String chunkSize = session.getProperty("mail.smtp.chunksize");
+        try {
+            return chunkSize == null ? 0 : Integer.parseInt(chunkSize.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean allInternetAddresses(Address[] addresses) {
+        for (Address address : addresses) {
+            if (!(address instanceof InternetAddress)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
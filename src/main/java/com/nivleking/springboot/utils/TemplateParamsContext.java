@@ -0,0 +1,180 @@
+package com.nivleking.springboot.utils;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.EngineContext;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IEngineContext;
+import org.thymeleaf.context.IEngineContextFactory;
+import org.thymeleaf.context.StandardEngineContextFactory;
+import org.thymeleaf.engine.TemplateData;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Thymeleaf context over the email params as they were deserialized, without copying them.
+ * Variables are resolved on lookup:
+ * <ol>
+ *   <li>variables set explicitly with {@link #setVariable}</li>
+ *   <li>top-level params: scalars as strings, maps and lists as they are</li>
+ *   <li>the flattened names older templates rely on: keys of nested maps (also inside list items) and
+ *   {@code key[index]} for scalars and lists inside lists. This index is only built when a lookup gets
+ *   this far, at most once per context.</li>
+ * </ol>
+ * The template engine must be configured with {@link EngineContextFactory}; the standard factory copies
+ * every variable of a plain context into the engine context before rendering.
+ */
+public class TemplateParamsContext implements IContext {
+    private final Locale locale;
+    private final Map<String, Object> params;
+    private final Map<String, Object> variables = new HashMap<>();
+    private Map<String, Object> flattened;
+
+    /**
+     * Creates engine contexts that look variables up in a {@link TemplateParamsContext} when they are not
+     * set locally (e.g. by {@code th:each} or {@code th:with}). Other contexts are handled as usual.
+     */
+    public static class EngineContextFactory implements IEngineContextFactory {
+        private final IEngineContextFactory standard = new StandardEngineContextFactory();
+
+        @Override
+        public IEngineContext createEngineContext(IEngineConfiguration configuration, TemplateData templateData,
+                                                  Map<String, Object> templateResolutionAttributes, IContext context) {
+            if (!(context instanceof TemplateParamsContext)) {
+                return standard.createEngineContext(configuration, templateData, templateResolutionAttributes, context);
+            }
+            return new ParamsEngineContext(configuration, templateData, templateResolutionAttributes,
+                    (TemplateParamsContext) context);
+        }
+    }
+
+    private static class ParamsEngineContext extends EngineContext {
+        private final TemplateParamsContext params;
+
+        private ParamsEngineContext(IEngineConfiguration configuration, TemplateData templateData,
+                                    Map<String, Object> templateResolutionAttributes, TemplateParamsContext params) {
+            super(configuration, templateData, templateResolutionAttributes, params.getLocale(),
+                    Collections.<String, Object>emptyMap());
+            this.params = params;
+        }
+
+        @Override
+        public boolean containsVariable(String name) {
+            return super.containsVariable(name) || (!isInternal(name) && params.containsVariable(name));
+        }
+
+        @Override
+        public Object getVariable(String name) {
+            if (super.containsVariable(name) || isInternal(name)) {
+                return super.getVariable(name);
+            }
+            return params.getVariable(name);
+        }
+
+        // Thymeleaf looks up its own "thymeleaf::..." variables on every expression, they are never params
+        private static boolean isInternal(String name) {
+            return name.indexOf("::") >= 0;
+        }
+
+        @Override
+        public Set<String> getVariableNames() {
+            Set<String> names = params.getVariableNames();
+            names.addAll(super.getVariableNames());
+            return names;
+        }
+    }
+
+    public TemplateParamsContext(Locale locale, Map<String, Object> params) {
+        this.locale = locale;
+        this.params = params;
+    }
+
+    public void setVariable(String name, Object value) {
+        variables.put(name, value);
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public boolean containsVariable(String name) {
+        return variables.containsKey(name) || params.containsKey(name) || flattened().containsKey(name);
+    }
+
+    @Override
+    public Set<String> getVariableNames() {
+        Set<String> names = new HashSet<>(flattened().keySet());
+        names.addAll(params.keySet());
+        names.addAll(variables.keySet());
+        return names;
+    }
+
+    @Override
+    public Object getVariable(String name) {
+        if (variables.containsKey(name)) {
+            return variables.get(name);
+        }
+        if (params.containsKey(name)) {
+            return expose(params.get(name));
+        }
+        return flattened().get(name);
+    }
+
+    private Map<String, Object> flattened() {
+        if (flattened == null) {
+            flattened = new HashMap<>();
+            flattenMap(params);
+        }
+        return flattened;
+    }
+
+    // Same names, values and precedence as the recursive Context population this replaces
+    private void flattenMap(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object value = entry.getValue();
+
+            if (value instanceof Map) {
+                for (Map.Entry<?, ?> nested : ((Map<?, ?>) value).entrySet()) {
+                    flattened.put(String.valueOf(nested.getKey()), nested.getValue());
+                }
+                flattenMap((Map<?, ?>) value);
+            } else if (value instanceof List) {
+                flattened.put(key, value);
+                flattenList((List<?>) value, key);
+            } else {
+                flattened.put(key, expose(value));
+            }
+        }
+    }
+
+    private void flattenList(List<?> list, String parentKey) {
+        int index = 0;
+        for (Object item : list) {
+            String key = parentKey + "[" + index + "]";
+            if (item instanceof Map) {
+                for (Map.Entry<?, ?> nested : ((Map<?, ?>) item).entrySet()) {
+                    flattened.put(String.valueOf(nested.getKey()), nested.getValue());
+                }
+                flattenMap((Map<?, ?>) item);
+            } else if (item instanceof List) {
+                flattened.put(key, item);
+                flattenList((List<?>) item, key);
+            } else {
+                flattened.put(key, expose(item));
+            }
+            index++;
+        }
+    }
+
+    private static Object expose(Object value) {
+        return value == null || value instanceof Map || value instanceof List ? value : value.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.nivleking.springboot.utils;
+
+import org.unbescape.html.HtmlEscape;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A template rendered once with everything except a few per-recipient variables, kept as the static
+ * HTML segments between the places where those variables are output. Rendering for a recipient is then
+ * a concatenation of the segments with the (HTML-escaped, where Thymeleaf would escape) variable values.
+ * <p>
+ * This is only equivalent to a full render when every use of a per-recipient variable is a plain
+ * {@code [[${var}]]}, {@code [(${var})]}, {@code th:text="${var}"} or {@code th:utext="${var}"}. Use
+ * {@link #canCompile} before rendering the placeholders, and fall back to a full render when
+ * {@link #parse} or {@link #render} returns null.
+ */
+public final class TemplateSkeleton {
+    private static final char MARK_START = '\uE000';
+    private static final char MARK_END = '\uE001';
+    private static final String ESCAPED_AMPERSAND = "&amp;";
+
+    private static final Pattern EXPRESSION = Pattern.compile("[$*#@~]\\{([^}]*)}");
+    private static final Pattern PLAIN_OUTPUT = Pattern.compile(
+            "\\[\\[\\$\\{\\s*(\\w+)\\s*}]]|\\[\\(\\$\\{\\s*(\\w+)\\s*}\\)]|th:u?text\\s*=\\s*\"\\$\\{\\s*(\\w+)\\s*}\"");
+    private static final Pattern CONTEXT_ACCESS = Pattern.compile("#(ctx|vars|root)\\b");
+
+    private final List<String> variables;
+    private final String[] segments;
+    private final int[] slots;
+    private final boolean[] escaped;
+
+    private TemplateSkeleton(List<String> variables, String[] segments, int[] slots, boolean[] escaped) {
+        this.variables = variables;
+        this.segments = segments;
+        this.slots = slots;
+        this.escaped = escaped;
+    }
+
+    /**
+     * Whether every reference to the variables in {@code templateHtml} only outputs the value, so the
+     * rest of the template renders the same whatever the values are.
+     */
+    public static boolean canCompile(String templateHtml, Collection<String> variables) {
+        if (templateHtml.indexOf(MARK_START) >= 0) {
+            return false;
+        }
+
+        for (String variable : variables) {
+            Pattern reference = Pattern.compile("(?<![\\w.])" + Pattern.quote(variable) + "(?!\\w)");
+
+            int references = 0;
+            Matcher expression = EXPRESSION.matcher(templateHtml);
+            while (expression.find()) {
+                String body = expression.group(1);
+                if (CONTEXT_ACCESS.matcher(body).find()) {
+                    return false;
+                }
+                if (reference.matcher(body).find()) {
+                    references++;
+                }
+            }
+
+            int plainOutputs = 0;
+            Matcher output = PLAIN_OUTPUT.matcher(templateHtml);
+            while (output.find()) {
+                String name = output.group(1) != null ? output.group(1)
+                        : output.group(2) != null ? output.group(2) : output.group(3);
+                if (variable.equals(name)) {
+                    plainOutputs++;
+                }
+            }
+
+            if (references != plainOutputs) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Value to render in place of variable {@code index}. The {@code &} shows whether Thymeleaf escaped it.
+     */
+    public static String placeholder(String nonce, int index) {
+        return MARK_START + nonce + index + "&" + MARK_END;
+    }
+
+    /**
+     * Split a template rendered with {@link #placeholder} values into a skeleton.
+     *
+     * @return the skeleton, or null when a placeholder was transformed (e.g. JavaScript-escaped) on output
+     */
+    public static TemplateSkeleton parse(String rendered, String nonce, List<String> variables) {
+        List<String> segments = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<Boolean> escaped = new ArrayList<>();
+
+        int position = 0;
+        int mark;
+        while ((mark = rendered.indexOf(MARK_START, position)) >= 0) {
+            int i = mark + 1;
+            if (!rendered.startsWith(nonce, i)) {
+                return null;
+            }
+            i += nonce.length();
+
+            int digitsStart = i;
+            while (i < rendered.length() && Character.isDigit(rendered.charAt(i))) {
+                i++;
+            }
+            if (i == digitsStart || i - digitsStart > 9) {
+                return null;
+            }
+            int index = Integer.parseInt(rendered.substring(digitsStart, i));
+            if (index >= variables.size()) {
+                return null;
+            }
+
+            boolean isEscaped;
+            if (rendered.startsWith(ESCAPED_AMPERSAND, i)) {
+                isEscaped = true;
+                i += ESCAPED_AMPERSAND.length();
+            } else if (rendered.startsWith("&", i)) {
+                isEscaped = false;
+                i++;
+            } else {
+                return null;
+            }
+            if (i >= rendered.length() || rendered.charAt(i) != MARK_END) {
+                return null;
+            }
+
+            segments.add(rendered.substring(position, mark));
+            slots.add(index);
+            escaped.add(isEscaped);
+            position = i + 1;
+        }
+        segments.add(rendered.substring(position));
+
+        for (String segment : segments) {
+            if (segment.contains(nonce)) {
+                return null;
+            }
+        }
+
+        int[] slotArray = new int[slots.size()];
+        boolean[] escapedArray = new boolean[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+            escapedArray[i] = escaped.get(i);
+        }
+        return new TemplateSkeleton(new ArrayList<>(variables), segments.toArray(new String[0]), slotArray, escapedArray);
+    }
+
+    /**
+     * Merge the variable values into the skeleton.
+     *
+     * @return the HTML, or null when a value is missing or not a scalar and the template must be rendered in full
+     */
+    public String render(Map<String, Object> params) {
+        String[] values = new String[variables.size()];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            Object value = params.get(variables.get(i));
+            if (value == null || value instanceof Map || value instanceof Collection) {
+                return null;
+            }
+            values[i] = value.toString();
+        }
+
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        StringBuilder html = new StringBuilder(length + slots.length * 16);
+        for (int i = 0; i < slots.length; i++) {
+            html.append(segments[i]);
+            String value = values[slots[i]];
+            html.append(escaped[i] ? HtmlEscape.escapeHtml4Xml(value) : value);
+        }
+        html.append(segments[slots.length]);
+        return html.toString();
+    }
+
+    public List<String> getVariables() {
+        return variables;
+    }
+}
@@ -0,0 +1,185 @@
+package com.nivleking.springboot.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Trace id (32 hex characters), span id and parent span id (16 hex characters) of a span, read from
+ * and written to W3C {@code traceparent} and B3 headers. Ids come from {@link ThreadLocalRandom}, which
+ * unlike {@code UUID.randomUUID()} does not share a SecureRandom between threads.
+ */
+public final class TraceContext {
+    public static final String TRACEPARENT = "traceparent";
+    public static final String B3 = "b3";
+    public static final String B3_TRACE_ID = "X-B3-TraceId";
+    public static final String B3_SPAN_ID = "X-B3-SpanId";
+    public static final String B3_PARENT_SPAN_ID = "X-B3-ParentSpanId";
+    public static final String B3_SAMPLED = "X-B3-Sampled";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String ZERO_TRACE_ID = "00000000000000000000000000000000";
+    private static final String ZERO_SPAN_ID = "0000000000000000";
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final boolean sampled;
+
+    private TraceContext(String traceId, String spanId, String parentSpanId, boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Context of a new trace
+     */
+    public static TraceContext newTrace() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(hex(nonZero(random), nonZero(random)), newSpanId(), null, true);
+    }
+
+    /**
+     * Context of a new span in the same trace, with this span as its parent
+     */
+    public TraceContext child() {
+        return new TraceContext(traceId, newSpanId(), spanId, sampled);
+    }
+
+    /**
+     * Parent context to continue a trace of which only the id is known, e.g. from the REQUEST_ID of an
+     * email log. It has no span id, so only use it as the parent of a new span. Trace ids in another
+     * format (such as UUIDs) are accepted when they are 16 or 32 hex digits apart from dashes.
+     *
+     * @return the context, or null when {@code traceId} is not a trace id
+     */
+    public static TraceContext fromTraceId(String traceId) {
+        String normalized = normalizeTraceId(traceId);
+        return normalized == null ? null : new TraceContext(normalized, null, null, true);
+    }
+
+    /**
+     * Context of the caller's span from the request headers, {@code traceparent} first, then the
+     * single {@code b3} header, then the {@code X-B3-*} headers.
+     *
+     * @return the context, or null when the headers carry no valid trace
+     */
+    public static TraceContext fromHeaders(Function<String, String> headers) {
+        TraceContext context = fromTraceparent(headers.apply(TRACEPARENT));
+        if (context == null) {
+            context = fromB3(headers.apply(B3));
+        }
+        if (context == null) {
+            context = fromB3(headers.apply(B3_TRACE_ID), headers.apply(B3_SPAN_ID), headers.apply(B3_SAMPLED));
+        }
+        return context;
+    }
+
+    /**
+     * @param traceparent {@code 00-<trace id>-<span id>-<flags>}
+     */
+    public static TraceContext fromTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() < 55 || traceparent.charAt(2) != '-'
+                || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-' || traceparent.startsWith("ff")) {
+            return null;
+        }
+        String traceId = traceparent.substring(3, 35);
+        String spanId = traceparent.substring(36, 52);
+        String flags = traceparent.substring(53, 55);
+        if (!isHex(traceparent.substring(0, 2)) || !isId(traceId, ZERO_TRACE_ID) || !isId(spanId, ZERO_SPAN_ID) || !isHex(flags)) {
+            return null;
+        }
+        return new TraceContext(traceId, spanId, null, (Integer.parseInt(flags, 16) & 1) == 1);
+    }
+
+    /**
+     * @param b3 {@code <trace id>-<span id>[-<sampled>[-<parent span id>]]}
+     */
+    public static TraceContext fromB3(String b3) {
+        if (b3 == null) {
+            return null;
+        }
+        String[] parts = b3.split("-");
+        if (parts.length < 2) {
+            return null;
+        }
+        return fromB3(parts[0], parts[1], parts.length > 2 ? parts[2] : null);
+    }
+
+    public static TraceContext fromB3(String traceId, String spanId, String sampled) {
+        String normalizedTraceId = normalizeTraceId(traceId);
+        if (normalizedTraceId == null || spanId == null || !isId(spanId.toLowerCase(), ZERO_SPAN_ID)) {
+            return null;
+        }
+        return new TraceContext(normalizedTraceId, spanId.toLowerCase(), null, !"0".equals(sampled));
+    }
+
+    public String toTraceparent() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    private static String normalizeTraceId(String traceId) {
+        if (traceId == null) {
+            return null;
+        }
+        String normalized = traceId.replace("-", "").toLowerCase();
+        if (normalized.length() == 16) {
+            normalized = ZERO_SPAN_ID + normalized;
+        }
+        return isId(normalized, ZERO_TRACE_ID) ? normalized : null;
+    }
+
+    private static boolean isId(String id, String zero) {
+        return id.length() == zero.length() && isHex(id) && !id.equals(zero);
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String newSpanId() {
+        return hex(nonZero(ThreadLocalRandom.current()));
+    }
+
+    private static long nonZero(ThreadLocalRandom random) {
+        long value;
+        do {
+            value = random.nextLong();
+        } while (value == 0);
+        return value;
+    }
+
+    private static String hex(long... values) {
+        char[] chars = new char[values.length * 16];
+        int position = 0;
+        for (long value : values) {
+            for (int shift = 60; shift >= 0; shift -= 4) {
+                chars[position++] = HEX[(int) (value >>> shift) & 0xf];
+            }
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,118 @@
+package com.nivleking.springboot.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spans of the current thread. The current span's ids are kept in the MDC ({@code X-B3-TraceId},
+ * {@code X-B3-SpanId}, {@code X-B3-ParentSpanId}) so every log line carries them. Finished spans of
+ * sampled traces are reported at DEBUG on this class' logger.
+ * <p>
+ * Work handed to another thread continues the trace with {@link #attach(Span)}, see
+ * {@code EmailExecutorConfiguration}.
+ */
+public final class Tracing {
+    private static final Logger log = LoggerFactory.getLogger(Tracing.class);
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private Tracing() {
+    }
+
+    public static final class Span {
+        private final String name;
+        private final TraceContext context;
+        private final Span previous;
+        private final long startNanos = System.nanoTime();
+        private Throwable error;
+        private boolean ended;
+
+        private Span(String name, TraceContext context, Span previous) {
+            this.name = name;
+            this.context = context;
+            this.previous = previous;
+        }
+
+        public TraceContext getContext() {
+            return context;
+        }
+
+        public void error(Throwable error) {
+            this.error = error;
+        }
+
+        /**
+         * Report the span and make the span that was current when it started current again
+         */
+        public void end() {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            if (context.isSampled() && log.isDebugEnabled()) {
+                log.debug("[TRACE] Span {} took {} us (trace={}, span={}, parent={}){}", name,
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos),
+                        context.getTraceId(), context.getSpanId(), context.getParentSpanId(),
+                        error == null ? "" : " failed: " + error);
+            }
+            if (CURRENT.get() == this) {
+                attach(previous);
+            }
+        }
+    }
+
+    /**
+     * @return the span of the current thread, or null
+     */
+    public static Span current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Start a span as a child of the current span, or in a new trace when there is none, and make it current
+     */
+    public static Span startSpan(String name) {
+        Span current = CURRENT.get();
+        return start(name, current == null ? TraceContext.newTrace() : current.context.child());
+    }
+
+    /**
+     * Start a span as a child of {@code parent}, or in a new trace when it is null, and make it current
+     */
+    public static Span startSpan(String name, TraceContext parent) {
+        return start(name, parent == null ? TraceContext.newTrace() : parent.child());
+    }
+
+    /**
+     * Make {@code span} (possibly started on another thread) current on this thread
+     *
+     * @return the span that was current before
+     */
+    public static Span attach(Span span) {
+        Span previous = CURRENT.get();
+        if (span == null) {
+            CURRENT.remove();
+            MDC.remove(TraceContext.B3_TRACE_ID);
+            MDC.remove(TraceContext.B3_SPAN_ID);
+            MDC.remove(TraceContext.B3_PARENT_SPAN_ID);
+        } else {
+            CURRENT.set(span);
+            MDC.put(TraceContext.B3_TRACE_ID, span.context.getTraceId());
+            MDC.put(TraceContext.B3_SPAN_ID, span.context.getSpanId());
+            if (span.context.getParentSpanId() == null) {
+                MDC.remove(TraceContext.B3_PARENT_SPAN_ID);
+            } else {
+                MDC.put(TraceContext.B3_PARENT_SPAN_ID, span.context.getParentSpanId());
+            }
+        }
+        return previous;
+    }
+
+    private static Span start(String name, TraceContext context) {
+        Span span = new Span(name, context, CURRENT.get());
+        attach(span);
+        return span;
+    }
+}
@@ -1,6 +1,6 @@
 CREATE SEQUENCE IF NOT EXISTS public.seq_email_log
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 50
     NO MINVALUE
     NO MAXVALUE
     CACHE 1;
@@ -35,73 +35,43 @@ CREATE TABLE IF NOT EXISTS public.email_template
 (
     255
 ) NOT NULL UNIQUE,
-    template text NOT NULL
-    );
-
-CREATE TABLE IF NOT EXISTS public.email_log
-(
-    id
-    numeric
-(
-    38,
-    2
-) NOT NULL PRIMARY KEY,
-    created_date timestamp
-(
-    6
-) without time zone,
-    email_delay timestamp
-(
-    6
-)
-  without time zone,
-    email_id varchar
-(
-    255
-),
-    email_type varchar
-(
-    255
-),
-    error_code varchar
-(
-    255
-),
-    error_message text,
-    http_code varchar
-(
-    255
-),
-    json_input text,
-    last_send timestamp
-(
-    6
-)
-  without time zone,
+    template text NOT NULL,
     last_updated_date timestamp
 (
     6
 )
-  without time zone,
-    number_of_retries numeric
-(
-    38,
-    2
-),
-    request_id varchar
-(
-    255
-),
-    status varchar
-(
-    255
-),
-    template_id varchar
-(
-    255
-)
+  without time zone DEFAULT now()
     );
 
+-- EMAIL_LOG is range-partitioned by month on created_date, see EmailLogPartitionMaintenance
+CREATE TABLE IF NOT EXISTS public.email_log
+(
+    id                numeric(38, 2) NOT NULL,
+    created_date      timestamp(6) without time zone NOT NULL DEFAULT now(),
+    email_delay       timestamp(6) without time zone,
+    email_id          varchar(255),
+    email_type        varchar(255),
+    error_code        varchar(255),
+    error_message     text,
+    http_code         varchar(255),
+    json_input        text,
+    last_send         timestamp(6) without time zone,
+    last_updated_date timestamp(6) without time zone,
+    number_of_retries numeric(38, 2),
+    request_id        varchar(255),
+    status            varchar(255),
+    template_id       varchar(255),
+    next_retry_at     timestamp(6) without time zone,
+    PRIMARY KEY (id, created_date)
+) PARTITION BY RANGE (created_date);
+
+CREATE TABLE IF NOT EXISTS public.email_log_default PARTITION OF public.email_log DEFAULT;
+
+CREATE INDEX IF NOT EXISTS email_log_email_id_idx ON public.email_log (email_id);
+CREATE INDEX IF NOT EXISTS email_log_type_delay_idx ON public.email_log (email_type, email_delay);
+CREATE INDEX IF NOT EXISTS email_log_retry_idx ON public.email_log (next_retry_at)
+    WHERE status IN ('FAILED', 'TIMEOUT', 'PROCESSING') AND next_retry_at IS NOT NULL;
+
 INSERT INTO public.config_server (id, properties, value)
 VALUES (1.00, 'com.nivleking.springboot.email.smtp.host', 'smtp.gmail.com'),
        (2.00, 'com.nivleking.springboot.email.smtp.port', '587'),
@@ -145,6 +115,112 @@ VALUES (1.00,
 UPDATE
     SET template_id = EXCLUDED.template_id, template = EXCLUDED.template;
 
+-- Keep EMAIL_TEMPLATE.LAST_UPDATED_DATE current for template cache invalidation
+CREATE OR REPLACE FUNCTION EMAIL_TEMPLATE_TOUCH()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    NEW.LAST_UPDATED_DATE := NOW();
+RETURN NEW;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS EMAIL_TEMPLATE_TOUCH_TRG ON public.email_template;
+CREATE TRIGGER EMAIL_TEMPLATE_TOUCH_TRG
+    BEFORE INSERT OR UPDATE ON public.email_template
+    FOR EACH ROW EXECUTE FUNCTION EMAIL_TEMPLATE_TOUCH();
+
+-- Create the partition holding V_MONTH, named EMAIL_LOG_PYYYYMM
+CREATE OR REPLACE FUNCTION EMAIL_LOG_CREATE_PARTITION(V_MONTH DATE)
+RETURNS VARCHAR
+LANGUAGE plpgsql
+AS $$
+DECLARE
+V_FROM DATE := DATE_TRUNC('month', V_MONTH)::DATE;
+    V_TO DATE := (DATE_TRUNC('month', V_MONTH) + INTERVAL '1 month')::DATE;
+    V_NAME VARCHAR := 'email_log_p' || TO_CHAR(V_MONTH, 'YYYYMM');
+BEGIN
+    IF TO_REGCLASS(V_NAME) IS NULL THEN
+        EXECUTE FORMAT('CREATE TABLE %I PARTITION OF EMAIL_LOG FOR VALUES FROM (%L) TO (%L)', V_NAME, V_FROM, V_TO);
+END IF;
+RETURN V_NAME;
+END;
+$$;
+
+-- Detach monthly partitions that end on or before V_BEFORE. Detached partitions are renamed to
+-- EMAIL_LOG_ARCHIVE_PYYYYMM for archiving, or dropped when V_DROP is true.
+CREATE OR REPLACE FUNCTION EMAIL_LOG_RETIRE_PARTITIONS(V_BEFORE DATE, V_DROP BOOLEAN)
+RETURNS INTEGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+V_PARTITION RECORD;
+    V_COUNT INTEGER := 0;
+BEGIN
+FOR V_PARTITION IN
+SELECT C.RELNAME AS NAME
+FROM PG_INHERITS I
+         JOIN PG_CLASS C ON C.OID = I.INHRELID
+         JOIN PG_CLASS P ON P.OID = I.INHPARENT
+WHERE P.RELNAME = 'email_log'
+  AND C.RELNAME ~ '^email_log_p[0-9]{6}$'
+  AND TO_DATE(SUBSTRING(C.RELNAME FROM 12), 'YYYYMM') + INTERVAL '1 month' <= V_BEFORE
+ORDER BY C.RELNAME
+    LOOP
+        EXECUTE FORMAT('ALTER TABLE EMAIL_LOG DETACH PARTITION %I', V_PARTITION.NAME);
+IF V_DROP THEN
+            EXECUTE FORMAT('DROP TABLE %I', V_PARTITION.NAME);
+ELSE
+            EXECUTE FORMAT('ALTER TABLE %I RENAME TO %I', V_PARTITION.NAME, REPLACE(V_PARTITION.NAME, 'email_log_p', 'email_log_archive_p'));
+END IF;
+        V_COUNT := V_COUNT + 1;
+END LOOP;
+RETURN V_COUNT;
+END;
+$$;
+
+-- Partitions for the current and the next two months
+SELECT EMAIL_LOG_CREATE_PARTITION((DATE_TRUNC('month', NOW()) + N * INTERVAL '1 month')::DATE)
+FROM GENERATE_SERIES(0, 2) AS N;
+
+-- Durable delivery queue for asynchronous emails
+CREATE SEQUENCE IF NOT EXISTS public.seq_email_outbox
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+CREATE TABLE IF NOT EXISTS public.email_outbox
+(
+    id                numeric(38, 2) NOT NULL PRIMARY KEY,
+    email_id          varchar(255),
+    email_type        varchar(255),
+    priority          integer,
+    status            varchar(255),
+    payload           text,
+    attempts          integer DEFAULT 0,
+    available_at      timestamp(6) without time zone,
+    locked_by         varchar(255),
+    locked_until      timestamp(6) without time zone,
+    request_id        varchar(255),
+    created_date      timestamp(6) without time zone,
+    last_updated_date timestamp(6) without time zone,
+    error_message     text
+);
+
+CREATE INDEX IF NOT EXISTS email_outbox_status_idx ON public.email_outbox (status, available_at);
+
+-- Delay window per email type, used by EMAIL_DELAY
+CREATE TABLE IF NOT EXISTS public.email_throttle
+(
+    email_type        varchar(255) NOT NULL PRIMARY KEY,
+    next_allowed_at   timestamp(6) without time zone NOT NULL,
+    last_email_id     varchar(255),
+    last_updated_date timestamp(6) without time zone
+);
+
 -- Create EMAIL_DELAY procedure
 CREATE OR REPLACE PROCEDURE EMAIL_DELAY(
     V_CURRENT_TIME TIMESTAMP,
@@ -158,56 +234,42 @@ LANGUAGE plpgsql
 AS $$
 DECLARE
 EXISTING_EMAIL_COUNT INTEGER;
-   ACTIVE_DELAY_COUNT INTEGER;
-   V_DELAY_TIME TIMESTAMP;
-   V_STATUS VARCHAR(20);
+   V_ALREADY_SENT BOOLEAN;
    V_CURRENT_RETRY NUMERIC;
-   V_DUMMY INTEGER;
-BEGIN
-    -- Acquire lock on any record with this email type to ensure sequential processing
+   V_DELAY_TIME TIMESTAMP;
 BEGIN
-SELECT 1 INTO V_DUMMY
-FROM EMAIL_LOG
-WHERE EMAIL_TYPE = V_EMAIL_TYPE
-    LIMIT 1
-        FOR UPDATE NOWAIT;
-EXCEPTION
-        WHEN NO_DATA_FOUND THEN
-            -- No records found for this email type, that's fine - we'll insert first one
-            NULL;
-WHEN OTHERS THEN
-            -- Another session already has the lock or other error
-            R_EMAIL_ID := NULL;
-            RETURN;
-END;
+    -- Calculate delay time
+V_DELAY_TIME := V_CURRENT_TIME + (V_DELAY_MILLISECONDS/1000) * INTERVAL '1 second';
 
     -- Check if email ID already exists
-SELECT COUNT(*), MAX(STATUS) INTO EXISTING_EMAIL_COUNT, V_STATUS
+SELECT COUNT(*), COALESCE(BOOL_OR(STATUS = 'SUCCESS'), FALSE), COALESCE(MAX(NUMBER_OF_RETRIES), 0)
+INTO EXISTING_EMAIL_COUNT, V_ALREADY_SENT, V_CURRENT_RETRY
 FROM EMAIL_LOG
 WHERE EMAIL_ID = V_EMAIL_ID;
 
--- Check active delays for this email type
-SELECT COUNT(*) INTO ACTIVE_DELAY_COUNT
-FROM EMAIL_LOG
-WHERE EMAIL_TYPE = V_EMAIL_TYPE
-  AND EMAIL_DELAY > V_CURRENT_TIME;
+IF (EXISTING_EMAIL_COUNT > 0) AND (V_ALREADY_SENT OR V_CURRENT_RETRY >= V_MAX_RETRY) THEN
+        -- Already successful or max retries reached, no need to take the delay window
+        R_EMAIL_ID := NULL;
+        RETURN;
+END IF;
 
--- Calculate delay time
-V_DELAY_TIME := V_CURRENT_TIME + (V_DELAY_MILLISECONDS/1000) * INTERVAL '1 second';
+    -- Take the delay window of this email type. Concurrent callers wait on the row lock and then
+    -- re-check NEXT_ALLOWED_AT, so exactly one of them wins instead of failing on a NOWAIT lock
+INSERT INTO EMAIL_THROTTLE (EMAIL_TYPE, NEXT_ALLOWED_AT, LAST_EMAIL_ID, LAST_UPDATED_DATE)
+VALUES (V_EMAIL_TYPE, V_DELAY_TIME, V_EMAIL_ID, V_CURRENT_TIME)
+    ON CONFLICT (EMAIL_TYPE) DO UPDATE
+    SET NEXT_ALLOWED_AT = EXCLUDED.NEXT_ALLOWED_AT,
+        LAST_EMAIL_ID = EXCLUDED.LAST_EMAIL_ID,
+        LAST_UPDATED_DATE = EXCLUDED.LAST_UPDATED_DATE
+    WHERE EMAIL_THROTTLE.NEXT_ALLOWED_AT <= EXCLUDED.LAST_UPDATED_DATE;
 
-    -- If there is an active delay for this email type
-    IF (ACTIVE_DELAY_COUNT > 0) THEN
+IF NOT FOUND THEN
         R_EMAIL_ID := NULL; -- Indicate delay is active
-    ELSIF (EXISTING_EMAIL_COUNT > 0) THEN
-        -- Email exists but not successful yet - update for retry
-        IF V_STATUS != 'SUCCESS' THEN
-            -- Get current retry count
-SELECT NUMBER_OF_RETRIES INTO V_CURRENT_RETRY
-FROM EMAIL_LOG
-WHERE EMAIL_ID = V_EMAIL_ID;
+        RETURN;
+END IF;
 
--- Check if max retries reached
-IF V_CURRENT_RETRY < V_MAX_RETRY THEN
+    IF (EXISTING_EMAIL_COUNT > 0) THEN
+        -- Email exists but not successful yet - update for retry
 UPDATE EMAIL_LOG
 SET STATUS = 'PENDING',
     LAST_UPDATED_DATE = V_CURRENT_TIME,
@@ -215,15 +277,6 @@ SET STATUS = 'PENDING',
     NUMBER_OF_RETRIES = NUMBER_OF_RETRIES + 1
 WHERE EMAIL_ID = V_EMAIL_ID
   AND STATUS IN ('FAILED', 'TIMEOUT');
-
-R_EMAIL_ID := V_EMAIL_ID; -- Allow retry
-ELSE
-                -- Max retries reached, don't update status, return NULL
-                R_EMAIL_ID := NULL;
-END IF;
-ELSE
-            R_EMAIL_ID := NULL; -- Already successful, no need to retry
-END IF;
 ELSE
         -- Insert new email log
         INSERT INTO EMAIL_LOG (
@@ -245,9 +298,9 @@ ELSE
             V_EMAIL_TYPE,
             0
         );
-
-        R_EMAIL_ID := V_EMAIL_ID;
 END IF;
+
+R_EMAIL_ID := V_EMAIL_ID;
 END;
 $$;
 
@@ -335,4 +388,33 @@ EXCEPTION
     WHEN OTHERS THEN
         RAISE;
 END;
-$$;
\ No newline at end of file
+$$;
+
+-- Content-addressed attachment store, one row per distinct attachment keyed by the SHA-256 of its content.
+-- The content is a large object, LO_UNLINK it when deleting a row.
+CREATE TABLE IF NOT EXISTS public.email_attachment
+(
+    hash         varchar(64) NOT NULL PRIMARY KEY,
+    file_name    varchar(255),
+    content_type varchar(255),
+    size         bigint,
+    content_oid  oid,
+    created_date timestamp(6) without time zone
+);
+-- Submitted campaigns and their progress
+CREATE TABLE IF NOT EXISTS public.email_campaign
+(
+    campaign_id       varchar(255) NOT NULL PRIMARY KEY,
+    template_name     varchar(255),
+    email_type        varchar(255),
+    status            varchar(255),
+    processed         bigint DEFAULT 0,
+    sent              bigint DEFAULT 0,
+    failed            bigint DEFAULT 0,
+    started_date      timestamp(6) without time zone,
+    finished_date     timestamp(6) without time zone,
+    error_message     text,
+    request_id        varchar(255),
+    created_date      timestamp(6) without time zone,
+    last_updated_date timestamp(6) without time zone
+);
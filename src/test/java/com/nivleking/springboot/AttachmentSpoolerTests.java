@@ -0,0 +1,91 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.exception.AttachmentTooLargeException;
+import com.nivleking.springboot.service.AttachmentSpooler;
+import jakarta.mail.internet.MimeBodyPart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttachmentSpoolerTests {
+
+    @TempDir
+    Path spoolDir;
+
+    private AttachmentSpooler attachmentSpooler;
+
+    @BeforeEach
+    public void setup() {
+        attachmentSpooler = new AttachmentSpooler();
+        ReflectionTestUtils.setField(attachmentSpooler, "spoolDirectory", spoolDir);
+        ReflectionTestUtils.setField(attachmentSpooler, "maxRequestBytes", 100L);
+        ReflectionTestUtils.setField(attachmentSpooler, "maxInFlightBytes", 150L);
+    }
+
+    @Test
+    public void testSpool_StreamsFromDiskAndDeletesOnClose() throws Exception {
+        // Act
+        AttachmentSpooler.SpooledAttachments spooled = attachmentSpooler.spool(files(40, 20));
+
+        // Assert
+        assertEquals(2, spooled.getBodyParts().size());
+        assertEquals(2, countSpoolFiles());
+        MimeBodyPart part = spooled.getBodyParts().get(0);
+        assertEquals("file-0.bin", part.getFileName());
+        assertEquals("application/octet-stream", part.getDataHandler().getContentType());
+        try (InputStream in = part.getDataHandler().getInputStream()) {
+            assertEquals(40, StreamUtils.copyToByteArray(in).length);
+        }
+
+        spooled.close();
+        spooled.close();
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    public void testSpool_RejectsRequestOverLimit() {
+        // Act & Assert
+        assertThrows(AttachmentTooLargeException.class, () -> attachmentSpooler.spool(files(60, 60)));
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    public void testSpool_RejectsWhenInFlightBudgetIsUsed() throws Exception {
+        // Arrange
+        AttachmentSpooler.SpooledAttachments first = attachmentSpooler.spool(files(100));
+
+        // Act & Assert
+        assertThrows(TaskRejectedException.class, () -> attachmentSpooler.spool(files(100)));
+
+        first.close();
+        attachmentSpooler.spool(files(100)).close();
+    }
+
+    private static MultipartFile[] files(int... sizes) {
+        MultipartFile[] files = new MultipartFile[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            files[i] = new MockMultipartFile("files", "file-" + i + ".bin", "application/octet-stream", new byte[sizes[i]]);
+        }
+        return files;
+    }
+
+    private long countSpoolFiles() {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            return files.count();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.dto.AttachmentDTO;
+import com.nivleking.springboot.repository.EmailAttachmentRepository;
+import com.nivleking.springboot.service.AttachmentStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AttachmentStoreTests {
+    // SHA-256 of "hello"
+    private static final String HELLO_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path cacheDir;
+
+    @InjectMocks
+    private AttachmentStore attachmentStore;
+
+    @Mock
+    private EmailAttachmentRepository emailAttachmentRepository;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ReflectionTestUtils.setField(attachmentStore, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(attachmentStore, "maxFileBytes", 1024L);
+        ReflectionTestUtils.setField(attachmentStore, "cacheDir", cacheDir.toString());
+        ReflectionTestUtils.setField(attachmentStore, "cacheTtlMillis", 60000L);
+        ReflectionTestUtils.setField(attachmentStore, "metadataCacheSize", 10);
+        attachmentStore.init();
+    }
+
+    @Test
+    public void testStore_KeysByContentHash() throws Exception {
+        // Arrange
+        when(emailAttachmentRepository.findMetadata(HELLO_HASH)).thenReturn(Optional.<AttachmentDTO>empty());
+        when(emailAttachmentRepository.insertIfAbsent(any(AttachmentDTO.class), any(InputStream.class))).thenReturn(true);
+
+        // Act
+        AttachmentDTO stored = attachmentStore.store(new MockMultipartFile("file", "terms.pdf", "application/pdf", "hello".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(HELLO_HASH, stored.getHash());
+        assertEquals("terms.pdf", stored.getFileName());
+        assertEquals(5L, stored.getSize());
+        verify(emailAttachmentRepository).insertIfAbsent(any(AttachmentDTO.class), any(InputStream.class));
+    }
+
+    @Test
+    public void testGetBodyParts_EncodesOnceAndReusesEncodedFile() throws Exception {
+        // Arrange
+        when(emailAttachmentRepository.findMetadata(HELLO_HASH)).thenReturn(Optional.of(metadata()));
+        when(emailAttachmentRepository.copyContent(eq(HELLO_HASH), any(OutputStream.class))).thenAnswer(invocation -> {
+            ((OutputStream) invocation.getArgument(1)).write("hello".getBytes(StandardCharsets.UTF_8));
+            return true;
+        });
+        List<String> hashes = Collections.singletonList(HELLO_HASH);
+
+        // Act
+        attachmentStore.getBodyParts(hashes);
+        List<MimeBodyPart> parts = attachmentStore.getBodyParts(hashes);
+
+        // Assert
+        verify(emailAttachmentRepository, times(1)).copyContent(eq(HELLO_HASH), any(OutputStream.class));
+        verify(emailAttachmentRepository, times(1)).findMetadata(HELLO_HASH);
+
+        // The stored content is written as is, not encoded a second time
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        MimeMultipart multipart = new MimeMultipart();
+        multipart.addBodyPart(parts.get(0));
+        message.setContent(multipart);
+        message.saveChanges();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        String raw = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(raw.contains("Content-Transfer-Encoding: base64"));
+        assertTrue(raw.contains(Base64.getEncoder().encodeToString("hello".getBytes(StandardCharsets.UTF_8))));
+        assertFalse(raw.contains("YUdWc2JHOD0"));
+    }
+
+    @Test
+    public void testFindMissing_RejectsUnknownAndMalformedHashes() {
+        // Arrange
+        when(emailAttachmentRepository.findMetadata(HELLO_HASH)).thenReturn(Optional.of(metadata()));
+        String unknown = HELLO_HASH.replace('2', '3');
+        when(emailAttachmentRepository.findMetadata(unknown)).thenReturn(Optional.<AttachmentDTO>empty());
+
+        // Act
+        List<String> missing = attachmentStore.findMissing(Arrays.asList(HELLO_HASH, unknown, "../etc/passwd"));
+
+        // Assert
+        assertEquals(Arrays.asList(unknown, "../etc/passwd"), missing);
+        verify(emailAttachmentRepository, never()).findMetadata("../etc/passwd");
+    }
+
+    private static AttachmentDTO metadata() {
+        AttachmentDTO attachment = new AttachmentDTO();
+        attachment.setHash(HELLO_HASH);
+        attachment.setFileName("terms.pdf");
+        attachment.setContentType("application/pdf");
+        attachment.setSize(5L);
+        return attachment;
+    }
+}
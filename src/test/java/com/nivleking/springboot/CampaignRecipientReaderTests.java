@@ -0,0 +1,71 @@
+package com.nivleking.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.dto.CampaignRecipient;
+import com.nivleking.springboot.service.CampaignRecipientReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CampaignRecipientReaderTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReadNdjson() throws Exception {
+        Path file = write("recipients.ndjson",
+                "{\"receiver\":\"a@example.com\",\"params\":{\"name\":\"Alice\"}}\n" +
+                "\n" +
+                "{\"receiver\":\"b@example.com\",\"cc\":\"c@example.com\",\"params\":{\"name\":\"Bob\"}}\n");
+
+        try (CampaignRecipientReader reader = CampaignRecipientReader.open(file, false, objectMapper)) {
+            CampaignRecipient first = reader.next();
+            assertEquals("a@example.com", first.getReceiver());
+            assertEquals("Alice", first.getParams().get("name"));
+
+            CampaignRecipient second = reader.next();
+            assertEquals("b@example.com", second.getReceiver());
+            assertEquals("c@example.com", second.getCc());
+            assertEquals("Bob", second.getParams().get("name"));
+
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void testReadCsv_QuotedFields() throws Exception {
+        Path file = write("recipients.csv",
+                "Receiver,name,note\r\n" +
+                "a@example.com,Alice,\"Hello, \"\"friend\"\"\"\r\n" +
+                "b@example.com,Bob,\"line one\nline two\"\n" +
+                "\n");
+
+        try (CampaignRecipientReader reader = CampaignRecipientReader.open(file, true, objectMapper)) {
+            CampaignRecipient first = reader.next();
+            assertEquals("a@example.com", first.getReceiver());
+            assertEquals("Alice", first.getParams().get("name"));
+            assertEquals("Hello, \"friend\"", first.getParams().get("note"));
+
+            CampaignRecipient second = reader.next();
+            assertEquals("b@example.com", second.getReceiver());
+            assertEquals("line one\nline two", second.getParams().get("note"));
+            assertFalse(second.getParams().containsKey("receiver"));
+
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,73 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.dto.CampaignProgressDTO;
+import com.nivleking.springboot.dto.CampaignRequestDTO;
+import com.nivleking.springboot.exception.CampaignAlreadyExistsException;
+import com.nivleking.springboot.model.EmailCampaign;
+import com.nivleking.springboot.repository.EmailCampaignRepository;
+import com.nivleking.springboot.service.CampaignService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CampaignServiceTests {
+
+    @InjectMocks
+    private CampaignService campaignService;
+
+    @Mock
+    private EmailCampaignRepository emailCampaignRepository;
+
+    @Mock
+    private ThreadPoolTaskExecutor campaignExecutor;
+
+    @Test
+    public void testSubmitCampaign_RejectsKnownCampaignId() {
+        // Arrange - the id was submitted before, e.g. on another node
+        CampaignRequestDTO request = new CampaignRequestDTO();
+        request.setCampaignId("spring-sale");
+        request.setTemplateName("sale_template");
+        when(emailCampaignRepository.create(eq("spring-sale"), eq("sale_template"), any(), any(), any(LocalDateTime.class)))
+                .thenReturn(0);
+        MockMultipartFile recipients = new MockMultipartFile("recipients", "recipients.csv", "text/csv",
+                "receiver\na@example.com\n".getBytes(StandardCharsets.UTF_8));
+
+        // Act & Assert
+        assertThrows(CampaignAlreadyExistsException.class, () -> campaignService.submitCampaign(request, recipients));
+        verify(campaignExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testGetProgress_ReadsCampaignsRunElsewhere() {
+        // Arrange
+        EmailCampaign campaign = new EmailCampaign();
+        campaign.setCampaignId("spring-sale");
+        campaign.setStatus("SUCCESS");
+        campaign.setProcessed(3L);
+        campaign.setSent(2L);
+        campaign.setFailed(1L);
+        when(emailCampaignRepository.findById("spring-sale")).thenReturn(Optional.of(campaign));
+
+        // Act
+        Optional<CampaignProgressDTO> progress = campaignService.getProgress("spring-sale");
+
+        // Assert
+        assertTrue(progress.isPresent());
+        assertEquals("SUCCESS", progress.get().getStatus());
+        assertEquals(2, progress.get().getSent());
+        assertEquals(1, progress.get().getFailed());
+    }
+}
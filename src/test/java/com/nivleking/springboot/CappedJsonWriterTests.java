@@ -0,0 +1,42 @@
+package com.nivleking.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.utils.CappedJsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CappedJsonWriterTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testWrite_KeepsSmallPayloads() {
+        // Arrange & Act
+        String json = CappedJsonWriter.write(objectMapper, Collections.singletonMap("name", "John"), 100);
+
+        // Assert
+        assertEquals("{\"name\":\"John\"}", json);
+    }
+
+    @Test
+    public void testWrite_TruncatesLargePayloads() {
+        // Arrange
+        Map<String, Object> data = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            data.put("key" + i, "value" + i);
+        }
+
+        // Act
+        String json = CappedJsonWriter.write(objectMapper, data, 2048);
+
+        // Assert
+        assertTrue(json.startsWith("{\"key"));
+        assertTrue(json.endsWith("...[truncated]"));
+        assertEquals(2048 + "...[truncated]".length(), json.length());
+    }
+}
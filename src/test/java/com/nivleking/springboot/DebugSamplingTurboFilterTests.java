@@ -0,0 +1,75 @@
+package com.nivleking.springboot;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import com.nivleking.springboot.config.DebugSamplingTurboFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DebugSamplingTurboFilterTests {
+
+    private LoggerContext loggerContext;
+    private DebugSamplingTurboFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        loggerContext = new LoggerContext();
+        loggerContext.getLogger("com.example").setLevel(Level.DEBUG);
+
+        filter = new DebugSamplingTurboFilter();
+        filter.addLogger("com.example.chatty");
+        filter.setSampleRate(4);
+        filter.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MDC.remove("X-B3-TraceId");
+    }
+
+    @Test
+    public void testDecide_SamplesWholeTraces() {
+        // Arrange
+        Logger chatty = loggerContext.getLogger("com.example.chatty.Service");
+        int kept = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            MDC.put("X-B3-TraceId", UUID.randomUUID().toString());
+
+            // Act
+            FilterReply first = filter.decide(null, chatty, Level.DEBUG, "step one", null, null);
+            FilterReply second = filter.decide(null, chatty, Level.DEBUG, "step two", null, null);
+
+            // Assert - every event of a trace gets the same decision
+            assertEquals(first, second);
+            if (first == FilterReply.NEUTRAL) {
+                kept++;
+            }
+        }
+        assertTrue(kept > 150 && kept < 350, "kept " + kept + " of 1000 traces");
+    }
+
+    @Test
+    public void testDecide_LeavesOtherLoggersAndLevelsAlone() {
+        // Arrange
+        Logger chatty = loggerContext.getLogger("com.example.chatty.Service");
+        Logger other = loggerContext.getLogger("com.example.chattyNeighbour");
+
+        for (int i = 0; i < 20; i++) {
+            MDC.put("X-B3-TraceId", UUID.randomUUID().toString());
+
+            // Act & Assert
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, chatty, Level.INFO, "kept", null, null));
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, chatty, Level.ERROR, "kept", null, null));
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, other, Level.DEBUG, "kept", null, null));
+        }
+    }
+}
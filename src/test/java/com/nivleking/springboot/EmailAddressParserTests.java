@@ -0,0 +1,72 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.constant.RegexValidator;
+import com.nivleking.springboot.utils.EmailAddressParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailAddressParserTests {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(RegexValidator.EMAIL_FORMAT);
+
+    @Test
+    public void testIsValid_MatchesRegexOnKnownCases() {
+        List<String> cases = Arrays.asList(
+                "user@example.com", "first.last@sub.example.co.id", "a+b&c*d-e_f@x-y.museum",
+                "user@example.c", "user@example.abcdefgh", "user@example.com1", "user@example.",
+                "user@.com", "user@example..com", "user@-.com", "user@localhost", ".user@example.com",
+                "user.@example.com", "us..er@example.com", "@example.com", "user@", "user", "",
+                "user@@example.com", "us er@example.com", "user@exa mple.com", "usér@example.com",
+                "user@example.com\n", "user@example.com;other@example.com", "USER@EXAMPLE.COM");
+
+        for (String address : cases) {
+            assertEquals(EMAIL_PATTERN.matcher(address).matches(), EmailAddressParser.isValid(address), address);
+        }
+        assertFalse(EmailAddressParser.isValid(null));
+    }
+
+    @Test
+    public void testIsValid_MatchesRegexOnRandomInput() {
+        char[] alphabet = "aZ9_+&*-.@.@ é;".toCharArray();
+        Random random = new Random(42);
+
+        for (int n = 0; n < 200_000; n++) {
+            StringBuilder address = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int i = 0; i < length; i++) {
+                address.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String candidate = address.toString();
+            assertEquals(EMAIL_PATTERN.matcher(candidate).matches(), EmailAddressParser.isValid(candidate), candidate);
+        }
+    }
+
+    @Test
+    public void testParseList_MatchesSplitAndJoin() {
+        List<String> lists = Arrays.asList(
+                "a@example.com;b@example.com", "a@example.com;", "a@example.com;;b@example.com",
+                ";a@example.com", ";;;", "", "a@example.com;not-an-email;c@example.com;;");
+
+        for (String list : lists) {
+            String[] split = list.split(";");
+            List<String> expectedInvalid = new ArrayList<>();
+            for (String email : split) {
+                if (!EMAIL_PATTERN.matcher(email).matches()) {
+                    expectedInvalid.add(email);
+                }
+            }
+
+            EmailAddressParser.ParsedAddresses parsed = EmailAddressParser.parseList(list);
+            assertEquals(Arrays.asList(split), parsed.getAddresses(), list);
+            assertEquals(expectedInvalid, parsed.getInvalid(), list);
+            assertEquals(String.join(",", split), parsed.getNormalized(), list);
+        }
+    }
+}
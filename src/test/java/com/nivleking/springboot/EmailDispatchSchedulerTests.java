@@ -0,0 +1,161 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.service.EmailDispatchScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailDispatchSchedulerTests {
+
+    private EmailDispatchScheduler emailDispatchScheduler;
+    private SimpleMeterRegistry meterRegistry;
+
+    private void start(int workers, long maxWaitMillis) {
+        meterRegistry = new SimpleMeterRegistry();
+        emailDispatchScheduler = new EmailDispatchScheduler();
+        ReflectionTestUtils.setField(emailDispatchScheduler, "workers", workers);
+        ReflectionTestUtils.setField(emailDispatchScheduler, "queueCapacity", 10);
+        ReflectionTestUtils.setField(emailDispatchScheduler, "priorityWeights", new int[]{16, 8, 4, 2, 1});
+        ReflectionTestUtils.setField(emailDispatchScheduler, "priorityShares", new double[]{1.0, 1.0, 0.75, 0.5, 0.5});
+        ReflectionTestUtils.setField(emailDispatchScheduler, "maxWaitMillis", maxWaitMillis);
+        ReflectionTestUtils.setField(emailDispatchScheduler, "awaitTerminationSeconds", 5L);
+        ReflectionTestUtils.setField(emailDispatchScheduler, "meterRegistry", meterRegistry);
+        emailDispatchScheduler.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        emailDispatchScheduler.shutdown();
+    }
+
+    /**
+     * Occupy the only worker until the returned latch is counted down
+     */
+    private CountDownLatch blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        emailDispatchScheduler.execute("1", () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testExecute_HigherPriorityGoesFirst() throws Exception {
+        // Arrange - bulk emails queued before the OTPs
+        start(1, 60000);
+        CountDownLatch release = blockWorker();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(6);
+        for (String priority : Arrays.asList("5", "5", "5", "1", "1", "1")) {
+            emailDispatchScheduler.execute(priority, () -> {
+                order.add(priority);
+                done.countDown();
+            });
+        }
+        assertEquals(3, emailDispatchScheduler.getQueued(5));
+        assertEquals(3, meterRegistry.get("email.dispatch.queue.depth").tag("priority", "1").gauge().value(), 0.0);
+
+        // Act
+        release.countDown();
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("1", "1", "1", "5", "5", "5"), order);
+        assertEquals(7, meterRegistry.get("email.dispatch.wait").tag("priority", "1").timer().count()
+                + meterRegistry.get("email.dispatch.wait").tag("priority", "5").timer().count());
+    }
+
+    @Test
+    public void testExecute_LongWaitingEmailsAreNotStarved() throws Exception {
+        // Arrange - every queued email is past the maximum wait by the time the worker is free
+        start(1, 1);
+        CountDownLatch release = blockWorker();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(4);
+        for (String priority : Arrays.asList("5", "5", "1", "1")) {
+            emailDispatchScheduler.execute(priority, () -> {
+                order.add(priority);
+                done.countDown();
+            });
+        }
+        Thread.sleep(10);
+
+        // Act
+        release.countDown();
+
+        // Assert - oldest first
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("5", "5", "1", "1"), order);
+        assertTrue(meterRegistry.get("email.dispatch.promoted").tag("priority", "5").functionCounter().count() > 0);
+    }
+
+    @Test
+    public void testExecute_LowPriorityLimitedToItsShare() throws Exception {
+        // Arrange - priority 5 may use one of the two workers
+        start(2, 60000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch bulkStarted = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            emailDispatchScheduler.execute("5", () -> {
+                bulkStarted.countDown();
+                await(release);
+            });
+        }
+        CountDownLatch otpSent = new CountDownLatch(1);
+
+        // Act
+        emailDispatchScheduler.execute("1", otpSent::countDown);
+
+        // Assert - the OTP gets the free worker while the second bulk email waits
+        assertTrue(otpSent.await(5, TimeUnit.SECONDS));
+        assertEquals(1, emailDispatchScheduler.getActive(5));
+        assertEquals(1, emailDispatchScheduler.getQueued(5));
+
+        release.countDown();
+        assertTrue(bulkStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExecute_RejectsWhenQueueFull() throws Exception {
+        // Arrange
+        start(1, 60000);
+        CountDownLatch release = blockWorker();
+        for (int i = 0; i < 10; i++) {
+            emailDispatchScheduler.execute("3", () -> { });
+        }
+        assertEquals(0, emailDispatchScheduler.remainingCapacity(3));
+        assertEquals(40, emailDispatchScheduler.remainingCapacity());
+
+        // Act & Assert - invalid priorities count as 3
+        assertThrows(TaskRejectedException.class, () -> emailDispatchScheduler.execute("urgent", () -> { }));
+        assertEquals(1, meterRegistry.get("email.dispatch.rejected").tag("priority", "3").functionCounter().count(), 0.0);
+
+        // Other priorities have their own room
+        emailDispatchScheduler.execute("1", () -> { });
+        assertEquals(1, emailDispatchScheduler.getQueued(1));
+
+        release.countDown();
+    }
+}
@@ -0,0 +1,105 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.repository.EmailLogPartitionRepository;
+import com.nivleking.springboot.service.EmailLogPartitionMaintenance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailLogPartitionMaintenanceTests {
+
+    @InjectMocks
+    private EmailLogPartitionMaintenance emailLogPartitionMaintenance;
+
+    @Mock
+    private EmailLogPartitionRepository emailLogPartitionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(emailLogPartitionMaintenance, "enabled", true);
+        ReflectionTestUtils.setField(emailLogPartitionMaintenance, "monthsAhead", 2);
+        ReflectionTestUtils.setField(emailLogPartitionMaintenance, "retentionMonths", 12);
+        ReflectionTestUtils.setField(emailLogPartitionMaintenance, "dropExpired", false);
+        ReflectionTestUtils.setField(emailLogPartitionMaintenance, "transactionTemplate", new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    public void testMaintain_RollsBackFailedRun() {
+        // Arrange
+        TransactionStatus transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(emailLogPartitionRepository.tryLock()).thenReturn(true);
+        when(emailLogPartitionRepository.isPartitioned()).thenReturn(true);
+        when(emailLogPartitionRepository.createPartition(any(LocalDate.class))).thenThrow(new BadSqlGrammarException("create", "SELECT", new SQLException()));
+
+        // Act - the failure is logged, not thrown
+        emailLogPartitionMaintenance.maintain();
+
+        // Assert
+        verify(transactionManager).rollback(transaction);
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    public void testMaintain_CreatesUpcomingAndRetiresExpiredPartitions() {
+        // Arrange
+        when(emailLogPartitionRepository.tryLock()).thenReturn(true);
+        when(emailLogPartitionRepository.isPartitioned()).thenReturn(true);
+
+        // Act
+        emailLogPartitionMaintenance.maintain(LocalDate.of(2024, 11, 20));
+
+        // Assert
+        verify(emailLogPartitionRepository).createPartition(LocalDate.of(2024, 11, 1));
+        verify(emailLogPartitionRepository).createPartition(LocalDate.of(2024, 12, 1));
+        verify(emailLogPartitionRepository).createPartition(LocalDate.of(2025, 1, 1));
+        verify(emailLogPartitionRepository, times(3)).createPartition(any(LocalDate.class));
+        verify(emailLogPartitionRepository).retirePartitions(LocalDate.of(2023, 11, 1), false);
+    }
+
+    @Test
+    public void testMaintain_SkipsWhenAnotherNodeHoldsTheLock() {
+        // Arrange
+        when(emailLogPartitionRepository.tryLock()).thenReturn(false);
+
+        // Act
+        emailLogPartitionMaintenance.maintain(LocalDate.of(2024, 11, 20));
+
+        // Assert
+        verify(emailLogPartitionRepository, never()).createPartition(any(LocalDate.class));
+        verify(emailLogPartitionRepository, never()).retirePartitions(any(LocalDate.class), anyBoolean());
+    }
+
+    @Test
+    public void testMaintain_SkipsUnpartitionedTable() {
+        // Arrange
+        when(emailLogPartitionRepository.tryLock()).thenReturn(true);
+        when(emailLogPartitionRepository.isPartitioned()).thenReturn(false);
+
+        // Act
+        emailLogPartitionMaintenance.maintain(LocalDate.of(2024, 11, 20));
+
+        // Assert
+        verify(emailLogPartitionRepository, never()).createPartition(any(LocalDate.class));
+    }
+}
@@ -0,0 +1,180 @@
+package com.nivleking.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.constant.EmailStatus;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.model.EmailLog;
+import com.nivleking.springboot.repository.EmailLogBatchRepository;
+import com.nivleking.springboot.service.EmailLogWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailLogWriterTests {
+
+    @InjectMocks
+    private EmailLogWriter emailLogWriter;
+
+    @Mock
+    private EmailLogBatchRepository emailLogBatchRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Captor
+    private ArgumentCaptor<List<EmailLog>> captor;
+
+    @BeforeEach
+    public void setup() {
+        // Queue without the background flusher so tests control when batches are written
+        ReflectionTestUtils.setField(emailLogWriter, "batchSize", 100);
+        ReflectionTestUtils.setField(emailLogWriter, "capacity", 100);
+        ReflectionTestUtils.setField(emailLogWriter, "maxAttempts", 3);
+        ReflectionTestUtils.setField(emailLogWriter, "queue", new LinkedBlockingQueue<>(100));
+        ReflectionTestUtils.setField(emailLogWriter, "running", true);
+    }
+
+    @Test
+    public void testFlush_MergesTransitionsOfSameEmail() {
+        // Arrange
+        when(emailLogBatchRepository.patchByEmailId(anyList())).thenReturn(new int[]{1, 1});
+
+        EmailDTO dto = new EmailDTO();
+        dto.setEmailId("email-1");
+
+        emailLogWriter.write(log("email-1", EmailStatus.PENDING, null), dto);
+        emailLogWriter.write(log("email-2", EmailStatus.PENDING, null), null);
+        emailLogWriter.write(log("email-1", EmailStatus.FAILED, "EMAIL_SEND_ERROR"), null);
+
+        // Act
+        emailLogWriter.flush();
+
+        // Assert
+        verify(emailLogBatchRepository, times(1)).patchByEmailId(captor.capture());
+        List<EmailLog> written = captor.getValue();
+        assertEquals(2, written.size());
+        assertEquals("email-1", written.get(0).getEmailId());
+        assertEquals(EmailStatus.FAILED, written.get(0).getStatus());
+        assertEquals("EMAIL_SEND_ERROR", written.get(0).getErrorCode());
+        assertTrue(written.get(0).getJsonInput().contains("email-1"));
+        verify(emailLogBatchRepository, never()).insertFull(anyList());
+    }
+
+    @Test
+    public void testFlush_InsertsMissingRows() {
+        // Arrange
+        when(emailLogBatchRepository.patchByEmailId(anyList())).thenReturn(new int[]{1, 0});
+
+        emailLogWriter.write(log("email-1", EmailStatus.SUCCESS, null), null);
+        emailLogWriter.write(log("email-2", EmailStatus.FAILED, "VALIDATION_ERROR"), null);
+
+        // Act
+        emailLogWriter.flush();
+
+        // Assert
+        verify(emailLogBatchRepository).insertFull(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("email-2", captor.getValue().get(0).getEmailId());
+        assertNotNull(captor.getValue().get(0).getCreatedDate());
+    }
+
+    @Test
+    public void testWrite_QueueFull_WritesSynchronously() {
+        // Arrange
+        ReflectionTestUtils.setField(emailLogWriter, "queue", new LinkedBlockingQueue<>(1));
+        when(emailLogBatchRepository.patchByEmailId(anyList())).thenReturn(new int[]{1});
+
+        // Act
+        emailLogWriter.write(log("email-1", EmailStatus.PENDING, null), null);
+        emailLogWriter.write(log("email-2", EmailStatus.PENDING, null), null);
+
+        // Assert - the second write did not fit, the caller wrote the queued one and queued its own
+        verify(emailLogBatchRepository, times(1)).patchByEmailId(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("email-1", captor.getValue().get(0).getEmailId());
+
+        emailLogWriter.flush();
+        verify(emailLogBatchRepository, times(2)).patchByEmailId(captor.capture());
+        assertEquals("email-2", captor.getValue().get(0).getEmailId());
+    }
+
+    @Test
+    public void testFlush_FailedBatch_WritesRowByRowAndRetriesTheRest() {
+        // Arrange - the batch fails, then email-2 keeps failing on its own
+        when(emailLogBatchRepository.patchByEmailId(anyList())).thenAnswer(invocation -> {
+            List<?> emailLogs = invocation.getArgument(0);
+            if (emailLogs.size() > 1 || "email-2".equals(((EmailLog) emailLogs.get(0)).getEmailId())) {
+                throw new QueryTimeoutException("timeout");
+            }
+            return new int[]{1};
+        });
+
+        emailLogWriter.write(log("email-1", EmailStatus.SUCCESS, null), null);
+        emailLogWriter.write(log("email-2", EmailStatus.FAILED, "EMAIL_SEND_ERROR"), null);
+        emailLogWriter.write(log("email-3", EmailStatus.PENDING, null), null);
+
+        // Act
+        emailLogWriter.flush();
+
+        // Assert - email-1 and email-3 were written, email-2 is kept ahead of anything queued later
+        List<?> retries = (List<?>) ReflectionTestUtils.getField(emailLogWriter, "retries");
+        assertEquals(1, retries.size());
+
+        // Act - the next flush tries email-2 again, the third failure gives up
+        emailLogWriter.flush();
+        emailLogWriter.flush();
+
+        // Assert
+        assertTrue(retries.isEmpty());
+        verify(emailLogBatchRepository, times(6)).patchByEmailId(anyList());
+    }
+
+    @Test
+    public void testFlush_LaterTransitionClearsEarlierError() {
+        // Arrange
+        when(emailLogBatchRepository.patchByEmailId(anyList())).thenReturn(new int[]{1});
+
+        EmailLog failed = log("email-1", EmailStatus.FAILED, "EMAIL_SEND_ERROR");
+        failed.setErrorMessage("Connection reset");
+        failed.setNextRetryAt(LocalDateTime.now().plusMinutes(1));
+        emailLogWriter.write(failed, null);
+        emailLogWriter.write(log("email-1", EmailStatus.SUCCESS, null), null);
+
+        // Act
+        emailLogWriter.flush();
+
+        // Assert
+        verify(emailLogBatchRepository).patchByEmailId(captor.capture());
+        EmailLog written = captor.getValue().get(0);
+        assertEquals(EmailStatus.SUCCESS, written.getStatus());
+        assertNull(written.getErrorCode());
+        assertNull(written.getErrorMessage());
+        assertNull(written.getNextRetryAt());
+    }
+
+    private EmailLog log(String emailId, String status, String errorCode) {
+        EmailLog emailLog = new EmailLog();
+        emailLog.setEmailId(emailId);
+        emailLog.setStatus(status);
+        emailLog.setErrorCode(errorCode);
+        emailLog.setLastUpdatedDate(LocalDateTime.now());
+        return emailLog;
+    }
+}
@@ -0,0 +1,114 @@
+package com.nivleking.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.constant.EmailStatus;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.model.EmailOutbox;
+import com.nivleking.springboot.service.EmailDispatchScheduler;
+import com.nivleking.springboot.service.EmailOutboxService;
+import com.nivleking.springboot.service.EmailOutboxWorker;
+import com.nivleking.springboot.service.EmailService;
+import com.nivleking.springboot.service.EmailUtilities;
+import com.nivleking.springboot.service.SmtpDeliveryGuard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailOutboxWorkerTests {
+
+    @InjectMocks
+    private EmailOutboxWorker emailOutboxWorker;
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private EmailUtilities emailUtilities;
+
+    @Mock
+    private EmailDispatchScheduler emailDispatchScheduler;
+
+    @Mock
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(emailOutboxWorker, "batchSize", 10);
+        ReflectionTestUtils.setField(emailOutboxWorker, "maxAttempts", 3);
+
+        // Run deliveries on the polling thread
+        when(smtpDeliveryGuard.isAvailable()).thenReturn(true);
+        when(emailDispatchScheduler.remainingCapacity(anyInt())).thenReturn(10);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(emailDispatchScheduler).execute(anyInt(), any(Runnable.class));
+        lenient().when(emailOutboxService.markFailed(any(EmailOutbox.class), anyString())).thenReturn(true);
+    }
+
+    @Test
+    public void testPoll_GivesUpAfterMaxAttempts_FailsEmailLog() throws Exception {
+        // Arrange
+        EmailOutbox row = row("{\"email_id\":\"email-1\",\"email_type\":\"OTP\"}");
+        row.setAttempts(4);
+        when(emailOutboxService.claimBatch(anyInt(), anyCollection())).thenReturn(Collections.singletonList(row));
+
+        // Act
+        emailOutboxWorker.poll();
+
+        // Assert
+        verify(emailService, never()).deliverQueuedEmail(any());
+        verify(emailOutboxService).markFailed(eq(row), contains("Gave up"));
+        verify(emailUtilities).saveErrorLog(any(EmailDTO.class), eq(EmailStatus.FAILED), eq("email-1"),
+                eq(BigDecimal.ZERO), eq("500"), eq("OUTBOX_ERROR"), contains("Gave up"));
+    }
+
+    @Test
+    public void testPoll_UnreadablePayload_FailsEmailLog() throws Exception {
+        // Arrange
+        EmailOutbox row = row("not json");
+        when(emailOutboxService.claimBatch(anyInt(), anyCollection())).thenReturn(Collections.singletonList(row));
+        when(emailOutboxService.renewLease(row)).thenReturn(true);
+
+        // Act
+        emailOutboxWorker.poll();
+
+        // Assert
+        ArgumentCaptor<EmailDTO> dto = ArgumentCaptor.forClass(EmailDTO.class);
+        verify(emailUtilities).saveErrorLog(dto.capture(), eq(EmailStatus.FAILED), eq("email-1"),
+                eq(BigDecimal.ZERO), eq("500"), eq("OUTBOX_ERROR"), anyString());
+        assertEquals("OTP", dto.getValue().getEmailType());
+        verify(emailService, never()).deliverQueuedEmail(any());
+    }
+
+    private EmailOutbox row(String payload) {
+        EmailOutbox row = new EmailOutbox();
+        row.setId(BigDecimal.ONE);
+        row.setEmailId("email-1");
+        row.setEmailType("OTP");
+        row.setPayload(payload);
+        row.setAttempts(1);
+        row.setLockedBy("node/claim");
+        return row;
+    }
+}
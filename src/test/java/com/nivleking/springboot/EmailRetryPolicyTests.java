@@ -0,0 +1,63 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.service.EmailRetryPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailRetryPolicyTests {
+
+    private EmailRetryPolicy emailRetryPolicy;
+
+    @BeforeEach
+    public void setup() {
+        emailRetryPolicy = new EmailRetryPolicy();
+        ReflectionTestUtils.setField(emailRetryPolicy, "enabled", true);
+        ReflectionTestUtils.setField(emailRetryPolicy, "maxRetries", 5);
+        ReflectionTestUtils.setField(emailRetryPolicy, "baseDelayMillis", 1000L);
+        ReflectionTestUtils.setField(emailRetryPolicy, "maxDelayMillis", 10000L);
+    }
+
+    @Test
+    public void testBackoff_DoublesWithJitterUpToCap() {
+        for (int i = 0; i < 1000; i++) {
+            long first = emailRetryPolicy.backoffMillis(0);
+            long third = emailRetryPolicy.backoffMillis(2);
+            long capped = emailRetryPolicy.backoffMillis(100);
+
+            assertTrue(first >= 500 && first <= 1000, "first retry " + first);
+            assertTrue(third >= 2000 && third <= 4000, "third retry " + third);
+            assertTrue(capped >= 5000 && capped <= 10000, "capped retry " + capped);
+        }
+    }
+
+    @Test
+    public void testBackoff_SpreadsRetriesOfTheSameAttempt() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long delay = emailRetryPolicy.backoffMillis(3);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        assertTrue(max - min > 2000, "spread " + (max - min));
+    }
+
+    @Test
+    public void testNextRetryAt_StopsAtMaxRetries() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertNotNull(emailRetryPolicy.nextRetryAt(BigDecimal.ZERO, now));
+        assertNotNull(emailRetryPolicy.nextRetryAt(new BigDecimal(4), now));
+        assertNull(emailRetryPolicy.nextRetryAt(new BigDecimal(5), now));
+
+        ReflectionTestUtils.setField(emailRetryPolicy, "enabled", false);
+        assertNull(emailRetryPolicy.nextRetryAt(BigDecimal.ZERO, now));
+    }
+}
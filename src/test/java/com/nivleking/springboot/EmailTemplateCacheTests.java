@@ -0,0 +1,101 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.model.EmailTemplate;
+import com.nivleking.springboot.repository.EmailTemplateRepository;
+import com.nivleking.springboot.service.EmailTemplateCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailTemplateCacheTests {
+
+    @InjectMocks
+    private EmailTemplateCache emailTemplateCache;
+
+    @Mock
+    private EmailTemplateRepository emailTemplateRepository;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(emailTemplateCache, "maxSize", 10);
+        ReflectionTestUtils.setField(emailTemplateCache, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(emailTemplateCache, "negativeTtlMillis", 60_000L);
+        ReflectionTestUtils.setField(emailTemplateCache, "meterRegistry", new SimpleMeterRegistry());
+        emailTemplateCache.init();
+    }
+
+    @Test
+    public void testFindTemplate_CachesHit() {
+        EmailTemplate template = new EmailTemplate();
+        template.setTemplateId("welcome_template");
+        template.setTemplate("<html><body>Welcome</body></html>");
+        when(emailTemplateRepository.findByTemplateId("welcome_template")).thenReturn(Optional.of(template));
+
+        assertEquals(Optional.of(template.getTemplate()), emailTemplateCache.findTemplate("welcome_template"));
+        assertEquals(Optional.of(template.getTemplate()), emailTemplateCache.findTemplate("welcome_template"));
+
+        verify(emailTemplateRepository, times(1)).findByTemplateId("welcome_template");
+    }
+
+    @Test
+    public void testFindTemplate_CachesUnknownId() {
+        when(emailTemplateRepository.findByTemplateId("missing_template")).thenReturn(Optional.empty());
+
+        assertFalse(emailTemplateCache.findTemplate("missing_template").isPresent());
+        assertFalse(emailTemplateCache.findTemplate("missing_template").isPresent());
+
+        verify(emailTemplateRepository, times(1)).findByTemplateId("missing_template");
+    }
+
+    @Test
+    public void testCheckForUpdates_InvalidatesOnVersionChange() {
+        EmailTemplate template = new EmailTemplate();
+        template.setTemplate("<html><body>v1</body></html>");
+        when(emailTemplateRepository.findByTemplateId("welcome_template")).thenReturn(Optional.of(template));
+
+        LocalDateTime firstUpdate = LocalDateTime.now().minusDays(1);
+        when(emailTemplateRepository.findTemplateVersion())
+                .thenReturn(version(1L, firstUpdate))
+                .thenReturn(version(1L, firstUpdate))
+                .thenReturn(version(1L, firstUpdate.plusDays(1)));
+
+        emailTemplateCache.checkForUpdates();
+        emailTemplateCache.findTemplate("welcome_template");
+
+        // Unchanged version keeps the cached entry
+        emailTemplateCache.checkForUpdates();
+        emailTemplateCache.findTemplate("welcome_template");
+        verify(emailTemplateRepository, times(1)).findByTemplateId("welcome_template");
+
+        // A newer LAST_UPDATED_DATE drops it
+        emailTemplateCache.checkForUpdates();
+        emailTemplateCache.findTemplate("welcome_template");
+        verify(emailTemplateRepository, times(2)).findByTemplateId("welcome_template");
+    }
+
+    private EmailTemplateRepository.TemplateVersion version(Long count, LocalDateTime lastUpdatedDate) {
+        return new EmailTemplateRepository.TemplateVersion() {
+            @Override
+            public Long getTemplateCount() {
+                return count;
+            }
+
+            @Override
+            public LocalDateTime getLastUpdatedDate() {
+                return lastUpdatedDate;
+            }
+        };
+    }
+}
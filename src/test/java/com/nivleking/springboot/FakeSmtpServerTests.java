@@ -0,0 +1,86 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.loadtest.FakeSmtpServer;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FakeSmtpServerTests {
+
+    private FakeSmtpServer smtpServer;
+    private Session session;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        smtpServer = new FakeSmtpServer(0, true, new FakeSmtpServer.Faults());
+        smtpServer.start();
+
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.host", "127.0.0.1");
+        props.setProperty("mail.smtp.port", String.valueOf(smtpServer.getPort()));
+        props.setProperty("mail.smtp.auth", "true");
+        props.setProperty("mail.smtp.connectiontimeout", "2000");
+        props.setProperty("mail.smtp.timeout", "500");
+        session = Session.getInstance(props);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        smtpServer.close();
+    }
+
+    @Test
+    public void testSend_RecordsMessage() throws Exception {
+        // Arrange
+        MimeMessage message = message(".leading dot\r\nHello");
+
+        // Act
+        Transport.send(message, "user", "password");
+
+        // Assert
+        assertEquals(1, smtpServer.getMessages().size());
+        String raw = new String(smtpServer.getMessages().get(0), StandardCharsets.ISO_8859_1);
+        assertTrue(raw.contains("Subject: Load test"));
+        assertTrue(raw.contains("\r\n.leading dot\r\n"));
+    }
+
+    @Test
+    public void testSend_InjectedFailures() throws Exception {
+        // Arrange
+        FakeSmtpServer.Faults faults = new FakeSmtpServer.Faults();
+        faults.setPermFailureRate(1);
+        smtpServer.setFaults(faults);
+
+        // Act & Assert
+        MessagingException rejected = assertThrows(MessagingException.class, () -> Transport.send(message("Hello"), "user", "password"));
+        assertTrue(rejected.getMessage().startsWith("554"));
+
+        faults.setPermFailureRate(0);
+        faults.setTimeoutRate(1);
+        MessagingException timedOut = assertThrows(MessagingException.class, () -> Transport.send(message("Hello"), "user", "password"));
+        assertTrue(timedOut.getMessage().contains("timed out") || timedOut.getCause() instanceof SocketTimeoutException,
+                timedOut.toString());
+        assertEquals(0, smtpServer.getAccepted());
+    }
+
+    private MimeMessage message(String text) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("sender@example.com"));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress("receiver@example.com"));
+        message.setSubject("Load test");
+        message.setText(text);
+        return message;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.dto.ConfigMapData;
+import com.nivleking.springboot.service.MailSessionFactory;
+import jakarta.mail.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MailSessionFactoryTests {
+
+    private MailSessionFactory mailSessionFactory;
+    private ConfigMapData emailHost;
+
+    @BeforeEach
+    public void setup() {
+        emailHost = new ConfigMapData("smtp.example.com");
+        mailSessionFactory = new MailSessionFactory();
+        ReflectionTestUtils.setField(mailSessionFactory, "emailUsername", "user@example.com");
+        ReflectionTestUtils.setField(mailSessionFactory, "emailPassword", "password");
+        ReflectionTestUtils.setField(mailSessionFactory, "chunkSize", 262144);
+        ReflectionTestUtils.setField(mailSessionFactory, "emailHost", emailHost);
+        ReflectionTestUtils.setField(mailSessionFactory, "emailPort", new ConfigMapData("587"));
+    }
+
+    @Test
+    public void testGetSession_ReusedUntilConfigChanges() {
+        // Act
+        Session first = mailSessionFactory.getSession();
+        Session second = mailSessionFactory.getSession();
+        emailHost.setValue("smtp2.example.com");
+        Session refreshed = mailSessionFactory.getSession();
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, refreshed);
+        assertEquals("smtp.example.com", first.getProperty("mail.smtp.host"));
+        assertEquals("smtp2.example.com", refreshed.getProperty("mail.smtp.host"));
+        assertEquals("587", refreshed.getProperty("mail.smtp.port"));
+        assertEquals(587, mailSessionFactory.current().getPort());
+    }
+
+    @Test
+    public void testGetSession_LeavesSystemPropertiesAlone() {
+        // Arrange
+        String before = System.getProperty("mail.smtp.host");
+
+        // Act
+        mailSessionFactory.getSession();
+
+        // Assert
+        assertEquals(before, System.getProperty("mail.smtp.host"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.config.MetricsConfiguration;
+import com.nivleking.springboot.dto.EmailDTO;
+import com.nivleking.springboot.service.PipelineMetrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsConfigurationTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PipelineMetrics pipelineMetrics;
+
+    @BeforeEach
+    public void setup() {
+        MetricsConfiguration metricsConfiguration = new MetricsConfiguration();
+        ReflectionTestUtils.setField(metricsConfiguration, "maxTemplates", 10);
+        ReflectionTestUtils.setField(metricsConfiguration, "maxEmailTypes", 2);
+
+        meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config()
+                .meterFilter(metricsConfiguration.pipelineTemplateTagLimit())
+                .meterFilter(metricsConfiguration.pipelineEmailTypeTagLimit())
+                .meterFilter(metricsConfiguration.suppressedEmailTypeTagLimit());
+
+        pipelineMetrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(pipelineMetrics, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    public void testEmailTypeTag_IsCapped() throws Exception {
+        // Act - email types come straight from the requests
+        for (String emailType : new String[]{"OTP", "NOTIFICATION", "random-1", "random-2"}) {
+            EmailDTO emailDTO = new EmailDTO();
+            emailDTO.setEmailType(emailType);
+            emailDTO.setTemplateName("otp_template");
+            pipelineMetrics.suppressed(emailDTO, PipelineMetrics.SUPPRESSED_DELAY);
+            pipelineMetrics.email(PipelineMetrics.SMTP_SEND, emailDTO, () -> null);
+        }
+
+        // Assert
+        assertEquals(2, meterRegistry.find(PipelineMetrics.SUPPRESSED_COUNTER).counters().size());
+        assertEquals(2, meterRegistry.find(PipelineMetrics.EMAIL_TIMER).timers().size());
+        assertNull(meterRegistry.find(PipelineMetrics.SUPPRESSED_COUNTER).tag("email_type", "random-1").counter());
+    }
+
+    @Test
+    public void testHistogram_OnlyOnStageTimer() {
+        // Arrange - record which timers ask for percentile histograms
+        Map<String, Boolean> histograms = new HashMap<>();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                histograms.put(id.getName(), Boolean.TRUE.equals(config.isPercentileHistogram()));
+                return config;
+            }
+        });
+        EmailDTO emailDTO = new EmailDTO();
+        emailDTO.setEmailType("OTP");
+        emailDTO.setTemplateName("otp_template");
+
+        // Act
+        pipelineMetrics.email(PipelineMetrics.SMTP_SEND, emailDTO, () -> null);
+
+        // Assert - the per email_type/template timer has no buckets, the stage aggregate has them
+        assertFalse(histograms.get(PipelineMetrics.EMAIL_TIMER));
+        assertTrue(histograms.get(PipelineMetrics.EMAIL_STAGE_TIMER));
+        assertEquals(1, meterRegistry.get(PipelineMetrics.EMAIL_STAGE_TIMER).tag("stage", PipelineMetrics.SMTP_SEND).timer().count());
+    }
+}
@@ -0,0 +1,127 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.loadtest.FakeSmtpServer;
+import com.nivleking.springboot.utils.PipeliningSmtpTransport;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipeliningSmtpTransportTests {
+
+    private FakeSmtpServer smtpServer;
+    private Session session;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        // A little latency per reply so pipelined commands are already waiting when the server replies
+        FakeSmtpServer.Faults faults = new FakeSmtpServer.Faults();
+        faults.setCommandLatencyMillis(20);
+        smtpServer = new FakeSmtpServer(0, true, faults);
+        smtpServer.start();
+
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.host", "127.0.0.1");
+        props.setProperty("mail.smtp.port", String.valueOf(smtpServer.getPort()));
+        props.setProperty("mail.smtp.auth", "true");
+        props.setProperty("mail.smtp.connectiontimeout", "2000");
+        props.setProperty("mail.smtp.timeout", "2000");
+        props.setProperty("mail.smtp.chunksize", "1024");
+        session = Session.getInstance(props);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        smtpServer.close();
+    }
+
+    @Test
+    public void testSend_PipelinesEnvelopeAndUsesBdat() throws Exception {
+        // Arrange - the body spans several BDAT chunks
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("Line ").append(i).append("\r\n");
+        }
+        MimeMessage message = message(text.toString(), "a@example.com", "b@example.com", "c@example.com");
+
+        // Act
+        try (Transport transport = connect()) {
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+
+        // Assert
+        assertEquals(1, smtpServer.getAccepted());
+        String raw = new String(smtpServer.getMessages().get(0), StandardCharsets.ISO_8859_1);
+        assertTrue(raw.contains("Subject: Pipelining"));
+        assertTrue(raw.contains("Line 199"));
+        assertEquals(3, smtpServer.getPipelined(), smtpServer.getStats());
+        assertTrue(smtpServer.getChunks() > 1, smtpServer.getStats());
+    }
+
+    @Test
+    public void testSend_RejectedRecipientKeepsConnectionUsable() throws Exception {
+        try (Transport transport = connect()) {
+            // Act
+            MimeMessage rejected = message("Hello", "a@example.com", "reject@example.com");
+            SendFailedException e = assertThrows(SendFailedException.class,
+                    () -> transport.sendMessage(rejected, rejected.getAllRecipients()));
+
+            // Assert - nothing was sent and the replies did not get out of step
+            assertArrayEquals(new Address[]{new InternetAddress("reject@example.com")}, e.getInvalidAddresses());
+            assertArrayEquals(new Address[]{new InternetAddress("a@example.com")}, e.getValidUnsentAddresses());
+            assertEquals(0, smtpServer.getAccepted());
+
+            MimeMessage next = message("Hello", "a@example.com");
+            transport.sendMessage(next, next.getAllRecipients());
+            assertEquals(1, smtpServer.getAccepted());
+        }
+    }
+
+    @Test
+    public void testSend_FallsBackWithoutPipelining() throws Exception {
+        // Arrange
+        smtpServer.setPipelining(false);
+        smtpServer.setChunking(false);
+        MimeMessage message = message("Hello", "a@example.com", "b@example.com");
+
+        // Act
+        try (Transport transport = connect()) {
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+
+        // Assert
+        assertEquals(1, smtpServer.getAccepted());
+        assertEquals(0, smtpServer.getPipelined());
+        assertEquals(0, smtpServer.getChunks());
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = session.getTransport(PipeliningSmtpTransport.PROVIDER);
+        transport.connect("127.0.0.1", smtpServer.getPort(), "user", "password");
+        return transport;
+    }
+
+    private MimeMessage message(String text, String... recipients) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("sender@example.com"));
+        for (String recipient : recipients) {
+            message.addRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
+        }
+        message.setSubject("Pipelining");
+        message.setText(text);
+        message.saveChanges();
+        return message;
+    }
+}
@@ -0,0 +1,91 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.exception.SmtpUnavailableException;
+import com.nivleking.springboot.service.SmtpDeliveryGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpDeliveryGuardTests {
+
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @BeforeEach
+    public void setup() {
+        smtpDeliveryGuard = new SmtpDeliveryGuard();
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "initialLimit", 4);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "minLimit", 1);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "maxLimit", 8);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "backoffRatio", 0.5);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "slowCallMillis", 5000L);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "acquireTimeoutMillis", 0L);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "failureThreshold", 3);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "openMillis", 60000L);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "meterRegistry", new SimpleMeterRegistry());
+        smtpDeliveryGuard.init();
+    }
+
+    @Test
+    public void testLimit_GrowsOnSuccessAndHalvesOnFailure() throws Exception {
+        // Arrange - fill the initial limit
+        SmtpDeliveryGuard.Permit[] permits = new SmtpDeliveryGuard.Permit[4];
+        for (int i = 0; i < permits.length; i++) {
+            permits[i] = smtpDeliveryGuard.acquire();
+        }
+
+        // Act & Assert - no fifth slot until one is released
+        assertThrows(SmtpUnavailableException.class, () -> smtpDeliveryGuard.acquire());
+
+        permits[0].release(null);
+        assertEquals(4.25, smtpDeliveryGuard.getLimit(), 0.0001);
+
+        permits[1].release(new MessagingException("Connection reset"));
+        assertEquals(2.125, smtpDeliveryGuard.getLimit(), 0.0001);
+        assertEquals(2, smtpDeliveryGuard.getInFlight());
+        assertThrows(SmtpUnavailableException.class, () -> smtpDeliveryGuard.acquire());
+    }
+
+    @Test
+    public void testCircuit_OpensAfterConsecutiveRelayFailures() throws Exception {
+        // Arrange - recipient rejections mean the relay is answering
+        smtpDeliveryGuard.acquire().release(new MessagingException("Read timed out"));
+        smtpDeliveryGuard.acquire().release(new SendFailedException("Invalid Addresses"));
+        smtpDeliveryGuard.acquire().release(new MessagingException("Read timed out"));
+        assertEquals(SmtpDeliveryGuard.State.CLOSED, smtpDeliveryGuard.getState());
+
+        // Act
+        smtpDeliveryGuard.acquire().release(new MessagingException("Read timed out"));
+        smtpDeliveryGuard.acquire().release(new MessagingException("Read timed out"));
+
+        // Assert
+        assertEquals(SmtpDeliveryGuard.State.OPEN, smtpDeliveryGuard.getState());
+        assertFalse(smtpDeliveryGuard.isAvailable());
+        assertThrows(SmtpUnavailableException.class, () -> smtpDeliveryGuard.acquire());
+    }
+
+    @Test
+    public void testCircuit_TrialSendClosesIt() throws Exception {
+        // Arrange - open the circuit with an open period that has already passed
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "openMillis", 0L);
+        for (int i = 0; i < 3; i++) {
+            smtpDeliveryGuard.acquire().release(new MessagingException("Connection refused"));
+        }
+        assertEquals(SmtpDeliveryGuard.State.OPEN, smtpDeliveryGuard.getState());
+
+        // Act - only one trial is let through while half-open
+        SmtpDeliveryGuard.Permit trial = smtpDeliveryGuard.acquire();
+        assertEquals(SmtpDeliveryGuard.State.HALF_OPEN, smtpDeliveryGuard.getState());
+        assertThrows(SmtpUnavailableException.class, () -> smtpDeliveryGuard.acquire());
+        trial.release(null);
+
+        // Assert
+        assertEquals(SmtpDeliveryGuard.State.CLOSED, smtpDeliveryGuard.getState());
+        assertTrue(smtpDeliveryGuard.isAvailable());
+        smtpDeliveryGuard.acquire().release(null);
+    }
+}
@@ -0,0 +1,137 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.dto.ConfigMapData;
+import com.nivleking.springboot.loadtest.FakeSmtpServer;
+import com.nivleking.springboot.service.MailSessionFactory;
+import com.nivleking.springboot.service.SmtpDeliveryGuard;
+import com.nivleking.springboot.service.SmtpTransportPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpTransportPoolTests {
+
+    private FakeSmtpServer smtpServer;
+    private MailSessionFactory mailSessionFactory;
+    private SmtpTransportPool smtpTransportPool;
+    private SimpleMeterRegistry meterRegistry;
+    private SmtpDeliveryGuard smtpDeliveryGuard;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        smtpServer = new FakeSmtpServer(0, true, new FakeSmtpServer.Faults());
+        smtpServer.start();
+
+        mailSessionFactory = new MailSessionFactory();
+        ReflectionTestUtils.setField(mailSessionFactory, "emailUsername", "user@example.com");
+        ReflectionTestUtils.setField(mailSessionFactory, "emailPassword", "password");
+        ReflectionTestUtils.setField(mailSessionFactory, "chunkSize", 262144);
+        ReflectionTestUtils.setField(mailSessionFactory, "emailHost", new ConfigMapData("127.0.0.1"));
+        ReflectionTestUtils.setField(mailSessionFactory, "emailPort", new ConfigMapData(String.valueOf(smtpServer.getPort())));
+
+        smtpDeliveryGuard = new SmtpDeliveryGuard();
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "initialLimit", 4);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "minLimit", 1);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "maxLimit", 8);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "backoffRatio", 0.5);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "slowCallMillis", 5000L);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "acquireTimeoutMillis", 0L);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "failureThreshold", 3);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "openMillis", 60000L);
+        ReflectionTestUtils.setField(smtpDeliveryGuard, "meterRegistry", new SimpleMeterRegistry());
+        smtpDeliveryGuard.init();
+
+        meterRegistry = new SimpleMeterRegistry();
+        smtpTransportPool = new SmtpTransportPool();
+        ReflectionTestUtils.setField(smtpTransportPool, "emailUsername", "user@example.com");
+        ReflectionTestUtils.setField(smtpTransportPool, "emailPassword", "password");
+        ReflectionTestUtils.setField(smtpTransportPool, "maxSize", 2);
+        ReflectionTestUtils.setField(smtpTransportPool, "maxIdleMillis", 60000L);
+        ReflectionTestUtils.setField(smtpTransportPool, "validateAfterIdleMillis", 5000L);
+        ReflectionTestUtils.setField(smtpTransportPool, "borrowTimeoutMillis", 1000L);
+        ReflectionTestUtils.setField(smtpTransportPool, "pipelining", true);
+        ReflectionTestUtils.setField(smtpTransportPool, "mailSessionFactory", mailSessionFactory);
+        ReflectionTestUtils.setField(smtpTransportPool, "smtpDeliveryGuard", smtpDeliveryGuard);
+        ReflectionTestUtils.setField(smtpTransportPool, "meterRegistry", meterRegistry);
+        smtpTransportPool.registerMetrics();
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        smtpTransportPool.shutdown();
+        smtpServer.close();
+    }
+
+    @Test
+    public void testBatch_RejectedRecipientKeepsConnection() throws Exception {
+        try (SmtpTransportPool.Batch batch = smtpTransportPool.openBatch()) {
+            // Act
+            MimeMessage rejected = message("reject@example.com");
+            assertThrows(SendFailedException.class, () -> batch.send(rejected));
+            batch.send(message("a@example.com"));
+        }
+        smtpTransportPool.send(message("b@example.com"));
+
+        // Assert - one connection served all three messages
+        assertEquals(2, smtpServer.getAccepted());
+        assertEquals(1, meterRegistry.get("email.smtp.pool.created").functionCounter().count(), 0.0);
+        assertEquals(1, meterRegistry.get("email.smtp.pool.idle").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void testBatch_ReturnConnectionFreesItBetweenSends() throws Exception {
+        try (SmtpTransportPool.Batch batch = smtpTransportPool.openBatch()) {
+            batch.send(message("a@example.com"));
+
+            // Act - e.g. while the caller is pacing
+            batch.returnConnection();
+
+            // Assert - the connection is idle in the pool and the next send borrows it again
+            assertEquals(1, meterRegistry.get("email.smtp.pool.idle").gauge().value(), 0.0);
+            batch.send(message("b@example.com"));
+            assertEquals(0, meterRegistry.get("email.smtp.pool.idle").gauge().value(), 0.0);
+        }
+        assertEquals(2, smtpServer.getAccepted());
+        assertEquals(1, meterRegistry.get("email.smtp.pool.created").functionCounter().count(), 0.0);
+    }
+
+    @Test
+    public void testSend_PoolExhaustedIsNotARelayFailure() throws Exception {
+        ReflectionTestUtils.setField(smtpTransportPool, "borrowTimeoutMillis", 0L);
+        try (SmtpTransportPool.Batch first = smtpTransportPool.openBatch();
+             SmtpTransportPool.Batch second = smtpTransportPool.openBatch()) {
+            // Arrange - both pooled connections are held
+            first.send(message("a@example.com"));
+            second.send(message("b@example.com"));
+            double limit = smtpDeliveryGuard.getLimit();
+
+            // Act
+            for (int i = 0; i < 5; i++) {
+                assertThrows(MessagingException.class, () -> smtpTransportPool.send(message("c@example.com")));
+            }
+
+            // Assert - the guard saw no failures
+            assertEquals(SmtpDeliveryGuard.State.CLOSED, smtpDeliveryGuard.getState());
+            assertEquals(limit, smtpDeliveryGuard.getLimit(), 0.0);
+            assertEquals(0, smtpDeliveryGuard.getInFlight());
+        }
+    }
+
+    private MimeMessage message(String recipient) throws MessagingException {
+        MimeMessage message = new MimeMessage(mailSessionFactory.getSession());
+        message.setFrom(new InternetAddress("sender@example.com"));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
+        message.setSubject("Pool");
+        message.setText("Hello");
+        return message;
+    }
+}
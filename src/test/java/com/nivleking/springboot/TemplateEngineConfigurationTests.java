@@ -0,0 +1,84 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.config.TemplateEngineConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.thymeleaf.cache.StandardCache;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateEngineConfigurationTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(TemplateEngineConfiguration.class);
+
+    private static StandardCache<?, ?> templateCache(SpringTemplateEngine templateEngine) {
+        return (StandardCache<?, ?>) templateEngine.getCacheManager().getTemplateCache();
+    }
+
+    private static String render(SpringTemplateEngine templateEngine, String template) {
+        Context context = new Context();
+        context.setVariable("name", "Nivleking");
+        return templateEngine.process(template, context);
+    }
+
+    @Test
+    public void testProcess_CachesByTemplateContent() {
+        contextRunner.run(context -> {
+            // Arrange
+            SpringTemplateEngine templateEngine = context.getBean("htmlTemplateEngine", SpringTemplateEngine.class);
+            StandardCache<?, ?> cache = templateCache(templateEngine);
+
+            // Act
+            String first = render(templateEngine, "<p>Hello [[${name}]]</p>");
+            String second = render(templateEngine, "<p>Hello [[${name}]]</p>");
+            String other = render(templateEngine, "<p>Bye [[${name}]]</p>");
+
+            // Assert - the same content is parsed once, different content is its own entry
+            assertEquals("<p>Hello Nivleking</p>", first);
+            assertEquals(first, second);
+            assertEquals("<p>Bye Nivleking</p>", other);
+            assertEquals(1, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+            assertEquals(2, cache.size());
+        });
+    }
+
+    @Test
+    public void testProcess_ExpiresAfterTtl() {
+        contextRunner.withPropertyValues("com.nivleking.springboot.template.cache.ttl-millis=50").run(context -> {
+            // Arrange
+            SpringTemplateEngine templateEngine = context.getBean("htmlTemplateEngine", SpringTemplateEngine.class);
+            StandardCache<?, ?> cache = templateCache(templateEngine);
+            render(templateEngine, "<p>Hello [[${name}]]</p>");
+
+            // Act
+            Thread.sleep(100);
+            render(templateEngine, "<p>Hello [[${name}]]</p>");
+
+            // Assert - the expired entry was parsed again
+            assertEquals(0, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+        });
+    }
+
+    @Test
+    public void testRefresh_ClearsTemplateCache() {
+        contextRunner.run(context -> {
+            // Arrange
+            SpringTemplateEngine templateEngine = context.getBean("htmlTemplateEngine", SpringTemplateEngine.class);
+            StandardCache<?, ?> cache = templateCache(templateEngine);
+            render(templateEngine, "<p>Hello [[${name}]]</p>");
+            assertEquals(1, cache.size());
+
+            // Act
+            context.publishEvent(new RefreshScopeRefreshedEvent());
+
+            // Assert
+            assertEquals(0, cache.size());
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.nivleking.springboot;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.utils.TemplateParamsContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateParamsContextTests {
+
+    private SpringTemplateEngine templateEngine;
+    private Map<String, Object> params;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        StringTemplateResolver templateResolver = new StringTemplateResolver();
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setEngineContextFactory(new TemplateParamsContext.EngineContextFactory());
+
+        params = new ObjectMapper().readValue("{"
+                + "\"name\": \"John\", \"total\": 30,"
+                + "\"order\": {\"orderId\": \"A-1\", \"customer\": {\"city\": \"Jakarta\"}},"
+                + "\"lines\": [{\"sku\": \"X\", \"qty\": 1}, {\"sku\": \"Y\", \"qty\": 2}],"
+                + "\"tags\": [\"new\", \"sale\"]"
+                + "}", new TypeReference<Map<String, Object>>() {});
+    }
+
+    @Test
+    public void testGetVariable_ExposesParamsInPlace() {
+        // Arrange & Act
+        String html = templateEngine.process("<p>[[${name}]] [[${total + 1}]] [[${order.customer.city}]]</p>"
+                        + "<li th:each=\"line : ${lines}\">[[${line.sku}]]x[[${line.qty * 2}]]</li>",
+                new TemplateParamsContext(Locale.ENGLISH, params));
+
+        // Assert - top-level scalars are strings as before, list items keep their JSON types
+        assertEquals("<p>John 301 Jakarta</p><li>Xx2</li><li>Yx4</li>", html);
+    }
+
+    @Test
+    public void testGetVariable_KeepsFlattenedNames() {
+        // Arrange
+        TemplateParamsContext context = new TemplateParamsContext(Locale.ENGLISH, params);
+
+        // Act & Assert - names that templates written against the flattened context still use
+        assertEquals("A-1", context.getVariable("orderId"));
+        assertEquals("Jakarta", context.getVariable("city"));
+        assertTrue(context.getVariable("customer") instanceof Map);
+        assertEquals("Y", context.getVariable("sku"));
+        assertEquals("2", context.getVariable("qty"));
+        assertEquals("sale", context.getVariable("tags[1]"));
+        assertNull(context.getVariable("missing"));
+    }
+
+    @Test
+    public void testGetVariable_TopLevelLookupsDoNotFlatten() {
+        // Arrange
+        TemplateParamsContext context = new TemplateParamsContext(Locale.ENGLISH, params);
+        context.setVariable("name", "Jane");
+
+        // Act
+        String html = templateEngine.process("<p>[[${name}]] [[${order.orderId}]] [[${tags[0]}]]</p>", context);
+
+        // Assert
+        assertEquals("<p>Jane A-1 new</p>", html);
+        assertNull(ReflectionTestUtils.getField(context, "flattened"));
+    }
+}
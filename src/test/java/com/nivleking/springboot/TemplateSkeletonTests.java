@@ -0,0 +1,97 @@
+package com.nivleking.springboot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.service.EmailUtilities;
+import com.nivleking.springboot.utils.TemplateParamsContext;
+import com.nivleking.springboot.utils.TemplateSkeleton;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateSkeletonTests {
+
+    private EmailUtilities emailUtilities;
+    private Map<String, Object> sharedParams;
+
+    @BeforeEach
+    public void setup() {
+        StringTemplateResolver templateResolver = new StringTemplateResolver();
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setEngineContextFactory(new TemplateParamsContext.EngineContextFactory());
+
+        emailUtilities = new EmailUtilities();
+        ReflectionTestUtils.setField(emailUtilities, "htmlTemplateEngine", templateEngine);
+        ReflectionTestUtils.setField(emailUtilities, "objectMapper", new ObjectMapper());
+
+        sharedParams = new HashMap<>();
+        sharedParams.put("company", "Acme & Co");
+        sharedParams.put("items", Arrays.asList("one", "two"));
+        sharedParams.put("showFooter", "true");
+    }
+
+    @Test
+    public void testRender_MatchesFullRender() {
+        // Arrange
+        String template = "<html><body><h1>Hello [[${name}]], from [[${company}]]</h1>"
+                + "<p th:text=\"${name}\">x</p><p th:utext=\"${note}\">x</p><i>[(${note})]</i>"
+                + "<ul><li th:each=\"item : ${items}\">[[${item}]] for [[${name}]]</li></ul>"
+                + "<footer th:if=\"${showFooter}\">Bye [[${name}]]</footer></body></html>";
+        TemplateSkeleton skeleton = emailUtilities.compileTemplate(template, sharedParams, Arrays.asList("name", "note"));
+        assertNotNull(skeleton);
+
+        for (String name : Arrays.asList("John", "<Jane & \"Doe\">", "Zoë 'O'")) {
+            Map<String, Object> params = new HashMap<>(sharedParams);
+            params.put("name", name);
+            params.put("note", "<b>" + name.length() + "</b>");
+
+            // Act
+            String rendered = skeleton.render(params);
+
+            // Assert
+            assertEquals(emailUtilities.processTemplate(template, params), rendered);
+        }
+    }
+
+    @Test
+    public void testCompile_RefusesVariablesThatChangeTheTemplate() {
+        // Arrange & Act & Assert
+        assertNull(emailUtilities.compileTemplate("<p th:if=\"${name != null}\">[[${name}]]</p>",
+                sharedParams, Collections.singletonList("name")));
+        assertNull(emailUtilities.compileTemplate("<a th:href=\"@{/u/{id}(id=${name})}\">[[${name}]]</a>",
+                sharedParams, Collections.singletonList("name")));
+        assertNull(emailUtilities.compileTemplate("<p>[[${name.toUpperCase()}]]</p>",
+                sharedParams, Collections.singletonList("name")));
+
+        // JavaScript inlining quotes and escapes the value, which the skeleton cannot reproduce
+        assertNull(emailUtilities.compileTemplate("<script th:inline=\"javascript\">var n = [[${name}]];</script>",
+                sharedParams, Collections.singletonList("name")));
+    }
+
+    @Test
+    public void testRender_FallsBackForNonScalarValues() {
+        // Arrange
+        TemplateSkeleton skeleton = emailUtilities.compileTemplate("<p>[[${name}]]</p>",
+                sharedParams, Collections.singletonList("name"));
+        assertNotNull(skeleton);
+        Map<String, Object> params = new HashMap<>(sharedParams);
+
+        // Act & Assert
+        assertNull(skeleton.render(params));
+        params.put("name", Collections.singletonMap("first", "John"));
+        assertNull(skeleton.render(params));
+        params.put("name", 42);
+        assertEquals("<p>42</p>", skeleton.render(params));
+    }
+}
@@ -0,0 +1,99 @@
+package com.nivleking.springboot;
+
+import com.nivleking.springboot.utils.TraceContext;
+import com.nivleking.springboot.utils.Tracing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TracingTests {
+
+    @AfterEach
+    public void cleanup() {
+        Tracing.attach(null);
+    }
+
+    @Test
+    public void testFromHeaders_ReadsTraceparentAndB3() {
+        // Arrange
+        Map<String, String> headers = new HashMap<>();
+        headers.put("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+        headers.put("X-B3-TraceId", "463ac35c9f6413ad");
+        headers.put("X-B3-SpanId", "a2fb4a1d1a96d312");
+
+        // Act
+        TraceContext w3c = TraceContext.fromHeaders(headers::get);
+        headers.remove("traceparent");
+        TraceContext b3 = TraceContext.fromHeaders(headers::get);
+
+        // Assert
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", w3c.getTraceId());
+        assertEquals("00f067aa0ba902b7", w3c.getSpanId());
+        assertFalse(w3c.isSampled());
+        assertEquals("0000000000000000463ac35c9f6413ad", b3.getTraceId());
+        assertEquals("00-0000000000000000463ac35c9f6413ad-a2fb4a1d1a96d312-01", b3.toTraceparent());
+
+        assertNull(TraceContext.fromTraceparent("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertNull(TraceContext.fromB3("not-a-trace"));
+        assertEquals("123e4567e89b12d3a456426614174000",
+                TraceContext.fromTraceId("123e4567-e89b-12d3-a456-426614174000").getTraceId());
+    }
+
+    @Test
+    public void testStartSpan_NestsAndRestoresMdc() {
+        // Arrange
+        Tracing.Span request = Tracing.startSpan("request", null);
+
+        // Act
+        Tracing.Span stage = Tracing.startSpan("stage");
+
+        // Assert
+        assertEquals(request.getContext().getTraceId(), stage.getContext().getTraceId());
+        assertEquals(request.getContext().getSpanId(), stage.getContext().getParentSpanId());
+        assertEquals(stage.getContext().getSpanId(), MDC.get("X-B3-SpanId"));
+        assertTrue(stage.getContext().getTraceId().matches("[0-9a-f]{32}"));
+        assertTrue(stage.getContext().getSpanId().matches("[0-9a-f]{16}"));
+
+        stage.end();
+        assertSame(request, Tracing.current());
+        assertEquals(request.getContext().getSpanId(), MDC.get("X-B3-SpanId"));
+        assertNull(MDC.get("X-B3-ParentSpanId"));
+
+        request.end();
+        assertNull(Tracing.current());
+        assertNull(MDC.get("X-B3-TraceId"));
+    }
+
+    @Test
+    public void testAttach_ContinuesTraceOnAnotherThread() throws Exception {
+        // Arrange
+        Tracing.Span request = Tracing.startSpan("request", null);
+        AtomicReference<TraceContext> worker = new AtomicReference<>();
+
+        // Act
+        Thread thread = new Thread(() -> {
+            Tracing.Span previous = Tracing.attach(request);
+            try {
+                Tracing.Span stage = Tracing.startSpan("stage");
+                worker.set(stage.getContext());
+                stage.end();
+            } finally {
+                Tracing.attach(previous);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // Assert
+        assertEquals(request.getContext().getTraceId(), worker.get().getTraceId());
+        assertEquals(request.getContext().getSpanId(), worker.get().getParentSpanId());
+        assertSame(request, Tracing.current());
+        request.end();
+    }
+}
@@ -0,0 +1,53 @@
+package com.nivleking.springboot.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.nivleking.springboot.config.TemplateEngineConfiguration;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+/**
+ * Fixtures under {@code src/test/resources/benchmark} and the beans the benchmarks need, set up like the
+ * application does but without a Spring context.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static String read(String name) {
+        try (InputStream input = BenchmarkFixtures.class.getResourceAsStream("/benchmark/" + name)) {
+            if (input == null) {
+                throw new IllegalArgumentException("Missing benchmark fixture " + name);
+            }
+            return new Scanner(input, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The template engine as configured by {@link TemplateEngineConfiguration}, with its default cache sizes
+     */
+    static SpringTemplateEngine templateEngine() {
+        TemplateEngineConfiguration configuration = new TemplateEngineConfiguration();
+        ReflectionTestUtils.setField(configuration, "templateCacheMaxSize", 200);
+        ReflectionTestUtils.setField(configuration, "templateCacheTtlMillis", 3600000L);
+        ReflectionTestUtils.setField(configuration, "expressionCacheMaxSize", 500);
+        return configuration.htmlTemplateEngine();
+    }
+
+    /**
+     * The application logs its own packages at DEBUG, which would be measured along with the code
+     */
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.nivleking.springboot")).setLevel(Level.WARN);
+    }
+}
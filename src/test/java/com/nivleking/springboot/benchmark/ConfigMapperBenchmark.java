@@ -0,0 +1,57 @@
+package com.nivleking.springboot.benchmark;
+
+import com.nivleking.springboot.service.ConfigMapperService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of config server map values such as the EMAIL_DELAY setting, e.g.
+ * {@code {'PROMOTIONAL,NEWSLETTER':'3000';'OTP':'60000'}}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigMapperBenchmark {
+
+    @Param({"5", "50"})
+    private int entries;
+
+    private ConfigMapperService configMapperService;
+    private String input;
+
+    @Setup
+    public void setup() {
+        BenchmarkFixtures.quietLogging();
+        configMapperService = new ConfigMapperService();
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                builder.append(';');
+            }
+            builder.append("'EMAIL_TYPE_").append(i).append(",ALIAS_").append(i).append("':'").append(1000 * (i + 1)).append('\'');
+        }
+        input = builder.append('}').toString();
+    }
+
+    @Benchmark
+    public Map<String, String> configServerMapValueReader() throws Exception {
+        return configMapperService.configServerMapValueReader(input);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ConfigMapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.nivleking.springboot.benchmark;
+
+import com.nivleking.springboot.constant.RegexValidator;
+import com.nivleking.springboot.utils.EmailAddressParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the regex based recipient validation with {@link EmailAddressParser}.
+ * Run from the IDE or with {@code mvn -Pbenchmark verify -Djmh.include=EmailAddressValidationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailAddressValidationBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int recipients;
+
+    private String single;
+    private String list;
+
+    @Setup
+    public void setup() {
+        single = "first.last+tag@mail.example.co.id";
+        List<String> addresses = new ArrayList<>(recipients);
+        for (int i = 0; i < recipients; i++) {
+            addresses.add("customer" + i + (i % 10 == 9 ? "@invalid" : "@example.com"));
+        }
+        list = String.join(";", addresses);
+    }
+
+    @Benchmark
+    public boolean regexSingle() {
+        return single.matches(RegexValidator.EMAIL_FORMAT);
+    }
+
+    @Benchmark
+    public boolean parserSingle() {
+        return EmailAddressParser.isValid(single);
+    }
+
+    /**
+     * The previous {@code EmailUtilities.splitEmails} path: split, match each, join.
+     */
+    @Benchmark
+    public void regexList(Blackhole blackhole) {
+        String[] emails = list.split(";");
+        List<String> errors = new ArrayList<>();
+        for (String email : emails) {
+            if (!email.matches(RegexValidator.EMAIL_FORMAT)) {
+                errors.add(email);
+            }
+        }
+        blackhole.consume(errors);
+        blackhole.consume(String.join(",", emails));
+    }
+
+    @Benchmark
+    public EmailAddressParser.ParsedAddresses parserList() {
+        return EmailAddressParser.parseList(list);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(EmailAddressValidationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.nivleking.springboot.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nivleking.springboot.service.EmailUtilities;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template rendering and recipient splitting of {@link EmailUtilities}, with the fixtures under
+ * {@code src/test/resources/benchmark}. The large params repeat the line items of the small fixture.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailUtilitiesBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Templates {
+        @Param({"small", "large", "nested"})
+        private String params;
+
+        private EmailUtilities emailUtilities;
+        private String template;
+        private Map<String, Object> templateParams;
+
+        @Setup
+        public void setup() throws Exception {
+            BenchmarkFixtures.quietLogging();
+            ObjectMapper objectMapper = new ObjectMapper();
+            emailUtilities = new EmailUtilities();
+            ReflectionTestUtils.setField(emailUtilities, "htmlTemplateEngine", BenchmarkFixtures.templateEngine());
+            ReflectionTestUtils.setField(emailUtilities, "objectMapper", objectMapper);
+
+            template = BenchmarkFixtures.read("email-template.html");
+            templateParams = objectMapper.readValue(
+                    BenchmarkFixtures.read("nested".equals(params) ? "email-params-nested.json" : "email-params.json"), new TypeReference<HashMap<String, Object>>() {});
+            if ("large".equals(params)) {
+                List<?> lines = (List<?>) templateParams.get("lines");
+                List<Object> repeated = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    repeated.addAll(lines);
+                }
+                templateParams.put("lines", repeated);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recipients {
+        @Param({"1", "50", "500"})
+        private int recipients;
+
+        private EmailUtilities emailUtilities;
+        private String list;
+
+        @Setup
+        public void setup() {
+            BenchmarkFixtures.quietLogging();
+            emailUtilities = new EmailUtilities();
+            List<String> addresses = new ArrayList<>(recipients);
+            for (int i = 0; i < recipients; i++) {
+                addresses.add("customer" + i + (i % 10 == 9 ? "@invalid" : "@example.com"));
+            }
+            list = String.join(";", addresses);
+        }
+    }
+
+    @Benchmark
+    public String processTemplate(Templates state) {
+        return state.emailUtilities.processTemplate(state.template, state.templateParams);
+    }
+
+    @Benchmark
+    public EmailUtilities.EmailResult splitEmails(Recipients state) throws Exception {
+        return state.emailUtilities.splitEmails(state.list, "RECEIVER");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(EmailUtilitiesBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+package com.nivleking.springboot.benchmark;
+
+import com.nivleking.springboot.service.PdfJsonUtilities;
+import com.nivleking.springboot.service.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The steps of PDF generation in {@link PdfJsonUtilities} for statements of {@code rows} rows, built
+ * from the fixtures under {@code src/test/resources/benchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int rows;
+
+    private PdfJsonUtilities pdfJsonUtilities;
+    private String template;
+    private JSONObject json;
+    private LinkedHashMap<String, Object> data;
+    private String html;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkFixtures.quietLogging();
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        ReflectionTestUtils.setField(pipelineMetrics, "meterRegistry", new SimpleMeterRegistry());
+        pdfJsonUtilities = new PdfJsonUtilities();
+        ReflectionTestUtils.setField(pdfJsonUtilities, "htmlTemplateEngine", BenchmarkFixtures.templateEngine());
+        ReflectionTestUtils.setField(pdfJsonUtilities, "pipelineMetrics", pipelineMetrics);
+
+        template = BenchmarkFixtures.read("pdf-template.html");
+        String row = BenchmarkFixtures.read("pdf-row.json");
+        JSONArray rowArray = new JSONArray();
+        for (int i = 0; i < rows; i++) {
+            rowArray.put(new JSONObject(row));
+        }
+        json = new JSONObject()
+                .put("title", "Account Statement")
+                .put("account", new JSONObject().put("number", "0012-3456-7890").put("holder", "Budi Santoso"))
+                .put("period", new JSONObject().put("from", "2024-05-01").put("to", "2024-05-31"))
+                .put("closingBalance", "12,500,000.00")
+                .put("rows", rowArray);
+
+        data = pdfJsonUtilities.jsonToMap(json);
+        html = pdfJsonUtilities.generateHtml(template, data);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, Object> jsonToMap() throws Exception {
+        return pdfJsonUtilities.jsonToMap(json);
+    }
+
+    @Benchmark
+    public String generateHtml() {
+        return pdfJsonUtilities.generateHtml(template, data);
+    }
+
+    @Benchmark
+    public byte[] generatePdfFromHtml() throws Exception {
+        return pdfJsonUtilities.generatePdfFromHtml(html);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(PdfBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
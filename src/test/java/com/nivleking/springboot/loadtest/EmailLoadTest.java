@@ -0,0 +1,193 @@
+package com.nivleking.springboot.loadtest;
+
+import com.nivleking.springboot.UtilitiesApplication;
+import com.nivleking.springboot.config.UtilitiesConfiguration;
+import com.nivleking.springboot.constant.ConfigServerMap;
+import com.nivleking.springboot.service.SmtpDeliveryGuard;
+import org.springframework.boot.SpringApplication;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load driver for {@code send-email}. Starts the application (against the database configured in
+ * {@code .env}) with its SMTP host pointed at a {@link FakeSmtpServer}, sends emails from
+ * {@code load.concurrency} client threads and reports throughput, latency percentiles and outcomes.
+ * <p>
+ * Run with {@code mvn -Pload-test verify} and system properties:
+ * <ul>
+ *   <li>{@code load.mode}: {@code sync} (default), {@code attachments} or {@code async}</li>
+ *   <li>{@code load.requests} (default 1000), {@code load.warmup} (default 100), {@code load.concurrency} (default 16)</li>
+ *   <li>{@code load.attachments} (default 3) and {@code load.attachment-kb} (default 256) for the attachments mode</li>
+ *   <li>{@code load.email-type} (default LOAD_TEST), to measure an email type with a delay configured</li>
+ *   <li>relay faults, see {@link FakeSmtpServer.Faults#fromSystemProperties}, with prefix {@code smtp.},
+ *   e.g. {@code -Dsmtp.data-latency-millis=200 -Dsmtp.temp-failure-rate=0.05}</li>
+ *   <li>{@code smtp.pipelining} and {@code smtp.chunking} (default true), whether the relay advertises the extensions</li>
+ * </ul>
+ * Application properties can be overridden with {@code -Dcom.nivleking.springboot...} as usual.
+ */
+public class EmailLoadTest {
+    private static final String SEND_EMAIL = "/api/utilities/mailer/send-email";
+
+    private final String mode = System.getProperty("load.mode", "sync");
+    private final int requests = Integer.getInteger("load.requests", 1000);
+    private final int warmup = Integer.getInteger("load.warmup", 100);
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final int attachments = Integer.getInteger("load.attachments", 3);
+    private final int attachmentKb = Integer.getInteger("load.attachment-kb", 256);
+    private final String emailType = System.getProperty("load.email-type", "LOAD_TEST");
+
+    private final RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+    private final Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+    private String url;
+    private byte[] attachment;
+
+    public static void main(String[] args) throws Exception {
+        new EmailLoadTest().run(args);
+    }
+
+    private void run(String[] args) throws Exception {
+        FakeSmtpServer.Faults faults = FakeSmtpServer.Faults.fromSystemProperties("smtp.");
+        try (FakeSmtpServer smtpServer = new FakeSmtpServer(0, false, faults)) {
+            smtpServer.setPipelining(Boolean.parseBoolean(System.getProperty("smtp.pipelining", "true")));
+            smtpServer.setChunking(Boolean.parseBoolean(System.getProperty("smtp.chunking", "true")));
+            smtpServer.start();
+
+            String[] appArgs = Arrays.copyOf(args, args.length + 1);
+            appArgs[args.length] = "--server.port=0";
+            try (ConfigurableApplicationContext context = SpringApplication.run(UtilitiesApplication.class, appArgs)) {
+                useSmtpServer(context, smtpServer.getPort());
+                url = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + SEND_EMAIL;
+                restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+                    @Override
+                    public boolean hasError(ClientHttpResponse response) {
+                        return false;
+                    }
+                });
+                attachment = new byte[attachmentKb * 1024];
+                new Random(42).nextBytes(attachment);
+
+                drive(warmup, null);
+                statuses.clear();
+                long[] latencies = new long[requests];
+                long elapsed = drive(requests, latencies);
+
+                report(latencies, elapsed, smtpServer, context.getBean(SmtpDeliveryGuard.class));
+            }
+        }
+    }
+
+    /**
+     * The SMTP host and port are read from CONFIG_SERVER, replace them for this run without touching the table
+     */
+    private static void useSmtpServer(ConfigurableApplicationContext context, int port) {
+        Map<String, String> configs = context.getBean(UtilitiesConfiguration.ConfigServerHolder.class).getConfigs();
+        configs.put(ConfigServerMap.EMAIL_HOST, "127.0.0.1");
+        configs.put(ConfigServerMap.EMAIL_PORT, String.valueOf(port));
+        RefreshScope refreshScope = context.getBean(RefreshScope.class);
+        refreshScope.refresh("emailHost");
+        refreshScope.refresh("emailPort");
+    }
+
+    /**
+     * @return the wall clock time in nanoseconds
+     */
+    private long drive(int count, long[] latencies) throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                try {
+                    int index;
+                    while ((index = next.getAndIncrement()) < count) {
+                        long sent = System.nanoTime();
+                        int status = send();
+                        if (latencies != null) {
+                            latencies[index] = System.nanoTime() - sent;
+                        }
+                        statuses.computeIfAbsent(status, key -> new AtomicInteger()).incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        return elapsed;
+    }
+
+    private int send() {
+        String dto = "{\"email_id\":\"" + UUID.randomUUID() + "\",\"email_type\":\"" + emailType + "\","
+                + "\"sender\":\"sender@example.com\",\"receiver\":\"receiver@example.com\","
+                + "\"subject\":\"Load test\",\"params\":{\"name\":\"Load Test\"}}";
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("dto", dto);
+        body.add("async", String.valueOf("async".equals(mode)));
+        if ("attachments".equals(mode)) {
+            for (int i = 0; i < attachments; i++) {
+                final String filename = "attachment-" + i + ".bin";
+                body.add("files", new ByteArrayResource(attachment) {
+                    @Override
+                    public String getFilename() {
+                        return filename;
+                    }
+                });
+            }
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        try {
+            return restTemplate.postForEntity(url, new HttpEntity<>(body, headers), String.class).getStatusCode().value();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private void report(long[] latencies, long elapsedNanos, FakeSmtpServer smtpServer, SmtpDeliveryGuard guard) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.println();
+        System.out.printf("mode=%s requests=%d concurrency=%d elapsed=%.1fs throughput=%.1f req/s%n",
+                mode, requests, concurrency, seconds, requests / seconds);
+        System.out.printf("latency ms: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+        System.out.println("http status (-1 = client error): " + new TreeMap<>(statuses));
+        System.out.println("smtp sink: " + smtpServer.getStats());
+        System.out.println("smtp guard: " + guard.snapshot());
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,407 @@
+package com.nivleking.springboot.loadtest;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process SMTP server for tests and load tests. It speaks enough SMTP for Jakarta Mail (EHLO, AUTH
+ * PLAIN/LOGIN accepting any credentials, MAIL, RCPT, DATA, BDAT, RSET, NOOP, QUIT) and discards or
+ * records the messages it accepts. PIPELINING and CHUNKING are advertised unless turned off, recipients
+ * whose address starts with {@code reject} are refused. {@link Faults} simulates a slow or failing relay.
+ */
+@Slf4j
+public class FakeSmtpServer implements Closeable {
+
+    /**
+     * Latency and failures injected by the server. Rates are probabilities per message, checked in the
+     * order drop, timeout, temporary failure, permanent failure.
+     */
+    @Data
+    public static class Faults {
+        /** Delay before every reply */
+        private long commandLatencyMillis;
+        /** Additional delay before the reply to the message data, i.e. the relay's processing time */
+        private long dataLatencyMillis;
+        /** Close the connection instead of replying to the message data */
+        private double dropRate;
+        /** Never reply to the message data, the client runs into its read timeout */
+        private double timeoutRate;
+        /** Reply 451 to the message data */
+        private double tempFailureRate;
+        /** Reply 554 to the message data */
+        private double permFailureRate;
+
+        /**
+         * Faults from system properties {@code <prefix>command-latency-millis}, {@code <prefix>data-latency-millis},
+         * {@code <prefix>drop-rate}, {@code <prefix>timeout-rate}, {@code <prefix>temp-failure-rate} and
+         * {@code <prefix>perm-failure-rate}
+         */
+        public static Faults fromSystemProperties(String prefix) {
+            Faults faults = new Faults();
+            faults.setCommandLatencyMillis(Long.getLong(prefix + "command-latency-millis", 0L));
+            faults.setDataLatencyMillis(Long.getLong(prefix + "data-latency-millis", 0L));
+            faults.setDropRate(Double.parseDouble(System.getProperty(prefix + "drop-rate", "0")));
+            faults.setTimeoutRate(Double.parseDouble(System.getProperty(prefix + "timeout-rate", "0")));
+            faults.setTempFailureRate(Double.parseDouble(System.getProperty(prefix + "temp-failure-rate", "0")));
+            faults.setPermFailureRate(Double.parseDouble(System.getProperty(prefix + "perm-failure-rate", "0")));
+            return faults;
+        }
+    }
+
+    private final int requestedPort;
+    private final boolean recording;
+    private volatile Faults faults;
+    private volatile boolean pipelining = true;
+    private volatile boolean chunking = true;
+
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fake-smtp");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Socket> openSockets = new ArrayList<>();
+    private final Queue<byte[]> messages = new ConcurrentLinkedQueue<>();
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong tempFailures = new AtomicLong();
+    private final AtomicLong permFailures = new AtomicLong();
+    private final AtomicLong pipelined = new AtomicLong();
+    private final AtomicLong chunkCount = new AtomicLong();
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     * @param recording keep accepted messages for {@link #getMessages()}, otherwise only count them
+     */
+    public FakeSmtpServer(int port, boolean recording, Faults faults) {
+        this.requestedPort = port;
+        this.recording = recording;
+        this.faults = faults;
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(requestedPort, 200, InetAddress.getLoopbackAddress());
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "fake-smtp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("[FAKE SMTP] Listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setFaults(Faults faults) {
+        this.faults = faults;
+    }
+
+    public void setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+    }
+
+    public void setChunking(boolean chunking) {
+        this.chunking = chunking;
+    }
+
+    /**
+     * Raw messages accepted so far, when recording
+     */
+    public List<byte[]> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public String getStats() {
+        return String.format("connections=%d accepted=%d dropped=%d timedOut=%d tempFailures=%d permFailures=%d pipelined=%d chunks=%d",
+                connectionCount.get(), accepted.get(), dropped.get(), timedOut.get(), tempFailures.get(), permFailures.get(),
+                pipelined.get(), chunkCount.get());
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * Commands that had already arrived when the reply to the previous command was written, i.e. the
+     * client did not wait for the reply
+     */
+    public long getPipelined() {
+        return pipelined.get();
+    }
+
+    /**
+     * BDAT chunks received
+     */
+    public long getChunks() {
+        return chunkCount.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        synchronized (openSockets) {
+            for (Socket socket : openSockets) {
+                socket.close();
+            }
+        }
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionCount.incrementAndGet();
+                synchronized (openSockets) {
+                    openSockets.add(socket);
+                }
+                connections.execute(() -> handle(socket));
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("[FAKE SMTP] Accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket ignored = socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1);
+            reply(writer, "220 localhost Fake SMTP ready");
+
+            ByteArrayOutputStream chunks = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                        reply(writer, "250-localhost\r\n250-8BITMIME\r\n250-SIZE 104857600\r\n"
+                                + (pipelining ? "250-PIPELINING\r\n" : "") + (chunking ? "250-CHUNKING\r\n" : "")
+                                + "250 AUTH PLAIN LOGIN");
+                        break;
+                    case "HELO":
+                        reply(writer, "250 localhost");
+                        break;
+                    case "AUTH":
+                        authenticate(line, reader, writer);
+                        break;
+                    case "RCPT":
+                        if (line.toLowerCase().contains("<reject")) {
+                            reply(writer, reader, "550 5.1.1 Recipient rejected");
+                        } else {
+                            reply(writer, reader, "250 OK");
+                        }
+                        break;
+                    case "RSET":
+                        chunks = null;
+                        reply(writer, reader, "250 OK");
+                        break;
+                    case "MAIL":
+                    case "NOOP":
+                        reply(writer, reader, "250 OK");
+                        break;
+                    case "BDAT":
+                        if (chunks == null) {
+                            chunks = new ByteArrayOutputStream();
+                        }
+                        if (!receiveChunk(line, chunks, reader, writer)) {
+                            return;
+                        }
+                        if (line.toUpperCase().endsWith(" LAST")) {
+                            chunks = null;
+                        }
+                        break;
+                    case "DATA":
+                        reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+                        if (!receiveData(reader, writer)) {
+                            return;
+                        }
+                        break;
+                    case "QUIT":
+                        reply(writer, "221 Bye");
+                        return;
+                    default:
+                        reply(writer, "502 Command not implemented");
+                }
+            }
+        } catch (SocketException e) {
+            // Closed by the client or by close()
+        } catch (IOException | InterruptedException e) {
+            log.debug("[FAKE SMTP] Connection ended: {}", e.getMessage());
+        } finally {
+            synchronized (openSockets) {
+                openSockets.remove(socket);
+            }
+        }
+    }
+
+    private void authenticate(String line, BufferedReader reader, Writer writer) throws IOException, InterruptedException {
+        String[] parts = line.split(" ");
+        String mechanism = parts.length > 1 ? parts[1].toUpperCase() : "";
+        if ("LOGIN".equals(mechanism)) {
+            if (parts.length < 3) {
+                reply(writer, "334 VXNlcm5hbWU6");
+                reader.readLine();
+            }
+            reply(writer, "334 UGFzc3dvcmQ6");
+            reader.readLine();
+        } else if ("PLAIN".equals(mechanism)) {
+            if (parts.length < 3) {
+                reply(writer, "334 ");
+                reader.readLine();
+            }
+        } else {
+            reply(writer, "504 Unrecognized authentication type");
+            return;
+        }
+        reply(writer, "235 Authentication successful");
+    }
+
+    /**
+     * @return false when the connection should be closed
+     */
+    private boolean receiveData(BufferedReader reader, Writer writer) throws IOException, InterruptedException {
+        ByteArrayOutputStream message = recording ? new ByteArrayOutputStream() : null;
+        String line;
+        while ((line = reader.readLine()) != null && !".".equals(line)) {
+            if (message != null) {
+                String unstuffed = line.startsWith("..") ? line.substring(1) : line;
+                message.write(unstuffed.getBytes(StandardCharsets.ISO_8859_1));
+                message.write('\r');
+                message.write('\n');
+            }
+        }
+        if (line == null) {
+            return false;
+        }
+        return complete(message, reader, writer);
+    }
+
+    /**
+     * Read one {@code BDAT <size> [LAST]} chunk, the message is complete after the LAST chunk.
+     *
+     * @return false when the connection should be closed
+     */
+    private boolean receiveChunk(String line, ByteArrayOutputStream chunks, BufferedReader reader, Writer writer)
+            throws IOException, InterruptedException {
+        String[] parts = line.trim().split("\\s+");
+        int size = Integer.parseInt(parts[1]);
+        char[] chunk = new char[size];
+        int read = 0;
+        while (read < size) {
+            int count = reader.read(chunk, read, size - read);
+            if (count < 0) {
+                return false;
+            }
+            read += count;
+        }
+        chunkCount.incrementAndGet();
+        if (recording) {
+            chunks.write(new String(chunk).getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        if (parts.length > 2 && "LAST".equalsIgnoreCase(parts[2])) {
+            return complete(recording ? chunks : null, reader, writer);
+        }
+        reply(writer, "250 2.0.0 Chunk received");
+        return true;
+    }
+
+    /**
+     * Apply the faults to a received message and reply
+     *
+     * @return false when the connection should be closed
+     */
+    private boolean complete(ByteArrayOutputStream message, BufferedReader reader, Writer writer) throws IOException, InterruptedException {
+        Faults current = faults;
+        sleep(current.getDataLatencyMillis());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < current.getDropRate()) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (random.nextDouble() < current.getTimeoutRate()) {
+            timedOut.incrementAndGet();
+            // Hold the connection without replying until the client gives up
+            while (reader.readLine() != null) {
+                // Discard anything the client still sends
+            }
+            return false;
+        }
+        if (random.nextDouble() < current.getTempFailureRate()) {
+            tempFailures.incrementAndGet();
+            reply(writer, "451 4.3.0 Temporary relay failure");
+            return true;
+        }
+        if (random.nextDouble() < current.getPermFailureRate()) {
+            permFailures.incrementAndGet();
+            reply(writer, "554 5.3.0 Transaction failed");
+            return true;
+        }
+
+        accepted.incrementAndGet();
+        if (message != null) {
+            messages.add(message.toByteArray());
+        }
+        reply(writer, "250 2.0.0 OK queued");
+        return true;
+    }
+
+    /**
+     * Reply to a command that may be pipelined, counting it when the client already sent the next command
+     */
+    private void reply(Writer writer, BufferedReader reader, String reply) throws IOException, InterruptedException {
+        sleep(faults.getCommandLatencyMillis());
+        if (reader.ready()) {
+            pipelined.incrementAndGet();
+        }
+        write(writer, reply);
+    }
+
+    private void reply(Writer writer, String reply) throws IOException, InterruptedException {
+        sleep(faults.getCommandLatencyMillis());
+        write(writer, reply);
+    }
+
+    private static void write(Writer writer, String reply) throws IOException {
+        writer.write(reply);
+        writer.write("\r\n");
+        writer.flush();
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+    }
+}